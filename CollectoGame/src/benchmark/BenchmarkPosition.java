@@ -0,0 +1,158 @@
+package benchmark;
+
+import java.util.SplittableRandom;
+
+import collectogame.Board;
+import collectogame.BoardGenerator;
+import collectogame.DoubleMoves;
+
+/**
+ * The fixed positions the benchmarks run on: a starting board, a board in the middle of the
+ * game and a board near its end. Each is made by playing random valid moves from a seeded
+ * starting board, so every run and every release measures the same positions.
+ *
+ * <p>The board of a position is built with setField and never asked for its moves, so a
+ * copy of it starts without cached moves. Benchmarks that measure the calculation of the
+ * moves copy it before every call.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public enum BenchmarkPosition {
+	EARLY(0),
+	MIDDLE(8),
+	LATE(16);
+
+	/**
+	 * The seed of the starting board and the moves.
+	 */
+	public static final long SEED = 2021L;
+
+	/**
+	 * @invariant board - the position, without cached moves
+	 * @invariant afterMove - the board after a valid move, with balls to collect
+	 * @invariant collection - the balls of the player to move
+	 * @invariant moves - the valid single moves, or the first moves of the valid double
+	 * moves if there is no single move
+	 * @invariant plies - the number of moves played to reach the position
+	 */
+	private final Board board;
+	private final Board afterMove;
+	private final int[] collection = new int[7];
+	private final int[] moves;
+	private final int plies;
+
+	/**
+	 * Creates the position after the given number of moves, or the last position before
+	 * the end of the game if it ends earlier.
+	 * @param plies - the number of moves to play
+	 */
+	BenchmarkPosition(int plies) {
+		SplittableRandom random = new SplittableRandom(SEED);
+		Board game = new BoardGenerator(SEED).createBoard();
+		int[][] collections = new int[2][7];
+		int played = 0;
+		while (played < plies) {
+			Board next = game.deepCopy();
+			int[] choice = randomMove(next, random);
+			if (choice.length == 1) {
+				next.makeSingleMove(choice[0]);
+			} else {
+				next.makeDoubleMove(choice[0], choice[1]);
+			}
+			next.collectBall(collections[played % 2]);
+			if (next.isEndGame()) {
+				break;
+			}
+			game = next;
+			played++;
+		}
+		this.plies = played;
+		System.arraycopy(collections[played % 2], 0, collection, 0, 7);
+
+		int[] choice = randomMove(game, new SplittableRandom(SEED));
+		afterMove = game.deepCopy();
+		if (choice.length == 1) {
+			afterMove.makeSingleMove(choice[0]);
+		} else {
+			afterMove.makeDoubleMove(choice[0], choice[1]);
+		}
+		int singles = game.getValidSingleMoves();
+		if (singles == 0) {
+			DoubleMoves doubles = game.getDoubleMoves();
+			for (int i = 0; i < doubles.size(); i++) {
+				singles |= 1 << doubles.getFirstMove(i);
+			}
+		}
+		moves = new int[Integer.bitCount(singles)];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = Integer.numberOfTrailingZeros(singles);
+			singles &= singles - 1;
+		}
+
+		board = new Board();
+		for (int i = 0; i < Board.DIM * Board.DIM; i++) {
+			board.setField(i, game.getField(i));
+		}
+	}
+
+	/**
+	 * Picks a random valid move, a single move if there is one.
+	 * @requires board.isEndGame() == false
+	 * @param board - the board to pick a move on
+	 * @param random - the random numbers
+	 * @return the single move or the two moves of a double move
+	 */
+	private static int[] randomMove(Board board, SplittableRandom random) {
+		int singles = board.getValidSingleMoves();
+		if (singles != 0) {
+			for (int skip = random.nextInt(Integer.bitCount(singles)); skip > 0; skip--) {
+				singles &= singles - 1;
+			}
+			return new int[] {Integer.numberOfTrailingZeros(singles)};
+		}
+		DoubleMoves doubles = board.getDoubleMoves();
+		int move = random.nextInt(doubles.size());
+		return new int[] {doubles.getFirstMove(move), doubles.getSecondMove(move)};
+	}
+
+	/**
+	 * Returns the board of the position. The board is shared, benchmarks that change it
+	 * work on a copy.
+	 * @return the board without cached moves
+	 */
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Returns the board after a valid move, before the balls are collected.
+	 * @return the board with collectable balls
+	 */
+	public Board getAfterMove() {
+		return afterMove;
+	}
+
+	/**
+	 * Returns a copy of the collection of the player to move.
+	 * @return the collection, indexed by ball number
+	 */
+	public int[] getCollection() {
+		return collection.clone();
+	}
+
+	/**
+	 * Returns the moves to make on the board, see the invariant.
+	 * @return a copy of the moves, at least one
+	 */
+	public int[] getMoves() {
+		return moves.clone();
+	}
+
+	/**
+	 * Returns the number of moves that were played to reach the position.
+	 * @return the number of moves
+	 */
+	public int getPlies() {
+		return plies;
+	}
+}
@@ -0,0 +1,207 @@
+package benchmark;
+
+import java.util.Locale;
+
+/**
+ * Small benchmark harness in the style of JMH, for a project without a build tool to pull
+ * JMH in. Every benchmark is run for a number of warmup iterations and then for a number of
+ * measured iterations of a fixed time. Within an iteration the operation is called in
+ * batches, so reading the clock does not dominate cheap operations. The score is the
+ * average time per operation over the measured iterations, with the standard deviation
+ * between the iterations as error.
+ *
+ * <p>The results of the operations are added to a sink that is published after every
+ * iteration, so the JIT can not remove the operations, as a JMH Blackhole does.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class Harness {
+	/**
+	 * An operation to measure.
+	 */
+	@FunctionalInterface
+	public interface Operation {
+		/**
+		 * Runs the operation once.
+		 * @param invocation - the number of the call within the benchmark, to vary the input
+		 * @return any result of the operation, it is consumed by the harness
+		 */
+		int run(int invocation);
+	}
+
+	/**
+	 * The time of a batch of operations, long enough to make reading the clock cheap.
+	 */
+	private static final long BATCH_NANOS = 20_000L;
+
+	/**
+	 * Published sink of all results, see the class comment.
+	 */
+	private static volatile int published;
+
+	/**
+	 * @invariant warmupIterations >= 0 and measureIterations >= 1
+	 * @invariant iterationNanos > 0
+	 * @invariant invocation - the number of the next call of the current benchmark
+	 */
+	private final int warmupIterations;
+	private final int measureIterations;
+	private final long iterationNanos;
+	private int sink;
+	private int invocation;
+
+	/**
+	 * Creates a harness.
+	 * @param warmupIterations - the number of iterations that are not measured
+	 * @param measureIterations - the number of measured iterations
+	 * @param iterationMillis - the time of an iteration in milliseconds
+	 */
+	public Harness(int warmupIterations, int measureIterations, long iterationMillis) {
+		this.warmupIterations = Math.max(0, warmupIterations);
+		this.measureIterations = Math.max(1, measureIterations);
+		this.iterationNanos = Math.max(1, iterationMillis) * 1_000_000L;
+	}
+
+	/**
+	 * Measures an operation.
+	 * @requires operation != null
+	 * @param benchmark - the name of the benchmark
+	 * @param position - the name of the position it runs on
+	 * @param operation - the operation to measure
+	 * @return the result of the measurement
+	 */
+	public Result measure(String benchmark, String position, Operation operation) {
+		invocation = 0;
+		int batch = calibrate(operation);
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(operation, batch);
+		}
+		double[] scores = new double[measureIterations];
+		for (int i = 0; i < measureIterations; i++) {
+			scores[i] = iteration(operation, batch);
+		}
+		return new Result(benchmark, position, scores);
+	}
+
+	/**
+	 * Finds the number of operations of a batch that takes about BATCH_NANOS.
+	 * @param operation - the operation to measure
+	 * @return the number of operations of a batch, at least 1
+	 */
+	private int calibrate(Operation operation) {
+		int batch = 1;
+		while (batch < (1 << 24)) {
+			long start = System.nanoTime();
+			for (int i = 0; i < batch; i++) {
+				sink += operation.run(invocation++);
+			}
+			if (System.nanoTime() - start >= BATCH_NANOS) {
+				break;
+			}
+			batch <<= 1;
+		}
+		published = sink;
+		return batch;
+	}
+
+	/**
+	 * Runs batches of the operation until the time of an iteration is over.
+	 * @param operation - the operation to measure
+	 * @param batch - the number of operations of a batch
+	 * @return the time per operation in nanoseconds
+	 */
+	private double iteration(Operation operation, int batch) {
+		long operations = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (int i = 0; i < batch; i++) {
+				sink += operation.run(invocation++);
+			}
+			operations += batch;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < iterationNanos);
+		published = sink;
+		return (double) elapsed / operations;
+	}
+
+	/**
+	 * The result of a benchmark: the time per operation of every measured iteration.
+	 */
+	public static final class Result {
+		private final String benchmark;
+		private final String position;
+		private final double[] scores;
+
+		/**
+		 * Creates a result.
+		 * @param benchmark - the name of the benchmark
+		 * @param position - the name of the position
+		 * @param scores - the nanoseconds per operation of every iteration
+		 */
+		Result(String benchmark, String position, double[] scores) {
+			this.benchmark = benchmark;
+			this.position = position;
+			this.scores = scores;
+		}
+
+		/**
+		 * Returns the name of the benchmark.
+		 * @return the name
+		 */
+		public String getBenchmark() {
+			return benchmark;
+		}
+
+		/**
+		 * Returns the name of the position the benchmark ran on.
+		 * @return the name of the position
+		 */
+		public String getPosition() {
+			return position;
+		}
+
+		/**
+		 * Returns the average time per operation.
+		 * @return the mean of the iterations in nanoseconds
+		 */
+		public double getScore() {
+			double sum = 0;
+			for (double score : scores) {
+				sum += score;
+			}
+			return sum / scores.length;
+		}
+
+		/**
+		 * Returns the standard deviation of the time per operation between the iterations.
+		 * @return the standard deviation in nanoseconds, 0 for a single iteration
+		 */
+		public double getError() {
+			if (scores.length < 2) {
+				return 0.0;
+			}
+			double mean = getScore();
+			double sum = 0;
+			for (double score : scores) {
+				sum += (score - mean) * (score - mean);
+			}
+			return Math.sqrt(sum / (scores.length - 1));
+		}
+
+		/**
+		 * Returns the result as a line of comma separated values.
+		 * @return benchmark,position,iterations,score,error,unit
+		 */
+		public String toCsv() {
+			return String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,ns/op", benchmark, position,
+					scores.length, getScore(), getError());
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%-36s %-8s avgt %3d %14.3f +- %12.3f ns/op",
+					benchmark, position, scores.length, getScore(), getError());
+		}
+	}
+}
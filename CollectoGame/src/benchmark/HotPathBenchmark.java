@@ -0,0 +1,255 @@
+package benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import collectogame.Board;
+import collectogame.BoardUndo;
+import collectogame.NaiveStrategy;
+import collectogame.SmartStrategy;
+import collectogame.Strategy;
+
+/**
+ * Benchmark suite of the hot paths of Board and the strategies, run with Harness on the
+ * positions of BenchmarkPosition. Every benchmark runs on the early, middle and late
+ * position, except initializeNewBoard which does not depend on a position.
+ *
+ * <p>Board caches the legal moves of a position, so the queries are measured twice: cold,
+ * on a copy of the position made just before the call, and cached, on a board that was
+ * asked before. The copy itself is measured as copyFrom, to subtract from the cold results.
+ * makeSingleMove and collectBall are undone after every call with mark and undo, which is
+ * measured as markUndo.
+ *
+ * <p>The project has no build file, so build and run it with the JDK:
+ * <pre>
+ * javac -d out $(find src -name '*.java' -not -path 'src/test/*')
+ * java -cp out benchmark.HotPathBenchmark [regex] [-wi n] [-i n] [-t ms] [-csv file]
+ * </pre>
+ * The regex selects the benchmarks by name, -wi, -i and -t set the warmup iterations, the
+ * measured iterations and the time of an iteration, and -csv appends the results to a file
+ * to compare releases.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class HotPathBenchmark {
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final int MEASURE_ITERATIONS = 5;
+	private static final long ITERATION_MILLIS = 500;
+
+	/**
+	 * A benchmark that runs on a position.
+	 */
+	@FunctionalInterface
+	private interface PositionBenchmark {
+		/**
+		 * Creates the operation of the benchmark for the given position.
+		 * @param position - the position to run on
+		 * @return the operation to measure
+		 */
+		Harness.Operation create(BenchmarkPosition position);
+	}
+
+	/**
+	 * @invariant names and benchmarks have the same length and order
+	 */
+	private final List<String> names = new ArrayList<String>();
+	private final List<PositionBenchmark> benchmarks = new ArrayList<PositionBenchmark>();
+
+	/**
+	 * Creates the suite with all benchmarks.
+	 */
+	public HotPathBenchmark() {
+		add("copyFrom", position -> {
+			Board board = new Board();
+			Board template = position.getBoard();
+			return i -> {
+				board.copyFrom(template);
+				return board.getField(i % (Board.DIM * Board.DIM)).convertTo();
+			};
+		});
+		add("markUndo", position -> {
+			Board board = position.getBoard().deepCopy();
+			BoardUndo undo = new BoardUndo();
+			return i -> {
+				board.mark(undo);
+				board.undo(undo);
+				return undo.size();
+			};
+		});
+		add("makeSingleMove", position -> {
+			Board board = position.getBoard().deepCopy();
+			BoardUndo undo = new BoardUndo();
+			int[] moves = position.getMoves();
+			return i -> {
+				board.mark(undo);
+				boolean moved = board.makeSingleMove(moves[i % moves.length]);
+				board.undo(undo);
+				return moved ? 1 : 0;
+			};
+		});
+		add("collectBall", position -> {
+			Board board = position.getAfterMove().deepCopy();
+			BoardUndo undo = new BoardUndo();
+			int[] collection = new int[7];
+			return i -> {
+				board.mark(undo);
+				int collected = board.collectBall(collection);
+				board.undo(undo);
+				return collected;
+			};
+		});
+		add("isValidSingleMove", position -> {
+			Board board = new Board();
+			Board template = position.getBoard();
+			return i -> {
+				board.copyFrom(template);
+				return board.isValidSingleMove(i % 28) ? 1 : 0;
+			};
+		});
+		add("isValidSingleMove:cached", position -> {
+			Board board = position.getBoard().deepCopy();
+			board.getValidSingleMoves();
+			return i -> board.isValidSingleMove(i % 28) ? 1 : 0;
+		});
+		add("isStillPossibleDoubleMove", position -> {
+			Board board = new Board();
+			Board template = position.getBoard();
+			return i -> {
+				board.copyFrom(template);
+				return board.isStillPossibleDoubleMove() ? 1 : 0;
+			};
+		});
+		add("isEndGame", position -> {
+			Board board = new Board();
+			Board template = position.getBoard();
+			return i -> {
+				board.copyFrom(template);
+				return board.isEndGame() ? 1 : 0;
+			};
+		});
+		add("isEndGame:cached", position -> {
+			Board board = position.getBoard().deepCopy();
+			board.isEndGame();
+			return i -> board.isEndGame() ? 1 : 0;
+		});
+		add("NaiveStrategy.determineMove", position ->
+				strategy(new NaiveStrategy(), position));
+		add("SmartStrategy.determineMove", position ->
+				strategy(new SmartStrategy(1, false), position));
+	}
+
+	/**
+	 * Adds a benchmark to the suite.
+	 * @param name - the name of the benchmark
+	 * @param benchmark - the benchmark
+	 */
+	private void add(String name, PositionBenchmark benchmark) {
+		names.add(name);
+		benchmarks.add(benchmark);
+	}
+
+	/**
+	 * Creates the operation that asks a strategy for a move on a fresh copy of the position.
+	 * @param strategy - the strategy to ask
+	 * @param position - the position to ask the move on
+	 * @return the operation to measure
+	 */
+	private static Harness.Operation strategy(Strategy strategy, BenchmarkPosition position) {
+		Board board = new Board();
+		Board template = position.getBoard();
+		int[] collection = position.getCollection();
+		return i -> {
+			board.copyFrom(template);
+			return strategy.determineMove(board, collection.clone())[0];
+		};
+	}
+
+	/**
+	 * Runs the benchmarks whose name matches the filter.
+	 * @param harness - the harness to measure with
+	 * @param filter - the pattern the names must contain
+	 * @return the results, in the order of the suite
+	 */
+	public List<Harness.Result> run(Harness harness, Pattern filter) {
+		List<Harness.Result> results = new ArrayList<Harness.Result>();
+		if (filter.matcher("initializeNewBoard").find()) {
+			Board board = new Board();
+			results.add(report(harness.measure("initializeNewBoard", "-", i -> {
+				board.initializeNewBoard();
+				return board.getField(i % (Board.DIM * Board.DIM)).convertTo();
+			})));
+		}
+		for (int b = 0; b < benchmarks.size(); b++) {
+			if (!filter.matcher(names.get(b)).find()) {
+				continue;
+			}
+			for (BenchmarkPosition position : BenchmarkPosition.values()) {
+				Harness.Operation operation = benchmarks.get(b).create(position);
+				results.add(report(harness.measure(names.get(b), position.name(), operation)));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Prints a result to the error stream, which is not silenced while benchmarks run.
+	 * @param result - the result to print
+	 * @return the result
+	 */
+	private static Harness.Result report(Harness.Result result) {
+		System.err.println(result);
+		return result;
+	}
+
+	/**
+	 * Runs the suite, see the class comment for the arguments.
+	 * @param args - the filter and the options
+	 * @throws IOException - if the CSV file can not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		String filter = "";
+		int warmup = WARMUP_ITERATIONS;
+		int iterations = MEASURE_ITERATIONS;
+		long millis = ITERATION_MILLIS;
+		String csv = null;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-wi":
+					warmup = Integer.parseInt(args[++i]);
+					break;
+				case "-i":
+					iterations = Integer.parseInt(args[++i]);
+					break;
+				case "-t":
+					millis = Long.parseLong(args[++i]);
+					break;
+				case "-csv":
+					csv = args[++i];
+					break;
+				default:
+					filter = args[i];
+			}
+		}
+
+		for (BenchmarkPosition position : BenchmarkPosition.values()) {
+			System.err.printf("%s: %d moves played, %d moves to make%n", position.name(),
+					position.getPlies(), position.getMoves().length);
+		}
+		System.err.printf("%-36s %-8s mode cnt %14s   %12s units%n", "Benchmark", "Position",
+				"Score", "Error");
+		List<Harness.Result> results = new HotPathBenchmark().run(
+				new Harness(warmup, iterations, millis), Pattern.compile(filter));
+
+		if (csv != null) {
+			try (PrintWriter writer = new PrintWriter(new FileWriter(csv, true))) {
+				for (Harness.Result result : results) {
+					writer.println(result.toCsv());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import collectogame.Ball;
+import collectogame.Board;
+import collectogame.SlideTable;
+
+/**
+ * Measures the time and the heap allocation of Board.makeSingleMove.
+ * Runs a number of warmup iterations followed by measured iterations, in the same
+ * way a JMH benchmark would, and reports the average per move.
+ * The program exits with status 1 if a move allocated any memory.
+ * Run it with the argument "table" to measure the moves with a SlideTable.
+ */
+public class MoveAllocationBenchmark {
+
+	// Board from the tests, so every run uses the same position
+	private static final String TEST_BOARD = "5~3~4~2~5~3~6~4~6~3~4~3~1~2~5~3~2~1~2~6~5~4~1~4~0~4"
+			+ "~1~4~5~6~2~1~5~6~2~3~1~5~4~6~5~3~6~3~6~2~1~2~1";
+
+	private static final int WARMUP_ITERATIONS = 5;
+	private static final int MEASURE_ITERATIONS = 10;
+	private static final int MOVES_PER_ITERATION = 10_000_000;
+
+	// The bytes the measurement itself may allocate per iteration, far less than 1 per move
+	private static final long MEASUREMENT_BYTES = 1024;
+
+	/**
+	 * Consumed result of the benchmark, so the JIT can not remove the moves.
+	 */
+	private static int blackhole;
+
+	/**
+	 * Creates the board that is used for the benchmark.
+	 * @return the board with 48 balls and the middle field empty
+	 */
+	public static Board createBoard() {
+		String[] splitted = TEST_BOARD.split("~");
+		Board board = new Board();
+		for (int i = 0; i < Board.DIM * Board.DIM; i++) {
+			board.setField(i, Ball.convertTo(Integer.valueOf(splitted[i])));
+		}
+		return board;
+	}
+
+	/**
+	 * Makes the given number of single moves on the board, cycling through all 28 moves.
+	 * No balls are collected, so the board never runs out of balls.
+	 * @param board - the board to make the moves on
+	 * @param moves - the number of moves
+	 */
+	private static void run(Board board, int moves) {
+		int made = 0;
+		for (int i = 0; i < moves; i++) {
+			if (board.makeSingleMove(i % 28)) {
+				made++;
+			}
+		}
+		blackhole += made;
+	}
+
+	/**
+	 * Runs the benchmark and prints the time and allocated bytes per move.
+	 * @param args - "table" to use the slide table for the moves
+	 */
+	public static void main(String[] args) {
+		boolean useTable = (args.length > 0) && args[0].equals("table");
+		if (useTable) {
+			Board.useSlideTable(new SlideTable());
+		}
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		Board board = createBoard();
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			run(board, MOVES_PER_ITERATION);
+		}
+
+		long totalBytes = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+			long bytesBefore = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			run(board, MOVES_PER_ITERATION);
+			long nanos = System.nanoTime() - start;
+			long bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+			totalBytes += bytes;
+			totalNanos += nanos;
+			System.out.printf("Iteration %d: %.2f ns/move, %d bytes%n",
+					i + 1, (double) nanos / MOVES_PER_ITERATION, bytes);
+		}
+
+		long moves = (long) MEASURE_ITERATIONS * MOVES_PER_ITERATION;
+		double bytesPerMove = (double) totalBytes / moves;
+		System.out.printf((useTable ? "makeSingleMove with table: " : "makeSingleMove: ") + "%.2f ns/move, %.6f bytes/move (%d)%n",
+				(double) totalNanos / moves, bytesPerMove, blackhole);
+		if (totalBytes / MEASURE_ITERATIONS > MEASUREMENT_BYTES) {
+			System.out.println("makeSingleMove allocates memory");
+			System.exit(1);
+		}
+	}
+}
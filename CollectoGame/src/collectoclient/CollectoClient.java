@@ -9,6 +9,7 @@ import collectogame.Board;
 import collectogame.ComputerPlayer;
 import collectogame.Game;
 import collectogame.HumanPlayer;
+import collectogame.MonteCarloStrategy;
 import collectogame.NaiveStrategy;
 import collectogame.OnlinePlayer;
 import collectogame.Player;
@@ -133,39 +134,76 @@ public class CollectoClient {
 			namePlayer2 = view.getString("What is second player's name?");
 			if	(view.getBoolean("Do you want bot to play the game ? " + namePlayer1
 					+ "(Type y/n for Bot/Human option)")) {
-				if	(view.getBoolean("Do you want SMART or NAIVE strategy to play the game ? "
-						+ "(Type y/n for SMART/NAIVE option)")) {
-					Strategy smart = new SmartStrategy();
-				    p1 = new ComputerPlayer(smart, namePlayer1, 0, this);
-				} else {
-					Strategy naive = new NaiveStrategy();
-				    p1 = new ComputerPlayer(naive, namePlayer1, 0, this);
-				}
+				p1 = new ComputerPlayer(chooseStrategy(), namePlayer1, 0, this);
 			} else {
 				p1 = new HumanPlayer(namePlayer1, 0, this);
 			}
 			
 			if	(view.getBoolean("Do you want bot to play the game ? " + namePlayer2
 					+ "(Type y/n for Bot/Human option)")) {
-				if	(view.getBoolean("Do you want SMART or NAIVE strategy to play the game ? "
-						+ "(Type y/n for SMART/NAIVE option)")) {
-					Strategy smart = new SmartStrategy();
-				    p2 = new ComputerPlayer(smart, namePlayer2, 1, this);
-				} else {
-					Strategy naive = new NaiveStrategy();
-				    p2 = new ComputerPlayer(naive, namePlayer2, 1, this);
-				}
+				p2 = new ComputerPlayer(chooseStrategy(), namePlayer2, 1, this);
 			} else {
 				p2 = new HumanPlayer(namePlayer1, 1, this);
 			}
 
 		    Game g = new Game(p1, p2, this);
 		    g.startOfflineGame();
+		    closePlayer(p1);
+		    closePlayer(p2);
 		    view.showMessage("See you later!");
 		}
 		
 	}
 	
+	/**
+	 * Stops the threads of the strategy of a bot.
+	 * @param player - the player, nothing is done if it is not a ComputerPlayer
+	 */
+	private static void closePlayer(Player player) {
+		if (player instanceof ComputerPlayer) {
+			((ComputerPlayer) player).close();
+		}
+	}
+	
+	/**
+	 * Forgets the player of the online game, after its bot is closed.
+	 * @ensures ourPlayer == null
+	 */
+	private void closeOurPlayer() {
+		closePlayer(this.ourPlayer);
+		this.ourPlayer = null;
+	}
+	
+	/**
+	 * Asks the user which strategy a bot plays with, and for MCTS its time per move, its
+	 * number of playouts per move and its number of threads.
+	 * The old answers y and n still choose SMART and NAIVE.
+	 * @return the chosen strategy
+	 */
+	private Strategy chooseStrategy() {
+		while (true) {
+			String answer = view.getString("Do you want SMART, NAIVE or MCTS strategy to play "
+					+ "the game ? (Type SMART/NAIVE/MCTS)");
+			if (answer == null) {
+				return new SmartStrategy();
+			}
+			answer = answer.trim().toUpperCase();
+			if (answer.equals("SMART") || answer.equals("Y")) {
+				return new SmartStrategy();
+			} else if (answer.equals("NAIVE") || answer.equals("N")) {
+				return new NaiveStrategy();
+			} else if (answer.equals("MCTS")) {
+				int time = view.getInt("How many milliseconds may MCTS think per move?");
+				int playouts = view.getInt("How many games may MCTS play out per move? "
+						+ "(Type 0 for as many as fit in the time)");
+				int threads = view.getInt("On how many threads may MCTS play out? (This "
+						+ "computer has " + Runtime.getRuntime().availableProcessors() + ")");
+				return new MonteCarloStrategy(time, playouts, threads);
+			}
+			view.showMessage("You can answer: (SMART / NAIVE / MCTS)!! Please try again");
+		}
+	}
+	
 	/**
 	 * Creates a new connection to a server by getting the IP and the port from the user.
 	 * @ensures connection is created or exception is thrown
@@ -241,7 +279,7 @@ public class CollectoClient {
 				this.inQueue = false;
 				this.game = null;
 				this.inGame = false;
-				this.ourPlayer = null;
+				closeOurPlayer();
 				this.ourTurn = -1;
 				if (!canCancel) {
 					view.shutDown();
@@ -395,7 +433,7 @@ public class CollectoClient {
 		
 		this.inQueue = false;
 		this.inGame = true;
-		this.ourPlayer = null;
+		closeOurPlayer();
 		for (int i = 1; i <= 49; i++) {
 			board.setField(i - 1, Ball.convertTo(Integer.valueOf(splitted[i])));
 		}
@@ -434,14 +472,8 @@ public class CollectoClient {
 						//For the first move the user is asked if 
 						//it wants to play this game with a bot
 						+ "(Type y/n for Bot/Human option)")) {
-					if	(view.getBoolean("Do you want SMART or NAIVE strategy to play the game ? "
-							+ "(Type y/n for SMART/NAIVE option)")) {
-						Strategy smart = new SmartStrategy();
-					    ourPlayer = new ComputerPlayer(smart, this.loggedInAs, this.ourTurn, this);
-					} else {
-						Strategy naive = new NaiveStrategy();
-					    ourPlayer = new ComputerPlayer(naive, this.loggedInAs, this.ourTurn, this);
-					}
+					ourPlayer = new ComputerPlayer(chooseStrategy(), this.loggedInAs, 
+							this.ourTurn, this);
 				} else {
 					ourPlayer = new HumanPlayer(this.loggedInAs, this.ourTurn, this);
 				}
@@ -521,7 +553,7 @@ public class CollectoClient {
 	public void handleGameOver(String serverReply) {
 		String[] names = serverReply.split(ProtocolMessages.DELIMITER);
 		this.inGame = false;
-		ourPlayer = null;
+		closeOurPlayer();
 		switch (names[1]) {
 			case ProtocolMessages.DISCONNECT:
 				view.showMessage("The other player has disconected, so the game is won by you");
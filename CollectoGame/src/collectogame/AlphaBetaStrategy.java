@@ -0,0 +1,447 @@
+package collectogame;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Strategy that searches the game tree with alpha-beta pruning.
+ * The search deepens one move at a time (iterative deepening) until the time budget is used
+ * or maxDepth is reached, and returns the best move of the deepest finished search. A search
+ * that runs out of time is stopped, and its result is only used for the moves that were
+ * searched completely. Every search orders the moves with the results of the previous one:
+ * the first moves are sorted on their values and deeper in the tree the last best move
+ * found at the same depth is tried first.
+ *
+ * <p>A position is valued as 100 times the score difference plus the difference in balls,
+ * seen from the player to move, so the score always counts more than the balls just like
+ * in Game.winner. A finished game gets an extra WIN_VALUE for the winner.
+ *
+ * <p>With a TranspositionTable the results of searched positions are stored under the hash
+ * of the board and the collection of the player to move. A position that is reached again,
+ * by another order of the moves or in the next deeper search, then uses the stored value
+ * if it was searched deep enough and tries the stored best move first.
+ *
+ * <p>determineMove keeps its state in a new Search, so one strategy can be used by several
+ * threads at the same time, also with one shared table.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class AlphaBetaStrategy implements Strategy {
+	/**
+	 * The default time budget of a move in milliseconds.
+	 */
+	public static final long DEFAULT_TIME_BUDGET = 500;
+
+	/**
+	 * The default maximum depth of the search, in moves.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 16;
+
+	/**
+	 * The value of a point of score, more than the difference of all balls.
+	 */
+	static final int SCORE_VALUE = 100;
+
+	/**
+	 * The extra value of a won game.
+	 */
+	static final int WIN_VALUE = 10000;
+
+	/**
+	 * A value larger than every value of a position.
+	 */
+	private static final int INFINITY = 1000000;
+
+	/**
+	 * The number of nodes between two checks of the clock, a power of 2.
+	 */
+	private static final int CHECK_INTERVAL = 256;
+
+	/**
+	 * The largest number of moves in a position: all double moves.
+	 */
+	private static final int MAX_MOVES = 28 * 28;
+
+	/**
+	 * @invariant name - the name of the strategy
+	 * @invariant timeBudget - the time a move may take in nanoseconds
+	 * @invariant maxDepth - the maximum depth of the search, at least 1
+	 * @invariant table - the table of searched positions, null to search without one
+	 * @invariant clock - gives the time in nanoseconds
+	 */
+	private String name = "AlphaBeta";
+	private final long timeBudget;
+	private final int maxDepth;
+	private final TranspositionTable table;
+	private final LongSupplier clock;
+
+	/**
+	 * Creates a strategy with the default time budget and depth.
+	 */
+	public AlphaBetaStrategy() {
+		this(DEFAULT_TIME_BUDGET, DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Creates a strategy with the given time budget and the default depth.
+	 * @param timeBudget - the time a move may take in milliseconds
+	 */
+	public AlphaBetaStrategy(long timeBudget) {
+		this(timeBudget, DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Creates a strategy with the given time budget and depth.
+	 * @requires timeBudget > 0 and maxDepth >= 1
+	 * @param timeBudget - the time a move may take in milliseconds
+	 * @param maxDepth - the maximum depth of the search in moves
+	 */
+	public AlphaBetaStrategy(long timeBudget, int maxDepth) {
+		this(timeBudget, maxDepth, null);
+	}
+
+	/**
+	 * Creates a strategy with the given time budget, depth and transposition table.
+	 * @requires timeBudget > 0 and maxDepth >= 1
+	 * @param timeBudget - the time a move may take in milliseconds
+	 * @param maxDepth - the maximum depth of the search in moves
+	 * @param table - the table of searched positions, null to search without one
+	 */
+	public AlphaBetaStrategy(long timeBudget, int maxDepth, TranspositionTable table) {
+		this(timeBudget, maxDepth, table, System::nanoTime);
+	}
+
+	/**
+	 * Creates a strategy with the given time budget, depth, transposition table and clock.
+	 * @requires timeBudget > 0 and maxDepth >= 1 and clock != null
+	 * @param timeBudget - the time a move may take in milliseconds
+	 * @param maxDepth - the maximum depth of the search in moves
+	 * @param table - the table of searched positions, null to search without one
+	 * @param clock - gives the time in nanoseconds, like System.nanoTime
+	 */
+	public AlphaBetaStrategy(long timeBudget, int maxDepth, TranspositionTable table,
+			LongSupplier clock) {
+		this.timeBudget = Math.max(1, timeBudget) * 1000000L;
+		this.maxDepth = Math.max(1, Math.min(maxDepth, TranspositionTable.MAX_DEPTH - 1));
+		this.table = table;
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the transposition table of this strategy, for example for its statistics.
+	 * @return the table, or null if the strategy searches without one
+	 */
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public int[] determineMove(Board board, int[] collection) {
+		if (table != null) {
+			table.newSearch();
+		}
+		return new Search(board, collection).run();
+	}
+
+	/**
+	 * Returns a move as the choice of determineMove.
+	 * @param move - the move, a single move or 28 + move1 * 28 + move2 for a double move
+	 * @return the single or double move
+	 */
+	static int[] toChoice(int move) {
+		if (move < 28) {
+			return new int[] {move};
+		}
+		return new int[] {(move - 28) / 28, (move - 28) % 28};
+	}
+
+	/**
+	 * Calculates the value of the collections for a player.
+	 * @param collections - the collections of both players
+	 * @param side - the player, 0 or 1
+	 * @return the score difference times SCORE_VALUE plus the difference in balls
+	 */
+	static int evaluate(int[][] collections, int side) {
+		int[] mine = collections[side];
+		int[] other = collections[1 - side];
+		int score = 0;
+		int balls = 0;
+		for (int colour = 1; colour < 7; colour++) {
+			score += (mine[colour] / 3) - (other[colour] / 3);
+			balls += mine[colour] - other[colour];
+		}
+		return score * SCORE_VALUE + balls;
+	}
+
+	/**
+	 * The state of one call of determineMove.
+	 * The search is done on a copy of the board, the moves are taken back with undo.
+	 * Player 0 is the player to move in the root, player 1 the opponent.
+	 */
+	private final class Search {
+		/**
+		 * @invariant board - the copy of the board the moves are made on
+		 * @invariant undo - the undo stack of board, one frame per depth
+		 * @invariant collections - the collections of both players in the current position
+		 * @invariant saved - the collection before the move at every depth
+		 * @invariant moves - the move list of every depth
+		 * @invariant secondMoves - the valid second moves of every depth
+		 * @invariant bestMoves - the last best move found at every depth, tried first
+		 * @invariant deadline - the time of the clock at which the search stops
+		 * @invariant aborted - true if the time was up, all values after it are invalid
+		 * @invariant depthLimited - true if the current search stopped at a position that
+		 * was not the end of the game
+		 */
+		private final Board board;
+		private final BoardUndo undo;
+		private final int[][] collections = new int[2][7];
+		private final int[][] saved;
+		private final int[][] moves;
+		private final int[][] secondMoves;
+		private final int[] bestMoves;
+		private final long deadline;
+		private long nodes;
+		private boolean aborted;
+		private boolean depthLimited;
+
+		/**
+		 * Creates the search for a position.
+		 * The collection of the opponent is what is left of the 8 balls of every color.
+		 * @param position - the current board, which is not changed
+		 * @param collection - the collection of the player to move
+		 */
+		Search(Board position, int[] collection) {
+			this.deadline = clock.getAsLong() + timeBudget;
+			this.board = position.deepCopy();
+			this.undo = new BoardUndo(maxDepth + 1);
+			this.saved = new int[maxDepth + 1][7];
+			this.moves = new int[maxDepth + 1][MAX_MOVES];
+			this.secondMoves = new int[maxDepth + 1][28];
+			this.bestMoves = new int[maxDepth + 1];
+			for (int ply = 0; ply <= maxDepth; ply++) {
+				bestMoves[ply] = -1;
+			}
+			for (int colour = 1; colour < 7; colour++) {
+				int onBoard = Long.bitCount(board.getColourMask(Ball.convertTo(colour)));
+				collections[0][colour] = collection[colour];
+				collections[1][colour] = BoardGenerator.BALLS_PER_COLOUR - onBoard
+						- collection[colour];
+			}
+		}
+
+		/**
+		 * Searches deeper and deeper until the time is up, maxDepth is reached or the
+		 * whole game was searched.
+		 * @return the best move found, or no move if there is none
+		 */
+		int[] run() {
+			int count = generateMoves(0, -1);
+			if (count == 0) {
+				return new int[0];
+			}
+			int[] rootMoves = new int[count];
+			System.arraycopy(moves[0], 0, rootMoves, 0, count);
+			int[] values = new int[count];
+			int bestMove = rootMoves[0];
+			for (int depth = 1; depth <= maxDepth; depth++) {
+				depthLimited = false;
+				int alpha = -INFINITY;
+				int iterationBest = -1;
+				for (int i = 0; i < count; i++) {
+					makeMove(rootMoves[i], 0, 0);
+					int value = -negamax(depth - 1, 1, 1, -INFINITY, -alpha);
+					undoMove(0, 0);
+					if (aborted) {
+						break;
+					}
+					values[i] = value;
+					if (value > alpha) {
+						alpha = value;
+						iterationBest = rootMoves[i];
+					}
+				}
+				if (iterationBest != -1) {
+					// the best move of the last search is searched first, so the move
+					// of a stopped search was compared with it at this depth
+					bestMove = iterationBest;
+				}
+				if (aborted || !depthLimited) {
+					break;
+				}
+				sortMoves(rootMoves, values, count);
+			}
+			return toChoice(bestMove);
+		}
+
+		/**
+		 * Searches a position with alpha-beta pruning, in the negamax form.
+		 * @param depth - the number of moves left to search
+		 * @param ply - the number of moves made since the root
+		 * @param side - the player to move
+		 * @param alpha - the value the player to move already has
+		 * @param beta - the value the opponent already has
+		 * @return the value of the position for the player to move, or 0 if aborted
+		 */
+		private int negamax(int depth, int ply, int side, int alpha, int beta) {
+			nodes++;
+			if (((nodes & (CHECK_INTERVAL - 1)) == 0) && (clock.getAsLong() > deadline)) {
+				aborted = true;
+			}
+			if (aborted) {
+				return 0;
+			}
+			if (depth == 0) {
+				depthLimited = true;
+				return evaluate(collections, side);
+			}
+			long key = 0L;
+			int first = bestMoves[ply];
+			if (table != null) {
+				key = board.getHash() ^ Zobrist.hash(collections[side]);
+				long entry = table.probe(key);
+				if (entry != 0L) {
+					int value = TranspositionTable.getValue(entry);
+					int bound = TranspositionTable.getBound(entry);
+					if ((TranspositionTable.getDepth(entry) >= depth) 
+							&& ((bound == TranspositionTable.EXACT)
+							|| ((bound == TranspositionTable.LOWER) && (value >= beta))
+							|| ((bound == TranspositionTable.UPPER) && (value <= alpha)))) {
+						// the stored search may have stopped before the end of the game
+						depthLimited = true;
+						return value;
+					}
+					if (TranspositionTable.getMove(entry) != TranspositionTable.NO_MOVE) {
+						first = TranspositionTable.getMove(entry);
+					}
+				}
+			}
+			int count = generateMoves(ply, first);
+			if (count == 0) {
+				int value = evaluate(collections, side);
+				value = (value > 0) ? value + WIN_VALUE : ((value < 0) ? value - WIN_VALUE : 0);
+				if (table != null) {
+					table.store(key, TranspositionTable.MAX_DEPTH, TranspositionTable.EXACT, 
+							value, TranspositionTable.NO_MOVE);
+				}
+				return value;
+			}
+			int alphaStart = alpha;
+			int[] list = moves[ply];
+			int best = -INFINITY;
+			int bestMove = list[0];
+			for (int i = 0; i < count; i++) {
+				makeMove(list[i], side, ply);
+				int value = -negamax(depth - 1, ply + 1, 1 - side, -beta, -alpha);
+				undoMove(side, ply);
+				if (aborted) {
+					return 0;
+				}
+				if (value > best) {
+					best = value;
+					bestMove = list[i];
+					if (value > alpha) {
+						alpha = value;
+						if (alpha >= beta) {
+							break;
+						}
+					}
+				}
+			}
+			bestMoves[ply] = bestMove;
+			if (table != null) {
+				int bound = (best <= alphaStart) ? TranspositionTable.UPPER 
+						: ((best >= beta) ? TranspositionTable.LOWER : TranspositionTable.EXACT);
+				table.store(key, depth, bound, best, bestMove);
+			}
+			return best;
+		}
+
+		/**
+		 * Fills the move list of a depth with the valid moves of the board, with the given
+		 * move first if it is valid.
+		 * @param ply - the depth
+		 * @param first - the move to try first, or -1
+		 * @return the number of moves, 0 if the game is over
+		 */
+		private int generateMoves(int ply, int first) {
+			int[] list = moves[ply];
+			int count = 0;
+			int singleMoves = board.getValidSingleMoves();
+			if (singleMoves != 0) {
+				for (int rest = singleMoves; rest != 0; rest &= rest - 1) {
+					list[count++] = Integer.numberOfTrailingZeros(rest);
+				}
+			} else {
+				int[] masks = secondMoves[ply];
+				if (board.getValidDoubleMoves(masks) > 0) {
+					for (int move1 = 0; move1 < 28; move1++) {
+						for (int rest = masks[move1]; rest != 0; rest &= rest - 1) {
+							list[count++] = 28 + move1 * 28 + Integer.numberOfTrailingZeros(rest);
+						}
+					}
+				}
+			}
+			for (int i = 1; i < count; i++) {
+				if (list[i] == first) {
+					list[i] = list[0];
+					list[0] = first;
+					break;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Makes a move and adds the collected balls to the collection of the player.
+		 * @param move - the move, see toChoice
+		 * @param side - the player who makes the move
+		 * @param ply - the depth, where the collection is saved
+		 */
+		private void makeMove(int move, int side, int ply) {
+			System.arraycopy(collections[side], 0, saved[ply], 0, 7);
+			board.mark(undo);
+			if (move < 28) {
+				board.makeSingleMove(move);
+			} else {
+				board.makeSingleMove((move - 28) / 28);
+				board.makeSingleMove((move - 28) % 28);
+			}
+			board.collectBall(collections[side]);
+		}
+
+		/**
+		 * Takes back the last move of makeMove.
+		 * @param side - the player who made the move
+		 * @param ply - the depth of the move
+		 */
+		private void undoMove(int side, int ply) {
+			board.undo(undo);
+			System.arraycopy(saved[ply], 0, collections[side], 0, 7);
+		}
+
+		/**
+		 * Sorts the moves on their values, highest first. Equal moves keep their order.
+		 * @param list - the moves
+		 * @param values - the value of every move
+		 * @param count - the number of moves
+		 */
+		private void sortMoves(int[] list, int[] values, int count) {
+			for (int i = 1; i < count; i++) {
+				int move = list[i];
+				int value = values[i];
+				int j = i - 1;
+				while ((j >= 0) && (values[j] < value)) {
+					list[j + 1] = list[j];
+					values[j + 1] = values[j];
+					j--;
+				}
+				list[j + 1] = move;
+				values[j + 1] = value;
+			}
+		}
+	}
+}
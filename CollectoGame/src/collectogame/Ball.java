@@ -2,7 +2,21 @@ package collectogame;
 
 public enum Ball {
     
-    BLUE, YELLOW, RED, ORANGE, PURPLE, GREEN, EMPTY;
+    BLUE(1), YELLOW(2), RED(3), ORANGE(4), PURPLE(5), GREEN(6), EMPTY(0);
+
+    /**
+     * The balls ordered by their number value, so BY_NUMBER[ball.convertTo()] == ball.
+     */
+    private static final Ball[] BY_NUMBER = {EMPTY, BLUE, YELLOW, RED, ORANGE, PURPLE, GREEN};
+
+    /**
+     * @invariant number is between 0 (EMPTY) and 6
+     */
+    private final int number;
+
+    Ball(int number) {
+        this.number = number;
+    }
 
     /**
      * Converts Ball color to the integer corresponding to it.
@@ -10,21 +24,7 @@ public enum Ball {
      * @return The number value of Ball corresponding to its color
      */
     public int convertTo() {
-        if (this == BLUE) {
-            return 1;
-        } else if (this == YELLOW) {
-            return 2;
-        } else if (this == RED) {
-            return 3;
-        } else if (this == ORANGE) {
-            return 4;
-        } else if (this == PURPLE) {
-            return 5;
-        } else if (this == GREEN) {
-            return 6;
-        } else {
-            return 0;
-        }
+        return number;
     }
     
     /**
@@ -34,20 +34,9 @@ public enum Ball {
      * @return The number of its color
      */
     public static Ball convertTo(int x) {
-        if (x == 1) {
-            return Ball.BLUE;
-        } else if (x == 2) {
-            return Ball.YELLOW;
-        } else if (x == 3) {
-            return Ball.RED;
-        } else if (x == 4) {
-            return Ball.ORANGE;
-        } else if (x == 5) {
-            return Ball.PURPLE;
-        } else if (x == 6) {
-            return Ball.GREEN;
-        } else {
-            return Ball.EMPTY;
+        if ((x >= 1) && (x <= 6)) {
+            return BY_NUMBER[x];
         }
+        return Ball.EMPTY;
     }
 }
@@ -0,0 +1,144 @@
+package collectogame;
+
+/**
+ * Bit mask helpers for the packed representation of the Collecto board.
+ * Field i of the board (see Board.index) is bit i of a long, so every set of
+ * fields fits in the lower DIM * DIM = 49 bits of a single long.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class BitBoard {
+	/**
+	 * The mask with all DIM * DIM fields of the board set.
+	 */
+	public static final long ALL_FIELDS = (1L << (Board.DIM * Board.DIM)) - 1;
+
+	/**
+	 * The mask of the fields in column 0 and in column DIM - 1.
+	 */
+	public static final long FIRST_COLUMN = columnMask(0);
+	public static final long LAST_COLUMN = columnMask(Board.DIM - 1);
+
+	/**
+	 * The number of symmetries of the square board: the identity, the rotations by 90, 180
+	 * and 270 degrees, the mirrors in the vertical and horizontal middle line and the
+	 * mirrors in the two diagonals.
+	 */
+	public static final int SYMMETRIES = 8;
+
+	/**
+	 * SYMMETRY_FIELDS[s][i] is the field that field i is moved to by symmetry s.
+	 */
+	private static final int[][] SYMMETRY_FIELDS = createSymmetryFields();
+
+	private BitBoard() {
+	}
+
+	/**
+	 * Creates the SYMMETRY_FIELDS table.
+	 * @return the field every field is moved to, for every symmetry
+	 */
+	private static int[][] createSymmetryFields() {
+		int last = Board.DIM - 1;
+		int[][] symmetryFields = new int[SYMMETRIES][Board.DIM * Board.DIM];
+		for (int row = 0; row < Board.DIM; row++) {
+			for (int col = 0; col < Board.DIM; col++) {
+				int[] rows = {row, col, last - row, last - col, row, last - row, col, last - col};
+				int[] cols = {col, last - row, last - col, row, last - col, col, row, last - row};
+				for (int s = 0; s < SYMMETRIES; s++) {
+					symmetryFields[s][row * Board.DIM + col] = rows[s] * Board.DIM + cols[s];
+				}
+			}
+		}
+		return symmetryFields;
+	}
+
+	/**
+	 * Returns the mask with only the given field set.
+	 * @requires index to be a valid field
+	 * @param index - the index of the field
+	 * @return the mask of the field
+	 */
+	public static long bit(int index) {
+		return 1L << index;
+	}
+
+	/**
+	 * Returns the mask of all fields in the given row.
+	 * @requires row is between 0 and DIM
+	 * @param row - the row number
+	 * @return the mask of the row
+	 */
+	public static long rowMask(int row) {
+		return ((1L << Board.DIM) - 1) << (row * Board.DIM);
+	}
+
+	/**
+	 * Returns the mask of all fields in the given column.
+	 * @requires col is between 0 and DIM
+	 * @param col - the column number
+	 * @return the mask of the column
+	 */
+	public static long columnMask(int col) {
+		long mask = 0L;
+		for (int row = 0; row < Board.DIM; row++) {
+			mask |= bit(row * Board.DIM + col);
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the field that the given field is moved to by a symmetry of the board.
+	 * Symmetry 0 is the identity and the middle field is never moved.
+	 * @requires symmetry is between 0 and SYMMETRIES and index to be a valid field
+	 * @param symmetry - the number of the symmetry
+	 * @param index - the index of the field
+	 * @return the index of the moved field
+	 */
+	public static int transform(int symmetry, int index) {
+		return SYMMETRY_FIELDS[symmetry][index];
+	}
+
+	/**
+	 * Returns the mask with every field moved by a symmetry of the board.
+	 * @requires symmetry is between 0 and SYMMETRIES
+	 * @ensures Long.bitCount(result) == Long.bitCount(mask & ALL_FIELDS)
+	 * @param symmetry - the number of the symmetry
+	 * @param mask - the set of fields
+	 * @return the mask of the moved fields
+	 */
+	public static long transform(int symmetry, long mask) {
+		int[] symmetryFields = SYMMETRY_FIELDS[symmetry];
+		long result = 0L;
+		for (long rest = mask & ALL_FIELDS; rest != 0; rest &= rest - 1) {
+			result |= bit(symmetryFields[Long.numberOfTrailingZeros(rest)]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the fields that are horizontally or vertically next to a field of the mask.
+	 * @param mask - the set of fields
+	 * @ensures the result only contains fields of the board
+	 * @return the mask of the neighbouring fields
+	 */
+	public static long neighbours(long mask) {
+		return ((mask << 1) & ~FIRST_COLUMN & ALL_FIELDS)
+				| ((mask >>> 1) & ~LAST_COLUMN)
+				| ((mask << Board.DIM) & ALL_FIELDS)
+				| (mask >>> Board.DIM);
+	}
+
+	/**
+	 * Returns the fields of the mask that have a neighbour which is also in the mask.
+	 * Given the mask of one color, these are exactly the balls that can be collected.
+	 * @param mask - the set of fields holding balls of one color
+	 * @ensures (result & ~mask) == 0
+	 * @return the mask of the fields that are part of an adjacent pair
+	 */
+	public static long pairs(long mask) {
+		long right = mask & (mask >>> 1) & ~LAST_COLUMN;
+		long down = mask & (mask >>> Board.DIM);
+		return right | (right << 1) | down | (down << Board.DIM);
+	}
+}
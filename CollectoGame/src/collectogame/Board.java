@@ -2,26 +2,116 @@ package collectogame;
 
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 
 
 /**
  * Board for the Collecto game. Team Yellow 1.3's Module2 final project.
  *
+ * <p>A Board is not safe for concurrent use, not even for queries: the isValid methods
+ * try the move on the board itself and undo it, and the legal moves, the canonical hash
+ * and the text are cached on the first query. A thread that reads a board another thread
+ * uses needs its own copy (see deepCopy and copyFrom); copying only reads the board, so
+ * several threads may copy a board that is not changed at the same time.
+ *
  * @author Vo Nhat Minh and Jesse Snoijer
  */
 public class Board {
     public static final int DIM = 7;
     /**
      * The DIM by DIM fields of the Collecto board. See NUMBERING for the
-     * coding of the fields.
+     * coding of the fields. Every field holds the number of its ball (see Ball.convertTo),
+     * where 0 is Ball.EMPTY.
      * @invariant there are always DIM*DIM fields
-     * @invariant all fields are either Ball.EMPTY, Ball.BLUE, Ball.YELLOW, 
-     * Ball.RED, Ball.ORANGE, Ball.PURPLE, Ball.GREEN;
+     * @invariant all fields are between 0 and 6
+     */
+    private byte[] fields;
+
+    /**
+     * The packed version of fields: bit i of colours[c] is set iff field i holds a ball 
+     * with number c. colours[0] is not used, the empty fields are the ones not in any mask.
+     * @invariant colours.length == 7
+     * @invariant the masks of different colors never share a field
+     */
+    private long[] colours;
+
+    /**
+     * The balls that are part of a pair of adjacent balls with the same color.
+     * pairs[c] == BitBoard.pairs(colours[c]) and collectable is the union of all pairs.
+     * They are updated only for the colors whose mask changed, so after a move only the 
+     * colors in the moved row or column are looked at.
+     * @invariant pairs.length == 7
+     * @invariant collectable == pairs[1] | pairs[2] | ... | pairs[6]
+     */
+    private long[] pairs;
+    private long collectable;
+
+    /**
+     * The Zobrist hash of the position, the xor of Zobrist.key(i, fields[i]) of all fields.
+     * It is updated with every ball that is set, moved or collected.
+     * canonicalHash is the smallest hash of the 8 symmetric positions, calculated when it
+     * is asked for and forgotten when the position changes.
+     * @invariant hash == Zobrist.hash(colours, 0)
+     */
+    private long hash;
+    private long canonicalHash;
+    private boolean canonicalKnown;
+
+    /**
+     * The text of toString, kept until the position changes.
+     */
+    private String rendered;
+
+    /**
+     * The fields of the row or column of every move, ordered from the side the balls 
+     * move to. So MOVE_LINES[indice][0] is the field the first ball ends up in.
+     */
+    static final int[][] MOVE_LINES = createMoveLines();
+
+    /**
+     * The optional lookup table used by makeSingleMove, null to shift the balls directly.
+     */
+    private static volatile SlideTable slideTable = null;
+
+    /**
+     * The undo stack used to try moves on this board in the isValid methods, 
+     * created when it is needed for the first time. It is shared by all queries, which is
+     * one of the reasons a Board is not safe for concurrent use.
+     */
+    private BoardUndo probe;
+
+    /**
+     * The legal moves of the current position, calculated when they are asked for the
+     * first time and forgotten as soon as the position changes.
+     * singleMoves is the mask of getValidSingleMoves, doubleMoves the number of valid
+     * double moves with their masks in secondMoves, or SOME if only the existence of a
+     * double move is known. Both are UNKNOWN if they were not calculated yet.
+     * secondWrites counts the calculations that wrote secondMoves, so forEachValidDoubleMove
+     * can tell if its visitor calculated the moves of another position on this board.
+     * @invariant secondMoves holds the masks of getValidDoubleMoves if doubleMoves >= 0
+     */
+    private int singleMoves;
+    private int doubleMoves;
+    private int[] secondMoves;
+    private int secondWrites;
+
+    /**
+     * Results of a single move, see slide.
+     */
+    private static final int NOT_POSSIBLE = -1;
+    private static final int UNCHANGED = 0;
+    private static final int CHANGED = 1;
+
+    /**
+     * The mask with all 28 moves set.
+     */
+    public static final int ALL_MOVES = (1 << 28) - 1;
+
+    /**
+     * States of the cached legal moves.
      */
-    private Ball[] fields;
+    private static final int UNKNOWN = -1;
+    private static final int SOME = -2;
 
     // -- Constructors -----------------------------------------------
 
@@ -30,14 +120,52 @@ public class Board {
      * @ensures at player can do least 1 possible sing move
      */
     public Board() {
-    	fields = new Ball[DIM * DIM];
-    	for (int i = 0; i < DIM; i++) {
-    		for (int j = 0; j < DIM; j++) {
-				setField(index(i, j), Ball.EMPTY);
-			}
+    	fields = new byte[DIM * DIM];
+    	colours = new long[7];
+    	pairs = new long[7];
+    	collectable = 0L;
+    	hash = 0L;
+    	singleMoves = UNKNOWN;
+    	doubleMoves = UNKNOWN;
+    }
+
+    /**
+     * Creates a copy of the given board.
+     * @param board - the board to copy
+     */
+    private Board(Board board) {
+    	fields = board.fields.clone();
+    	colours = board.colours.clone();
+    	pairs = board.pairs.clone();
+    	collectable = board.collectable;
+    	hash = board.hash;
+    	canonicalHash = board.canonicalHash;
+    	canonicalKnown = board.canonicalKnown;
+    	rendered = board.rendered;
+    	singleMoves = board.singleMoves;
+    	doubleMoves = board.doubleMoves;
+    	if (board.doubleMoves >= 0) {
+    		secondMoves = board.secondMoves.clone();
     	}
     }
 
+    /**
+     * Creates the MOVE_LINES table for the 28 moves (see toString).
+     * @return the fields of every move ordered from the side the balls move to
+     */
+    private static int[][] createMoveLines() {
+    	int[][] lines = new int[4 * DIM][DIM];
+    	for (int line = 0; line < DIM; line++) {
+    		for (int k = 0; k < DIM; k++) {
+    			lines[line][k] = line * DIM + k;
+    			lines[line + DIM][k] = line * DIM + (DIM - 1 - k);
+    			lines[line + 2 * DIM][k] = k * DIM + line;
+    			lines[line + 3 * DIM][k] = (DIM - 1 - k) * DIM + line;
+    		}
+    	}
+    	return lines;
+    }
+
     // -- Methods -----------------------------------------------
     
     /**
@@ -91,7 +219,20 @@ public class Board {
      * @param b the ball to be placed
      */
     public void setField(int i, Ball b) {
-    	fields[i] = b;
+    	int oldNumber = fields[i];
+    	int newNumber = b.convertTo();
+    	long bit = BitBoard.bit(i);
+    	if (oldNumber != 0) {
+    		colours[oldNumber] &= ~bit;
+    		updatePairs(oldNumber);
+    	}
+    	if (newNumber != 0) {
+    		colours[newNumber] |= bit;
+    		updatePairs(newNumber);
+    	}
+    	fields[i] = (byte) newNumber;
+    	hash ^= Zobrist.KEYS[i * 7 + oldNumber] ^ Zobrist.KEYS[i * 7 + newNumber];
+    	positionChanged();
     }
 
     /**
@@ -104,7 +245,7 @@ public class Board {
      * @param b the Ball to be placed
      */
     public void setField(int row, int col, Ball b) {
-    	fields[index(row, col)] = b;
+    	setField(index(row, col), b);
     }
     
     /**
@@ -116,7 +257,7 @@ public class Board {
      */
     public Ball getField(int i) {
     	if (isField(i)) {
-    		return fields[i];
+    		return Ball.convertTo(fields[i]);
     	}
         return null;
     }
@@ -143,12 +284,156 @@ public class Board {
      * @return the copy version of the board
      */
     public Board deepCopy() {
-    	Board copy = new Board();
-    	for (int i = 0; i < DIM * DIM; i++) {
-    		copy.setField(i, this.getField(i));
+        return new Board(this);
+    }
+
+    /**
+     * Makes this board a copy of the given board, reusing the arrays of this board.
+     * @requires board != null
+     * @ensures this.equals(board)
+     * @param board - the board to copy
+     */
+    public void copyFrom(Board board) {
+    	System.arraycopy(board.fields, 0, fields, 0, fields.length);
+    	System.arraycopy(board.colours, 0, colours, 0, colours.length);
+    	System.arraycopy(board.pairs, 0, pairs, 0, pairs.length);
+    	collectable = board.collectable;
+    	hash = board.hash;
+    	canonicalHash = board.canonicalHash;
+    	canonicalKnown = board.canonicalKnown;
+    	rendered = board.rendered;
+    	singleMoves = board.singleMoves;
+    	doubleMoves = board.doubleMoves;
+    	if (board.doubleMoves >= 0) {
+    		if (secondMoves == null) {
+    			secondMoves = new int[28];
+    		}
+    		secondWrites++;
+    		System.arraycopy(board.secondMoves, 0, secondMoves, 0, 28);
+    	}
+    }
+
+    /**
+     * Returns the packed mask of all fields holding a ball of the given color.
+     * @param ball - the color of the balls
+     * @ensures the result is 0 for Ball.EMPTY
+     * @return the mask of the fields with this color (see BitBoard)
+     */
+    public long getColourMask(Ball ball) {
+    	if (ball == Ball.EMPTY) {
+    		return 0L;
+    	}
+    	return colours[ball.convertTo()];
+    }
+
+    /**
+     * Returns the packed mask of all fields that are part of a pair of adjacent balls 
+     * with the same color, so the balls that collectBall() would remove.
+     * @ensures result == 0 iff isCollectableBoard() == false
+     * @return the mask of the collectable fields (see BitBoard)
+     */
+    public long getCollectableMask() {
+    	return collectable;
+    }
 
+    /**
+     * Returns the Zobrist hash of the position (see Zobrist).
+     * Boards with the same balls on the same fields have the same hash, no matter which
+     * moves led to them.
+     * @ensures result == Zobrist.hash(colour masks of this board, 0)
+     * @return the 64 bit hash of the position
+     */
+    public long getHash() {
+    	return hash;
+    }
+
+    /**
+     * Returns the hash of the position that is the same for all 8 symmetric positions,
+     * so for the board turned or mirrored in any way. It is the smallest of their hashes.
+     * @ensures result == getHash() of the symmetric position with the smallest hash
+     * @return the 64 bit canonical hash of the position
+     */
+    public long getCanonicalHash() {
+    	if (!canonicalKnown) {
+    		long smallest = hash;
+    		for (int symmetry = 1; symmetry < BitBoard.SYMMETRIES; symmetry++) {
+    			smallest = Math.min(smallest, Zobrist.hash(colours, symmetry));
+    		}
+    		canonicalHash = smallest;
+    		canonicalKnown = true;
+    	}
+    	return canonicalHash;
+    }
+
+    /**
+     * Checks if the given object is a board with the same balls on the same fields.
+     * @param object - the object to compare with
+     * @return true if object is a Board with the same position
+     */
+    @Override
+    public boolean equals(Object object) {
+    	if (this == object) {
+    		return true;
+    	}
+    	if (!(object instanceof Board)) {
+    		return false;
+    	}
+    	Board other = (Board) object;
+    	if (hash != other.hash) {
+    		return false;
+    	}
+    	for (int colour = 1; colour < colours.length; colour++) {
+    		if (colours[colour] != other.colours[colour]) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
+    /**
+     * Returns the hash code of the position, taken from the Zobrist hash.
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+    	return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Recalculates the pairs of one color after its mask changed.
+     * @requires colour is between 1 and 6
+     * @ensures pairs[colour] == BitBoard.pairs(colours[colour])
+     * @param colour - the number of the color (see Ball.convertTo)
+     */
+    private void updatePairs(int colour) {
+    	long newPairs = BitBoard.pairs(colours[colour]);
+    	// the pairs of different colors never share a field
+    	collectable ^= pairs[colour] ^ newPairs;
+    	pairs[colour] = newPairs;
+    }
+
+    /**
+     * Recalculates the pairs of all colors in the given set.
+     * @param touched - the set of color numbers, bit c is set for color c (bit 0 is ignored)
+     */
+    private void updateTouchedPairs(int touched) {
+    	if (touched != 0) {
+    		positionChanged();
     	}
-        return copy;
+    	for (int rest = touched & ~1; rest != 0; rest &= rest - 1) {
+    		updatePairs(Integer.numberOfTrailingZeros(rest));
+    	}
+    }
+
+    /**
+     * Forgets the cached legal moves, called whenever a field changes.
+     * @ensures the legal moves are calculated again when they are asked for
+     */
+    private void positionChanged() {
+    	singleMoves = UNKNOWN;
+    	doubleMoves = UNKNOWN;
+    	canonicalKnown = false;
+    	rendered = null;
     }
     
     /**
@@ -175,81 +460,21 @@ public class Board {
      * @return true if it is a valid position
      */
     public boolean isValidPosition(int row, int col, Ball ball) {
-    	Ball compareBall;
-    	if (isField(row - 1, col)) {
-    		compareBall = getField(row - 1, col);
-    		if ((compareBall != Ball.EMPTY) && (compareBall == ball)) {
-    			return false;
-    		}
-    	}
-    	if (isField(row, col - 1)) {
-    		compareBall = getField(row, col - 1);
-    		if ((compareBall != Ball.EMPTY) && (compareBall == ball)) {
-    			return false;
-    		}
-    	}
-    	if (isField(row + 1, col)) {
-    		compareBall = getField(row + 1, col);
-    		if ((compareBall != Ball.EMPTY) && (compareBall == ball)) {
-    			return false;
-    		}
-    	}
-    	if (isField(row, col + 1)) {
-    		compareBall = getField(row, col + 1);
-    		if ((compareBall != Ball.EMPTY) && (compareBall == ball)) {
-    			return false;
-    		}
+    	if ((ball == null) || (ball == Ball.EMPTY) || !isField(row, col)) {
+    		return true;
     	}
-    	return true;
+    	long neighbours = BitBoard.neighbours(BitBoard.bit(index(row, col)));
+    	return (neighbours & colours[ball.convertTo()]) == 0;
     }
     
     /**
      * Initialize a new random board.
-     * @requires \forall(getField(index)) == null;
+     * The fields are filled by a BoardGenerator, see there for the way the balls are drawn.
      * @ensures isValidBoard() == true;
+     * @ensures isStillPossibleSingleMove() == true;
      */
     public void initializeNewBoard() {
-	
-    	int[] countColor = new int[7];
-    	int randomRange = 6;
-    	setField(24, Ball.EMPTY);
-    	for (int i = 0; i < DIM; i++) {
-    		for (int j = 0; j < DIM; j++) {
-    			if (index(i, j) == 24) {
-    				continue;	
-    			}
-    			int random = (int) (Math.random() * randomRange) + 1;
-    			for (int k = 1; k < countColor.length; k++) {
-    				if (countColor[k] < 8) {
-    					random--;
-    				}	
-    				if (random == 0) {
-    					countColor[k]++;
-    					if (countColor[k] == 8) {
-    						randomRange--;
-    					}
-    					setField(index(i, j), Ball.convertTo(k));  					
-    					if (!isValidPosition(i, j)) {
-    						int swapPosition = findSwapPosition(i, j);
-    						Ball temp = getField(i, j);
-    						setField(index(i, j), getField(swapPosition));
-    						setField(swapPosition, temp);
-    					}  					
-    					break;
-    				}
-    			}   			
-    		}   		
-    	}
-    	for (int i = 0; i < DIM; i++) {
-    		for (int j = 0; j < DIM; j++) {
-    			if (!isValidPosition(i, j)) {
-					int swapPosition = findSwapPosition(i, j);
-					Ball temp = getField(i, j);
-					setField(index(i, j), getField(swapPosition));
-					setField(swapPosition, temp);
-				}
-    		}
-    	}
+    	new BoardGenerator().fill(this);
     }
 
     /**
@@ -258,14 +483,7 @@ public class Board {
      * @return return true if find a pair of ball with same color || otherwise false;
      */
     public boolean isCollectableBoard() {
-    	for (int i = 0; i < DIM; i++) {
-    		for (int j = 0; j < DIM; j++) {
-    			if (!isValidPosition(i, j)) {
-    				return true;
-    			}	
-    		}
-    	}
-    	return false;
+    	return collectable != 0;
     }
     
 
@@ -304,92 +522,104 @@ public class Board {
 
     /**
      * Makes a move on with the given move number.
+     * The balls of the row or column are shifted in place towards the side the move 
+     * points to, so no memory is allocated.
      * @requires move is a valid move
      * @ensures the move is successfully completed without losing balls
      * @param indice the move you want to make (see toString)
      * @return false if move is not possible cause of a full column or row || true
      */
     public boolean makeSingleMove(int indice) {
-    	int row;
-    	int col;
-        if (moveRtoL(indice) != -1) {
-        	row = moveRtoL(indice);
-            Queue<Ball> queue = new LinkedList<>();
-            for (int i = 0; i < DIM; i++) {
-                if (!getField(row, i).equals(Ball.EMPTY)) {
-                    queue.add(getField(row, i));
-                    setField(index(row, i), Ball.EMPTY);
-                }               
-            }
-            if ((queue.size() == 7) || (queue.isEmpty())) {
-            	return false;
-            }
-            for (int i = 0; i < DIM; i++) {
-                setField(index(row, i), queue.poll());
-                if (queue.isEmpty()) {
-                	return true;
-                }
-            }
-            
-        } else if (moveLtoR(indice) != -1) {
-        	row = moveLtoR(indice);
-            Queue<Ball> queue = new LinkedList<>();
-            for (int i = DIM - 1; i >= 0; i--) {
-                if (!getField(row, i).equals(Ball.EMPTY)) {
-                    queue.add(getField(row, i));
-                    setField(index(row, i), Ball.EMPTY);
-                }
-            }
-            if ((queue.size() == 7) || (queue.isEmpty())) {
-            	return false;
-            }
-            for (int i = DIM - 1; i >= 0; i--) {
-                setField(index(row, i), queue.poll());
-                if (queue.isEmpty()) {
-                	return true;
-                }
-            }
-            
-        } else if (moveDtoU(indice) != -1) {
-        	col = moveDtoU(indice);
-            Queue<Ball> queue = new LinkedList<>();
-            for (int i = 0; i < DIM; i++) {
-                if (!getField(i, col).equals(Ball.EMPTY)) {
-                    queue.add(getField(i, col));
-                    setField(index(i, col), Ball.EMPTY);
-                }
-            }
-            if ((queue.size() == 7) || (queue.isEmpty())) {
-            	return false;
-            }
-            for (int i = 0; i < DIM; i++) {
-                setField(index(i, col), queue.poll());
-                if (queue.isEmpty()) {
-                	return true;
-                }
-            }
-            
-        } else if (moveUtoD(indice) != -1) {
-        	col = moveUtoD(indice);
-            Queue<Ball> queue = new LinkedList<>();
-            for (int i = DIM - 1; i >= 0; i--) {
-                if (!getField(i, col).equals(Ball.EMPTY)) {
-                    queue.add(getField(i, col));
-                    setField(index(i, col), Ball.EMPTY);
-                }
-            }
-            if ((queue.size() == 7) || (queue.isEmpty())) {
-            	return false;
-            }
-            for (int i = DIM - 1; i >= 0; i--) {
-                setField(index(i, col), queue.poll());
-                if (queue.isEmpty()) {
-                	return true;
-                }
-            }
-            
-        }
-        return false;
+    	return slide(indice) != NOT_POSSIBLE;
+    }
+
+    /**
+     * Makes a single move and tells if any ball moved.
+     * @param indice the move you want to make (see toString)
+     * @return NOT_POSSIBLE if the row or column is full or empty, UNCHANGED if the move 
+     * is possible but no ball moved, CHANGED otherwise
+     */
+    private int slide(int indice) {
+    	if ((indice < 0) || (indice > 27)) {
+    		return NOT_POSSIBLE;
+    	}
+    	int[] line = MOVE_LINES[indice];
+    	SlideTable table = slideTable;
+    	if (table != null) {
+    		return makeTableMove(table, line);
+    	}
+    	int balls = 0;
+    	for (int k = 0; k < DIM; k++) {
+    		if (fields[line[k]] != 0) {
+    			balls++;
+    		}
+    	}
+    	if ((balls == DIM) || (balls == 0)) {
+    		return NOT_POSSIBLE;
+    	}
+    	int next = 0;
+    	int touched = 0;
+    	for (int k = 0; k < DIM; k++) {
+    		int number = fields[line[k]];
+    		if (number == 0) {
+    			continue;
+    		}
+    		if (k != next) {
+    			fields[line[next]] = (byte) number;
+    			fields[line[k]] = 0;
+    			colours[number] ^= BitBoard.bit(line[k]) | BitBoard.bit(line[next]);
+    			hash ^= Zobrist.KEYS[line[k] * 7 + number]
+    					^ Zobrist.KEYS[line[next] * 7 + number];
+    			touched |= 1 << number;
+    		}
+    		next++;
+    	}
+    	updateTouchedPairs(touched);
+    	return (touched == 0) ? UNCHANGED : CHANGED;
+    }
+    
+    /**
+     * Makes a single move on the given line with a lookup in the slide table.
+     * @param table - the slide table to use
+     * @param line - the fields of the move, ordered from the side the balls move to
+     * @return NOT_POSSIBLE, UNCHANGED or CHANGED (see slide)
+     */
+    private int makeTableMove(SlideTable table, int[] line) {
+    	int packed = 0;
+    	for (int k = DIM - 1; k >= 0; k--) {
+    		packed = packed * 7 + fields[line[k]];
+    	}
+    	int entry = table.lookup(packed);
+    	if ((entry & SlideTable.CHANGED) != 0) {
+    		int touched = 0;
+    		for (int k = 0; k < DIM; k++) {
+    			int number = (entry >>> (3 * k)) & 7;
+    			int field = line[k];
+    			int oldNumber = fields[field];
+    			if (number != oldNumber) {
+    				long bit = BitBoard.bit(field);
+    				colours[oldNumber] &= ~bit;
+    				colours[number] |= bit;
+    				fields[field] = (byte) number;
+    				hash ^= Zobrist.KEYS[field * 7 + oldNumber] ^ Zobrist.KEYS[field * 7 + number];
+    				touched |= (1 << oldNumber) | (1 << number);
+    			}
+    		}
+    		colours[0] = 0L;
+    		updateTouchedPairs(touched);
+    	}
+    	if ((entry & SlideTable.POSSIBLE) == 0) {
+    		return NOT_POSSIBLE;
+    	}
+    	return ((entry & SlideTable.CHANGED) == 0) ? UNCHANGED : CHANGED;
+    }
+
+    /**
+     * Lets makeSingleMove of all boards use the given lookup table.
+     * @param table - the slide table, or null to shift the balls without a table
+     */
+    public static void useSlideTable(SlideTable table) {
+    	slideTable = table;
     }
     
     /**
@@ -471,78 +701,18 @@ public class Board {
      * @return the game situation as String
      */
     public String toString() {
-        int moveNumber = 0;
-        String s = "      ";
-        String line = "      ";
-        for (int i = 0; i < DIM; i++) {
-            if (i < DIM - 1) {
-                line = line + "+--------"; 
-            } else {
-                line = line + "+--------+";
-            }
-            s = s + "    " + (i + 21) + "   ";
-        }
-        for (int i = 0; i < 2; i++) {
-            s = s + "\n" + "      ";
-            for (int j = 0; j < DIM; j++) {
-                if (i < 1) {
-                    s = s + "    |    ";
-                } else {
-                    s = s + "    v    ";
-                }
-            }
-        }
-        s = s + "\n" + line + "\n";
-        for (int i = 0; i < DIM; i++) {
-        	String row = "";
-        	if (moveNumber + DIM >= 10) {
-        		row = (moveNumber + DIM) + "--> |";
-        	} else {
-        		row = (moveNumber + DIM) + " --> |";
-        	}
-            for (int j = 0; j < DIM; j++) {
-                String ball = getField(i, j).toString();
-                if (ball.equals("EMPTY")) {
-                	ball = "     ";
-                }
-                int length = 6 - ball.length();
-                String firstSpaces = " ";
-                String lastSpaces = " ";
-                for (int k = 0; k < (length / 2); k++) {
-                    firstSpaces = firstSpaces + " ";
-                }
-                if (length % 2 == 0) {
-                	lastSpaces = firstSpaces;
-                } else {
-                	lastSpaces = firstSpaces + " ";
-                }
-                row = row + firstSpaces + ball + lastSpaces;
-                if (j < DIM - 1) {
-                    row = row + "|";
-                }
-            }
-            row = row + "| <-- " + moveNumber;
-            moveNumber++;
-            s = s + row + "\n" + line + "\n";
-        }
-        for (int i = 0; i < 3; i++) {
-            s = s + "      ";
-            for (int j = 0; j < DIM; j++) {
-                if (i == 0) {
-                    s = s + "    ^    ";
-                } else if (i == 1) {
-                    s = s + "    |    ";
-                } else {
-                    s = s + "    " + (j + 14) + "   ";
-                }
-            }
-            s = s + "\n";
-        }
-        return s;
+    	if (rendered == null) {
+    		StringBuilder text = new StringBuilder(BoardRenderer.LENGTH);
+    		BoardRenderer.render(this, text);
+    		rendered = text.toString();
+    	}
+    	return rendered;
     }
 
     /**
      * Checks if the singleMove is a valid move, so move returns in colecting balls.
+     * The move is tried on this board and undone, so the board must not be used by
+     * another thread at the same time.
      * @ensures the return is false if indice is out of range
      * @param indice the number of the move that you want to make
      * @return true if the given move is a valid move otherwise will return false
@@ -551,16 +721,20 @@ public class Board {
     	if ((indice < 0) || (indice > 27)) {
     		return false;
     	}
-    	Board copyBoard = deepCopy();
-    	if ((copyBoard.makeSingleMove(indice)) && (copyBoard.isCollectableBoard())) {
-            return true;
-        } else {
-            return false;
+    	if (singleMoves != UNKNOWN) {
+    		return (singleMoves & (1 << indice)) != 0;
     	}
+    	BoardUndo undo = getProbe();
+    	mark(undo);
+    	boolean valid = makeSingleMove(indice) && isCollectableBoard();
+    	undo(undo);
+    	return valid;
     }
     
     /**
      * Checks if the doubleMove is a valid move, so double move returns in collecting balls.
+     * The moves are tried on this board and undone, so the board must not be used by
+     * another thread at the same time.
      * @ensures the return is false if indice is out of range
      * @param indice1 the number of the first move that you want to make
      * @param indice2 the number of the second move that you want to make
@@ -573,12 +747,75 @@ public class Board {
     	if ((indice2 < 0) || (indice2 > 27)) {
     		return false;
     	}
-    	Board copyBoard = deepCopy();
-    	if ((copyBoard.makeDoubleMove(indice1, indice2)) && (copyBoard.isCollectableBoard())) {
-            return true;
-        } else {
-            return false;
+    	if (doubleMoves >= 0) {
+    		return (secondMoves[indice1] & (1 << indice2)) != 0;
+    	}
+    	BoardUndo undo = getProbe();
+    	mark(undo);
+    	boolean valid = makeDoubleMove(indice1, indice2) && isCollectableBoard();
+    	undo(undo);
+    	return valid;
+    }
+
+    /**
+     * Returns the undo stack for trying moves on this board.
+     * @ensures result != null
+     * @return the probe undo stack
+     */
+    private BoardUndo getProbe() {
+    	if (probe == null) {
+    		probe = new BoardUndo(2);
+    	}
+    	return probe;
+    }
+
+    /**
+     * Saves the current position on the undo stack. 
+     * Moves and collections made afterwards can be taken back with undo(undo).
+     * @requires undo != null
+     * @ensures undo.size() == \old(undo.size()) + 1
+     * @param undo - the undo stack of this board
+     */
+    public void mark(BoardUndo undo) {
+    	int offset = undo.push();
+    	System.arraycopy(colours, 1, undo.frames, offset, 6);
+    	undo.frames[offset + 6] = hash;
+    }
+
+    /**
+     * Restores the position that was saved last with mark(undo).
+     * Only the fields that changed since then are written.
+     * @requires undo.size() > 0 and the last mark was made on this board
+     * @ensures undo.size() == \old(undo.size()) - 1
+     * @param undo - the undo stack of this board
+     */
+    public void undo(BoardUndo undo) {
+    	int offset = undo.pop();
+    	long[] frames = undo.frames;
+    	hash = frames[offset + 6];
+    	long changed = 0L;
+    	int touched = 0;
+    	for (int colour = 1; colour < colours.length; colour++) {
+    		long difference = colours[colour] ^ frames[offset + colour - 1];
+    		if (difference != 0) {
+    			changed |= difference;
+    			touched |= 1 << colour;
+    		}
+    	}
+    	if (changed == 0) {
+    		return;
+    	}
+    	for (long rest = changed; rest != 0; rest &= rest - 1) {
+    		fields[Long.numberOfTrailingZeros(rest)] = 0;
+    	}
+    	for (int colour = 1; colour < colours.length; colour++) {
+    		long saved = frames[offset + colour - 1];
+    		for (long rest = saved & changed; rest != 0; rest &= rest - 1) {
+    			fields[Long.numberOfTrailingZeros(rest)] = (byte) colour;
+    		}
+    		colours[colour] = saved;
     	}
+    	updateTouchedPairs(touched);
     }
     
     /**
@@ -587,12 +824,7 @@ public class Board {
      * @return true if there is a singleMove possible otherwise false
      */
     public boolean isStillPossibleSingleMove() {
-    	for (int indice = 0; indice <= 27; indice++) {
-    		if (isValidSingleMove(indice)) {
-    			return true;
-    		}
-    	}
-    	return false;
+    	return getValidSingleMoves() != 0;
     }
     
     /**
@@ -601,15 +833,198 @@ public class Board {
      * @return true if there is a doubleMove possible otherwise false
      */
     public boolean isStillPossibleDoubleMove() {
+    	return findValidDoubleMoves(null) != 0;
+    }
+
+    /**
+     * Returns all valid single moves as a bit mask.
+     * The mask is calculated once per position, so asking again is free until
+     * the board changes.
+     * @ensures bit indice of the result is set iff isValidSingleMove(indice)
+     * @return the mask of the valid single moves
+     */
+    public int getValidSingleMoves() {
+    	if (singleMoves == UNKNOWN) {
+    		singleMoves = calculateValidSingleMoves();
+    	}
+    	return singleMoves;
+    }
+
+    /**
+     * Calculates the valid single moves by trying all 28 moves.
+     * @return the mask of the valid single moves
+     */
+    private int calculateValidSingleMoves() {
+    	BoardUndo undo = getProbe();
+    	int valid = 0;
+    	for (int indice = 0; indice <= 27; indice++) {
+    		mark(undo);
+    		if ((slide(indice) != NOT_POSSIBLE) && (collectable != 0)) {
+    			valid |= 1 << indice;
+    		}
+    		undo(undo);
+    	}
+    	return valid;
+    }
+
+    /**
+     * Calculates all valid double moves. Every first move is made only once and the 28
+     * second moves are tried from that position. A first move that does not move any ball
+     * leaves the board as it is, so its valid second moves are the valid single moves.
+     * @requires secondMoves.length == 28
+     * @ensures bit indice2 of secondMoves[indice1] is set 
+     * iff isValidDoubleMove(indice1, indice2)
+     * @param secondMoves - the array to store the mask of valid second moves per first move
+     * @return the number of valid double moves
+     */
+    public int getValidDoubleMoves(int[] secondMoves) {
+    	return findValidDoubleMoves(secondMoves);
+    }
+
+    /**
+     * Returns the valid double moves from the cache, or calculates them.
+     * When only the existence of a double move is asked, the search stops at the first
+     * valid double move. The moves tried here change the board, so the cached single moves
+     * are put back afterwards.
+     * @param result - the array for the masks of second moves (see getValidDoubleMoves),
+     * or null to only check if there is a valid double move
+     * @return the number of valid double moves, or SOME if result == null and there is one
+     */
+    private int findValidDoubleMoves(int[] result) {
+    	if ((doubleMoves == UNKNOWN) || ((doubleMoves == SOME) && (result != null))) {
+    		int singles = singleMoves;
+    		if (secondMoves == null) {
+    			secondMoves = new int[28];
+    		}
+    		secondWrites++;
+    		BoardUndo undo = getProbe();
+    		int count = 0;
+    		for (int indice1 = 0; indice1 <= 27; indice1++) {
+    			int valid = 0;
+    			mark(undo);
+    			int first = slide(indice1);
+    			if (first == UNCHANGED) {
+    				undo(undo);
+    				if (singles == UNKNOWN) {
+    					singles = calculateValidSingleMoves();
+    				}
+    				valid = singles;
+    			} else {
+    				if (first == CHANGED) {
+    					valid = getValidSecondMoves(undo);
+    				}
+    				undo(undo);
+    			}
+    			count += Integer.bitCount(valid);
+    			secondMoves[indice1] = valid;
+    			if ((result == null) && (count > 0)) {
+    				count = SOME;
+    				break;
+    			}
+    		}
+    		singleMoves = singles;
+    		doubleMoves = count;
+    	}
+    	if (result != null) {
+    		System.arraycopy(secondMoves, 0, result, 0, 28);
+    	}
+    	return doubleMoves;
+    }
+
+    /**
+     * Returns the valid second moves from the position after a first move.
+     * @param undo - the undo stack to try the moves with
+     * @return the mask of moves after which the board is collectable
+     */
+    private int getValidSecondMoves(BoardUndo undo) {
+    	int valid = 0;
+    	for (int indice2 = 0; indice2 <= 27; indice2++) {
+    		mark(undo);
+    		int second = slide(indice2);
+    		if ((second != NOT_POSSIBLE) && (collectable != 0)) {
+    			valid |= 1 << indice2;
+    		}
+    		undo(undo);
+    	}
+    	return valid;
+    }
+    /**
+     * Calls the visitor for every valid double move, in the order of move1 * 28 + move2.
+     * Every first move is made only once and the 28 second moves are tried from that 
+     * position, first moves that are not possible are skipped. A first move that does not
+     * move any ball leaves this position, so only the valid single moves are made as second
+     * moves, without trying the others. After every visit the board is put back in the
+     * position after the first move, and at the end in this position.
+     * The masks are written into the cache of this board, so nothing is allocated; if the
+     * visitor calculated the double moves of another position on this board, the cache is
+     * overwritten and the double moves of this position are forgotten instead.
+     * @requires visitor != null
+     * @ensures the board is the same as before
+     * @param visitor - the visitor of the double moves
+     * @return the number of valid double moves
+     */
+    public int forEachValidDoubleMove(DoubleMoveVisitor visitor) {
+    	int singles = singleMoves;
+    	if (secondMoves == null) {
+    		secondMoves = new int[28];
+    	}
+    	int writes = ++secondWrites;
+    	BoardUndo undo = getProbe();
+    	int count = 0;
     	for (int indice1 = 0; indice1 <= 27; indice1++) {
-    		for (int indice2 = 0; indice2 <= 27; indice2++) {
-    			if (isValidDoubleMove(indice1, indice2)) {
-    				return true;
+    		int valid = 0;
+    		mark(undo);
+    		int first = slide(indice1);
+    		if (first == UNCHANGED) {
+    			// the position is this position, so only the valid single moves are made
+    			undo(undo);
+    			if (singles == UNKNOWN) {
+    				singles = calculateValidSingleMoves();
+    			}
+    			valid = singles;
+    			for (int moves = valid; moves != 0; moves &= moves - 1) {
+    				int indice2 = Integer.numberOfTrailingZeros(moves);
+    				mark(undo);
+    				slide(indice2);
+    				count++;
+    				visitor.visit(this, indice1, indice2);
+    				undo(undo);
+    			}
+    		} else {
+    			if (first == CHANGED) {
+    				for (int indice2 = 0; indice2 <= 27; indice2++) {
+    					mark(undo);
+    					if ((slide(indice2) != NOT_POSSIBLE) && (collectable != 0)) {
+    						valid |= 1 << indice2;
+    						count++;
+    						visitor.visit(this, indice1, indice2);
+    					}
+    					undo(undo);
+    				}
     			}
+    			undo(undo);
+    		}
+    		if (secondWrites == writes) {
+    			secondMoves[indice1] = valid;
     		}
     	}
-    	return false;
+    	singleMoves = singles;
+    	// the visitor may have used the cache for other positions
+    	doubleMoves = (secondWrites == writes) ? count : UNKNOWN;
+    	return count;
+    }
+
+    /**
+     * Returns all valid double moves with the balls every double move collects.
+     * @ensures result.size() == getValidDoubleMoves(new int[28])
+     * @return the valid double moves
+     */
+    public DoubleMoves getDoubleMoves() {
+    	DoubleMoves moves = new DoubleMoves();
+    	forEachValidDoubleMove(moves);
+    	return moves;
     }
+
     /**
      * Collect all the scored balls after a move.
      * @ensures (isCollectableBoard() == true);
@@ -618,23 +1033,57 @@ public class Board {
      */
     public List<Ball> collectBall() {
         List<Ball> collectedList = new ArrayList<Ball>();
-        boolean[] collectable = new boolean[DIM * DIM];
-        for (int i = 0; i < DIM; i++) {
-        	for (int j = 0; j < DIM; j++) {
-        		if (!isValidPosition(i, j)) {
-        			collectable[index(i, j)] = true;
-                }
-        	}
-        }
-        
-        for (int index = 0; index < DIM * DIM; index++) {
-        	if (collectable[index]) {
-        		collectedList.add(getField(index));
-        		setField(index, Ball.EMPTY);
-        	}
+        for (long rest = collectable; rest != 0; rest &= rest - 1) {
+        	int index = Long.numberOfTrailingZeros(rest);
+        	collectedList.add(Ball.convertTo(fields[index]));
+        	hash ^= Zobrist.KEYS[index * 7 + fields[index]];
+        	fields[index] = 0;
         }
+        clearPairs();
         return collectedList;
     }
+
+    /**
+     * Removes the collectable balls from the color masks. The remaining balls of a color
+     * have no neighbour of the same color, so afterwards there are no pairs left.
+     * @ensures collectable == 0
+     */
+    private void clearPairs() {
+    	if (collectable != 0) {
+    		positionChanged();
+    	}
+    	for (int colour = 1; colour < colours.length; colour++) {
+    		colours[colour] &= ~pairs[colour];
+    		pairs[colour] = 0L;
+    	}
+    	collectable = 0L;
+    }
+
+    /**
+     * Collect all the scored balls after a move, without creating a list.
+     * @requires collection == null or collection.length == 7
+     * @ensures collection[c] is increased by the number of collected balls with number c
+     * @param collection - the collection to add the balls to (see Player), can be null
+     * @return the number of collected balls
+     */
+    public int collectBall(int[] collection) {
+    	if (collectable == 0) {
+    		return 0;
+    	}
+    	if (collection != null) {
+    		for (int colour = 1; colour < colours.length; colour++) {
+    			collection[colour] += Long.bitCount(pairs[colour]);
+    		}
+    	}
+    	for (long rest = collectable; rest != 0; rest &= rest - 1) {
+    		int index = Long.numberOfTrailingZeros(rest);
+    		hash ^= Zobrist.KEYS[index * 7 + fields[index]];
+    		fields[index] = 0;
+    	}
+    	int collected = Long.bitCount(collectable);
+    	clearPairs();
+    	return collected;
+    }
     
     /**
      * GameOver when there is no possible move.
@@ -0,0 +1,194 @@
+package collectogame;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generator of random starting boards for the Collecto game.
+ * A starting board has 8 balls of every color, the middle field empty, no two adjacent
+ * balls of the same color and at least one valid single move.
+ *
+ * <p>The fields are filled row by row. Only the left and upper neighbour of a field are
+ * already filled, so the colors of those two are left out and one of the other colors is
+ * drawn, weighted by the number of balls of that color that are left. In rare cases no
+ * color fits the last fields; then the board is filled again. After MAX_ATTEMPTS failed
+ * boards a fixed valid board is used, with its colors renumbered and turned or mirrored
+ * at random, so a board is always created in bounded time.
+ *
+ * <p>A BoardGenerator is not thread safe, every thread should use its own generator.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class BoardGenerator {
+	/**
+	 * The number of balls of every color on a starting board.
+	 */
+	public static final int BALLS_PER_COLOUR = 8;
+
+	/**
+	 * The default number of boards that are tried before the fixed board is used.
+	 */
+	public static final int MAX_ATTEMPTS = 64;
+
+	/**
+	 * The middle field, which is empty on a starting board.
+	 */
+	private static final int MIDDLE = (Board.DIM * Board.DIM) / 2;
+
+	/**
+	 * A valid starting board with at least one valid single move.
+	 */
+	private static final byte[] FIXED_BOARD = {
+		5, 3, 4, 2, 5, 3, 6,
+		4, 6, 3, 4, 3, 1, 2,
+		5, 3, 2, 1, 2, 6, 5,
+		4, 1, 4, 0, 4, 1, 4,
+		5, 6, 2, 1, 5, 6, 2,
+		3, 1, 5, 4, 6, 5, 3,
+		6, 3, 6, 2, 1, 2, 1
+	};
+
+	/**
+	 * @invariant random != null and maxAttempts >= 0
+	 * @invariant fields and remaining are only used during fill
+	 */
+	private final SplittableRandom random;
+	private final int maxAttempts;
+	private final byte[] fields;
+	private final int[] remaining;
+
+	/**
+	 * Creates a generator with a random seed.
+	 */
+	public BoardGenerator() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Creates a generator with the given seed, so it always creates the same boards.
+	 * @param seed - the seed of the random numbers
+	 */
+	public BoardGenerator(long seed) {
+		this(new SplittableRandom(seed));
+	}
+
+	/**
+	 * Creates a generator that draws its random numbers from the given generator.
+	 * @requires random != null
+	 * @param random - the random number generator
+	 */
+	public BoardGenerator(SplittableRandom random) {
+		this(random, MAX_ATTEMPTS);
+	}
+
+	/**
+	 * Creates a generator that tries at most maxAttempts random boards.
+	 * @requires random != null
+	 * @param random - the random number generator
+	 * @param maxAttempts - the number of random boards to try before the fixed board is used
+	 */
+	public BoardGenerator(SplittableRandom random, int maxAttempts) {
+		this.random = random;
+		this.maxAttempts = Math.max(0, maxAttempts);
+		this.fields = new byte[Board.DIM * Board.DIM];
+		this.remaining = new int[7];
+	}
+
+	/**
+	 * Creates a new starting board.
+	 * @ensures result is a valid starting board with result.isStillPossibleSingleMove()
+	 * @return the new board
+	 */
+	public Board createBoard() {
+		Board board = new Board();
+		fill(board);
+		return board;
+	}
+
+	/**
+	 * Replaces all fields of the board by a new starting board.
+	 * @requires board != null
+	 * @ensures board is a valid starting board with board.isStillPossibleSingleMove()
+	 * @param board - the board to fill
+	 */
+	public void fill(Board board) {
+		for (int attempt = 0; attempt < maxAttempts; attempt++) {
+			if (fillFields()) {
+				setFields(board);
+				if (board.isStillPossibleSingleMove()) {
+					return;
+				}
+			}
+		}
+		fillFixedBoard();
+		setFields(board);
+	}
+
+	/**
+	 * Fills the fields with random balls, row by row.
+	 * @return true if all fields could be filled without adjacent balls of the same color
+	 */
+	private boolean fillFields() {
+		for (int colour = 1; colour < 7; colour++) {
+			remaining[colour] = BALLS_PER_COLOUR;
+		}
+		int left = 6 * BALLS_PER_COLOUR;
+		for (int i = 0; i < fields.length; i++) {
+			if (i == MIDDLE) {
+				fields[i] = 0;
+				continue;
+			}
+			int leftColour = (i % Board.DIM == 0) ? 0 : fields[i - 1];
+			int upColour = (i < Board.DIM) ? 0 : fields[i - Board.DIM];
+			int total = left - remaining[leftColour] - remaining[upColour];
+			if (leftColour == upColour) {
+				total += remaining[leftColour];
+			}
+			if (total == 0) {
+				return false;
+			}
+			int draw = random.nextInt(total);
+			int colour = 0;
+			for (int c = 1; c < 7; c++) {
+				if ((c != leftColour) && (c != upColour)) {
+					draw -= remaining[c];
+					if (draw < 0) {
+						colour = c;
+						break;
+					}
+				}
+			}
+			fields[i] = (byte) colour;
+			remaining[colour]--;
+			left--;
+		}
+		return true;
+	}
+
+	/**
+	 * Fills the fields with the fixed board, with the colors renumbered and a random
+	 * symmetry applied. Both keep the board valid and keep a valid single move.
+	 */
+	private void fillFixedBoard() {
+		int[] colours = {0, 1, 2, 3, 4, 5, 6};
+		for (int i = 6; i > 1; i--) {
+			int j = 1 + random.nextInt(i);
+			int temp = colours[i];
+			colours[i] = colours[j];
+			colours[j] = temp;
+		}
+		int symmetry = random.nextInt(BitBoard.SYMMETRIES);
+		for (int i = 0; i < fields.length; i++) {
+			fields[BitBoard.transform(symmetry, i)] = (byte) colours[FIXED_BOARD[i]];
+		}
+	}
+
+	/**
+	 * Sets every field of the board to the generated ball.
+	 * @param board - the board to set
+	 */
+	private void setFields(Board board) {
+		for (int i = 0; i < fields.length; i++) {
+			board.setField(i, Ball.convertTo(fields[i]));
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package collectogame;
+
+import java.io.IOException;
+
+/**
+ * Renders a Board as the text of Board.toString.
+ * Everything except the balls is the same for every board: the grid lines, the arrows and
+ * the move numbers. This frame is built once, with an empty slot of CELL_WIDTH characters
+ * for every field. Rendering a board copies the frame and fills in the 49 slots with the
+ * padded name of the ball.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class BoardRenderer {
+	/**
+	 * The width of a field in the text, the name of the ball centered in spaces.
+	 */
+	private static final int CELL_WIDTH = 8;
+
+	/**
+	 * FRAME is the text of an empty board and SLOTS[i] the position of field i in it.
+	 */
+	private static final int[] SLOTS = new int[Board.DIM * Board.DIM];
+	private static final char[] FRAME = createFrame();
+	private static final String FRAME_TEXT = new String(FRAME);
+
+	/**
+	 * CELLS[c] is the text of a field with the ball with number c, CELL_WIDTH long.
+	 */
+	private static final String[] CELLS = createCells();
+
+	/**
+	 * The number of characters of a rendered board.
+	 */
+	public static final int LENGTH = FRAME.length;
+
+	private BoardRenderer() {
+	}
+
+	/**
+	 * Builds the text of the board without balls and stores the position of every field.
+	 * @return the frame of the board
+	 */
+	private static char[] createFrame() {
+		int dim = Board.DIM;
+		StringBuilder s = new StringBuilder("      ");
+		StringBuilder line = new StringBuilder("      ");
+		for (int i = 0; i < dim; i++) {
+			line.append((i < dim - 1) ? "+--------" : "+--------+");
+			s.append("    ").append(i + 21).append("   ");
+		}
+		for (int i = 0; i < 2; i++) {
+			s.append("\n").append("      ");
+			for (int j = 0; j < dim; j++) {
+				s.append((i < 1) ? "    |    " : "    v    ");
+			}
+		}
+		s.append("\n").append(line).append("\n");
+		for (int i = 0; i < dim; i++) {
+			s.append(i + dim).append((i + dim >= 10) ? "--> |" : " --> |");
+			for (int j = 0; j < dim; j++) {
+				SLOTS[i * dim + j] = s.length();
+				s.append("        ");
+				if (j < dim - 1) {
+					s.append("|");
+				}
+			}
+			s.append("| <-- ").append(i).append("\n").append(line).append("\n");
+		}
+		for (int i = 0; i < 3; i++) {
+			s.append("      ");
+			for (int j = 0; j < dim; j++) {
+				if (i == 0) {
+					s.append("    ^    ");
+				} else if (i == 1) {
+					s.append("    |    ");
+				} else {
+					s.append("    ").append(j + 14).append("   ");
+				}
+			}
+			s.append("\n");
+		}
+		char[] frame = new char[s.length()];
+		s.getChars(0, s.length(), frame, 0);
+		return frame;
+	}
+
+	/**
+	 * Builds the text of every ball: the name centered with at least one space on both
+	 * sides and the extra space on the right, the empty field as spaces.
+	 * @return the text of every ball number
+	 */
+	private static String[] createCells() {
+		String[] cells = new String[7];
+		for (int colour = 0; colour < 7; colour++) {
+			String ball = (colour == 0) ? "     " : Ball.convertTo(colour).toString();
+			int length = CELL_WIDTH - 2 - ball.length();
+			StringBuilder cell = new StringBuilder();
+			for (int k = 0; k < 1 + (length / 2); k++) {
+				cell.append(' ');
+			}
+			cell.append(ball);
+			while (cell.length() < CELL_WIDTH) {
+				cell.append(' ');
+			}
+			cells[colour] = cell.toString();
+		}
+		return cells;
+	}
+
+	/**
+	 * Renders the board and appends the text to the StringBuilder.
+	 * @requires board != null and out != null
+	 * @ensures out ends with board.toString()
+	 * @param board - the board to render
+	 * @param out - the StringBuilder to append to
+	 */
+	public static void render(Board board, StringBuilder out) {
+		out.ensureCapacity(out.length() + LENGTH);
+		int start = 0;
+		for (int i = 0; i < SLOTS.length; i++) {
+			out.append(FRAME, start, SLOTS[i] - start);
+			out.append(CELLS[board.getField(i).convertTo()]);
+			start = SLOTS[i] + CELL_WIDTH;
+		}
+		out.append(FRAME, start, LENGTH - start);
+	}
+
+	/**
+	 * Renders the board and appends the text to the Appendable, for example a Writer.
+	 * @requires board != null and out != null
+	 * @param board - the board to render
+	 * @param out - the Appendable to append to
+	 * @throws IOException - if out can not be written to
+	 */
+	public static void render(Board board, Appendable out) throws IOException {
+		int start = 0;
+		for (int i = 0; i < SLOTS.length; i++) {
+			out.append(FRAME_TEXT, start, SLOTS[i]);
+			out.append(CELLS[board.getField(i).convertTo()]);
+			start = SLOTS[i] + CELL_WIDTH;
+		}
+		out.append(FRAME_TEXT, start, LENGTH);
+	}
+}
@@ -0,0 +1,87 @@
+package collectogame;
+
+/**
+ * Stack of saved board positions, used to take back moves with Board.undo.
+ * A position is saved as the 6 color masks of the board (see BitBoard) and its hash,
+ * so every frame is 56 bytes and nothing is allocated once the stack is deep enough.
+ * A BoardUndo can be used for any board, but undo must be called on the board
+ * that was marked.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class BoardUndo {
+	/**
+	 * The number of longs in a frame.
+	 */
+	static final int FRAME_SIZE = 7;
+
+	/**
+	 * @invariant frames.length is a multiple of FRAME_SIZE
+	 * @invariant size is the number of saved frames
+	 */
+	long[] frames;
+	private int size;
+
+	/**
+	 * Creates an undo stack for a search of 16 moves deep.
+	 */
+	public BoardUndo() {
+		this(16);
+	}
+
+	/**
+	 * Creates an undo stack with space for the given number of positions.
+	 * The stack grows when more positions are saved.
+	 * @param capacity - the number of positions
+	 */
+	public BoardUndo(int capacity) {
+		this.frames = new long[Math.max(1, capacity) * FRAME_SIZE];
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the number of saved positions.
+	 * @return the size of the stack
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all saved positions.
+	 * @ensures size() == 0
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Reserves a new frame on top of the stack.
+	 * @ensures size() == \old(size()) + 1
+	 * @return the offset of the new frame in frames
+	 */
+	int push() {
+		int offset = size * FRAME_SIZE;
+		if (offset + FRAME_SIZE > frames.length) {
+			long[] bigger = new long[frames.length * 2];
+			System.arraycopy(frames, 0, bigger, 0, frames.length);
+			frames = bigger;
+		}
+		size++;
+		return offset;
+	}
+
+	/**
+	 * Removes the frame on top of the stack.
+	 * @requires size() > 0
+	 * @ensures size() == \old(size()) - 1
+	 * @return the offset of the removed frame in frames
+	 */
+	int pop() {
+		if (size == 0) {
+			throw new IllegalStateException("No position to undo");
+		}
+		size--;
+		return size * FRAME_SIZE;
+	}
+}
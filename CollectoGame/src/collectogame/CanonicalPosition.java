@@ -0,0 +1,275 @@
+package collectogame;
+
+/**
+ * The canonical representative of a Collecto position.
+ * A position is the board together with the collections of the players. Turning or
+ * mirroring the board (see BitBoard.SYMMETRIES) and giving the colors other numbers in the
+ * board and all collections at the same time does not change the game: the same moves are
+ * valid, after mapping them, and every player gets the same score. All these equivalent
+ * positions have the same canonical position, so caches can share their entries.
+ *
+ * <p>The canonical position is found by trying all 8 symmetries. For every symmetry the
+ * colors are sorted by their number of balls in the collections and then by their moved
+ * mask, and renumbered in that order. The symmetry with the smallest sorted colors wins.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class CanonicalPosition {
+	/**
+	 * MOVES[s][m] is the move on the board moved by symmetry s that equals move m.
+	 */
+	private static final int[][] MOVES = createMoves();
+
+	/**
+	 * @invariant board is the canonical board and collections the renumbered collections
+	 * @invariant symmetry is the symmetry that moves the original board to board
+	 * @invariant colours[c] is the number color c of the original board got
+	 */
+	private final Board board;
+	private final int[][] collections;
+	private final int symmetry;
+	private final int[] colours;
+
+	/**
+	 * Creates the canonical position with the chosen symmetry and renumbering.
+	 * @param board - the canonical board
+	 * @param collections - the renumbered collections
+	 * @param symmetry - the symmetry used
+	 * @param colours - the new number of every color
+	 */
+	private CanonicalPosition(Board board, int[][] collections, int symmetry, int[] colours) {
+		this.board = board;
+		this.collections = collections;
+		this.symmetry = symmetry;
+		this.colours = colours;
+	}
+
+	/**
+	 * Creates the MOVES table by looking up the moved line of every move.
+	 * @return the moved move of every move, for every symmetry
+	 */
+	private static int[][] createMoves() {
+		int[][] moves = new int[BitBoard.SYMMETRIES][28];
+		for (int s = 0; s < BitBoard.SYMMETRIES; s++) {
+			for (int move = 0; move < 28; move++) {
+				moves[s][move] = -1;
+				for (int other = 0; other < 28; other++) {
+					if (isMovedLine(s, Board.MOVE_LINES[move], Board.MOVE_LINES[other])) {
+						moves[s][move] = other;
+					}
+				}
+			}
+		}
+		return moves;
+	}
+
+	/**
+	 * Checks if a symmetry moves every field of a line to the field of the other line
+	 * at the same place, so the balls of both moves go to the same side.
+	 * @param s - the symmetry
+	 * @param line - the fields of the move, ordered from the side the balls move to
+	 * @param other - the fields of the other move
+	 * @return true if the moved line equals the other line
+	 */
+	private static boolean isMovedLine(int s, int[] line, int[] other) {
+		for (int k = 0; k < Board.DIM; k++) {
+			if (BitBoard.transform(s, line[k]) != other[k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Calculates the canonical position of a board and the collections of the players.
+	 * The board and collections are not changed.
+	 * @requires board != null and every collection has length 7
+	 * @ensures positions that only differ by a symmetry and the numbers of the colors
+	 * give an equal board and equal collections
+	 * @param board - the board of the position
+	 * @param collections - the collection of every player (see Player), may be none
+	 * @return the canonical position
+	 */
+	public static CanonicalPosition of(Board board, int[]... collections) {
+		long[] masks = new long[7];
+		for (int colour = 1; colour < 7; colour++) {
+			masks[colour] = board.getColourMask(Ball.convertTo(colour));
+		}
+		long[] bestKey = null;
+		int[] bestOrder = null;
+		int bestSymmetry = 0;
+		for (int s = 0; s < BitBoard.SYMMETRIES; s++) {
+			long[] moved = new long[7];
+			for (int colour = 1; colour < 7; colour++) {
+				moved[colour] = BitBoard.transform(s, masks[colour]);
+			}
+			int[] order = sortColours(moved, collections);
+			long[] key = new long[6];
+			for (int k = 0; k < 6; k++) {
+				key[k] = moved[order[k]];
+			}
+			// the counts are the same for every symmetry, so only the masks decide
+			if ((bestKey == null) || (compare(key, bestKey) < 0)) {
+				bestKey = key;
+				bestOrder = order;
+				bestSymmetry = s;
+			}
+		}
+
+		int[] colours = new int[7];
+		for (int k = 0; k < 6; k++) {
+			colours[bestOrder[k]] = k + 1;
+		}
+		Board canonical = new Board();
+		for (int colour = 1; colour < 7; colour++) {
+			Ball ball = Ball.convertTo(colours[colour]);
+			for (long rest = masks[colour]; rest != 0; rest &= rest - 1) {
+				int index = Long.numberOfTrailingZeros(rest);
+				canonical.setField(BitBoard.transform(bestSymmetry, index), ball);
+			}
+		}
+		int[][] canonicalCollections = new int[collections.length][7];
+		for (int p = 0; p < collections.length; p++) {
+			for (int colour = 1; colour < 7; colour++) {
+				canonicalCollections[p][colours[colour]] = collections[p][colour];
+			}
+		}
+		return new CanonicalPosition(canonical, canonicalCollections, bestSymmetry, colours);
+	}
+
+	/**
+	 * Sorts the color numbers on the number of balls every player collected of them and
+	 * then on their mask.
+	 * @param masks - the mask of every color
+	 * @param collections - the collection of every player
+	 * @return the 6 color numbers in sorted order
+	 */
+	private static int[] sortColours(long[] masks, int[][] collections) {
+		int[] order = {1, 2, 3, 4, 5, 6};
+		for (int i = 1; i < 6; i++) {
+			int colour = order[i];
+			int j = i - 1;
+			while ((j >= 0) && (compareColours(colour, order[j], masks, collections) < 0)) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = colour;
+		}
+		return order;
+	}
+
+	/**
+	 * Compares two colors on their collected balls and then on their mask.
+	 * @param colour1 - the first color
+	 * @param colour2 - the second color
+	 * @param masks - the mask of every color
+	 * @param collections - the collection of every player
+	 * @return a negative number, zero or a positive number if colour1 comes first,
+	 * both are equal or colour2 comes first
+	 */
+	private static int compareColours(int colour1, int colour2, long[] masks,
+			int[][] collections) {
+		for (int[] collection : collections) {
+			if (collection[colour1] != collection[colour2]) {
+				return Integer.compare(collection[colour1], collection[colour2]);
+			}
+		}
+		return Long.compare(masks[colour1], masks[colour2]);
+	}
+
+	/**
+	 * Compares two arrays of masks element by element.
+	 * @param key1 - the first array
+	 * @param key2 - the second array, of the same length
+	 * @return a negative number, zero or a positive number if key1 is smaller,
+	 * equal or larger
+	 */
+	private static int compare(long[] key1, long[] key2) {
+		for (int k = 0; k < key1.length; k++) {
+			if (key1[k] != key2[k]) {
+				return Long.compare(key1[k], key2[k]);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns the canonical board. It is a new board that can be changed freely.
+	 * @return the canonical board
+	 */
+	public Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * Returns the renumbered collection of a player.
+	 * @requires player is between 0 and the number of given collections
+	 * @param player - the number of the player in the call to of
+	 * @return the collection with the canonical color numbers
+	 */
+	public int[] getCollection(int player) {
+		return collections[player];
+	}
+
+	/**
+	 * Returns the symmetry that moves the original board to the canonical board.
+	 * @return the symmetry, see BitBoard.transform
+	 */
+	public int getSymmetry() {
+		return symmetry;
+	}
+
+	/**
+	 * Returns the ball on the canonical board that a ball of the original board became.
+	 * @param ball - the color on the original board
+	 * @return the color on the canonical board, EMPTY stays EMPTY
+	 */
+	public Ball toCanonical(Ball ball) {
+		return Ball.convertTo(colours[ball.convertTo()]);
+	}
+
+	/**
+	 * Returns the move on the canonical board that equals a move on the original board.
+	 * @requires move is between 0 and 27
+	 * @param move - the move on the original board (see Board.toString)
+	 * @return the move on the canonical board
+	 */
+	public int toCanonicalMove(int move) {
+		return MOVES[symmetry][move];
+	}
+
+	/**
+	 * Returns the move on the original board that equals a move on the canonical board,
+	 * so a move found for the canonical position can be played on the original board.
+	 * @requires move is between 0 and 27
+	 * @ensures toCanonicalMove(result) == move
+	 * @param move - the move on the canonical board (see Board.toString)
+	 * @return the move on the original board
+	 */
+	public int toOriginalMove(int move) {
+		int[] moves = MOVES[symmetry];
+		for (int original = 0; original < 28; original++) {
+			if (moves[original] == move) {
+				return original;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns a mask of moves on the canonical board as a mask of moves on the original
+	 * board, for example the result of Board.getValidSingleMoves.
+	 * @param moves - the mask of moves on the canonical board
+	 * @return the mask of the same moves on the original board
+	 */
+	public int toOriginalMoves(int moves) {
+		int result = 0;
+		int[] symmetryMoves = MOVES[symmetry];
+		for (int original = 0; original < 28; original++) {
+			if ((moves & (1 << symmetryMoves[original])) != 0) {
+				result |= 1 << original;
+			}
+		}
+		return result;
+	}
+}
@@ -32,6 +32,14 @@ public class ComputerPlayer extends Player {
 	@Override
 	public int[] determineMove(Board board) {
 		return this.strategy.determineMove(board, super.collection);
-	}	
+	}
+	
+	/**
+	 * Stops the threads of the strategy, when the player no longer plays.
+	 * @ensures strategy.close() is called
+	 */
+	public void close() {
+		this.strategy.close();
+	}
 }
 
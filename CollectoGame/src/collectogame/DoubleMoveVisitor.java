@@ -0,0 +1,20 @@
+package collectogame;
+
+/**
+ * Receives the valid double moves of a board, see Board.forEachValidDoubleMove.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public interface DoubleMoveVisitor {
+
+	/**
+	 * Called for a valid double move with the board in the position after both moves,
+	 * before the balls are collected. The board may be changed, for example by collecting
+	 * the balls or trying more moves, because it is restored after the call.
+	 * @requires board.isCollectableBoard() == true
+	 * @param board - the board after the double move
+	 * @param move1 - the first move (see Board.toString)
+	 * @param move2 - the second move
+	 */
+	public void visit(Board board, int move1, int move2);
+}
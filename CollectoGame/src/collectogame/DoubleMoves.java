@@ -0,0 +1,140 @@
+package collectogame;
+
+/**
+ * The valid double moves of a position together with the balls every double move collects.
+ * The moves are stored in the order of Board.forEachValidDoubleMove, so sorted on
+ * move1 * 28 + move2. A DoubleMoves can be cleared and filled again, so it does not
+ * allocate memory after it was created.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class DoubleMoves implements DoubleMoveVisitor {
+	/**
+	 * The maximum number of double moves.
+	 */
+	public static final int MAX_MOVES = 28 * 28;
+
+	/**
+	 * @invariant size is the number of stored double moves
+	 * @invariant moves[i] == move1 * 28 + move2 of the i-th double move
+	 * @invariant collected[i * 7 + c] is the number of balls with number c it collects
+	 * and collected[i * 7] the total number of balls
+	 * @invariant firstColours[i] is the number of the collected ball on the lowest field
+	 */
+	private int size;
+	private final int[] moves = new int[MAX_MOVES];
+	private final byte[] collected = new byte[MAX_MOVES * 7];
+	private final byte[] firstColours = new byte[MAX_MOVES];
+
+	/**
+	 * Removes all double moves.
+	 * @ensures size() == 0
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Stores a double move and counts the balls it collects.
+	 * @param board - the board after the double move
+	 * @param move1 - the first move
+	 * @param move2 - the second move
+	 */
+	@Override
+	public void visit(Board board, int move1, int move2) {
+		long collectable = board.getCollectableMask();
+		int offset = size * 7;
+		collected[offset] = (byte) Long.bitCount(collectable);
+		for (int colour = 1; colour < 7; colour++) {
+			long mask = board.getColourMask(Ball.convertTo(colour)) & collectable;
+			collected[offset + colour] = (byte) Long.bitCount(mask);
+		}
+		firstColours[size] = (byte) board.getField(Long.numberOfTrailingZeros(collectable))
+				.convertTo();
+		moves[size] = move1 * 28 + move2;
+		size++;
+	}
+
+	/**
+	 * Returns the number of valid double moves.
+	 * @return the number of stored double moves
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a double move as the number move1 * 28 + move2.
+	 * @requires i is between 0 and size()
+	 * @param i - the number of the double move
+	 * @return the packed double move
+	 */
+	public int getMove(int i) {
+		return moves[i];
+	}
+
+	/**
+	 * Returns the first move of a double move.
+	 * @requires i is between 0 and size()
+	 * @param i - the number of the double move
+	 * @return the first move
+	 */
+	public int getFirstMove(int i) {
+		return moves[i] / 28;
+	}
+
+	/**
+	 * Returns the second move of a double move.
+	 * @requires i is between 0 and size()
+	 * @param i - the number of the double move
+	 * @return the second move
+	 */
+	public int getSecondMove(int i) {
+		return moves[i] % 28;
+	}
+
+	/**
+	 * Returns the number of balls a double move collects.
+	 * @requires i is between 0 and size()
+	 * @param i - the number of the double move
+	 * @return the number of collected balls
+	 */
+	public int getCollected(int i) {
+		return collected[i * 7];
+	}
+
+	/**
+	 * Returns the number of balls of one color a double move collects.
+	 * @requires i is between 0 and size() and colour is between 1 and 6
+	 * @param i - the number of the double move
+	 * @param colour - the number of the color (see Ball.convertTo)
+	 * @return the number of collected balls of this color
+	 */
+	public int getCollected(int i, int colour) {
+		return collected[i * 7 + colour];
+	}
+
+	/**
+	 * Returns the collected ball on the field with the lowest index, which is the first ball
+	 * of the list Board.collectBall() returns after the double move.
+	 * @requires i is between 0 and size()
+	 * @param i - the number of the double move
+	 * @return the first collected ball
+	 */
+	public Ball getFirstBall(int i) {
+		return Ball.convertTo(firstColours[i]);
+	}
+
+	/**
+	 * Adds the balls a double move collects to a collection.
+	 * @requires i is between 0 and size() and collection.length == 7
+	 * @param i - the number of the double move
+	 * @param collection - the collection to add to (see Player)
+	 */
+	public void addCollected(int i, int[] collection) {
+		int offset = i * 7;
+		for (int colour = 1; colour < 7; colour++) {
+			collection[colour] += collected[offset + colour];
+		}
+	}
+}
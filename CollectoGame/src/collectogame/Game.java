@@ -49,13 +49,18 @@ public class Game {
      * @ensures (this.getBoard().isStillPossibleSingleMove() == true);
      */
     public void createNewBoard() {
-    	while (true) {
-    		board.initializeNewBoard();
-    		if (board.isStillPossibleSingleMove()) {
-    			break;
-    		}
-    		board = new Board();
-    	}
+    	createNewBoard(new BoardGenerator());
+    }
+
+    /**
+     * Create a board that has at least 1 possible move with the given generator,
+     * so a seeded generator gives the same board every time.
+     * @requires generator != null
+     * @ensures (this.getBoard().isStillPossibleSingleMove() == true);
+     * @param generator - the generator of the board
+     */
+    public void createNewBoard(BoardGenerator generator) {
+    	generator.fill(board);
     }
 
     /**
@@ -120,6 +125,16 @@ public class Game {
     public Board getBoard() {
     	return this.board;
     }
+
+    /**
+     * Sets the board of the game, for example a starting board that was made before.
+     * @requires board != null
+     * @ensures this.getBoard() == board
+     * @param board - the board to play on
+     */
+    public void setBoard(Board board) {
+    	this.board = board;
+    }
     
     /**
      * Returns the player of the game.
@@ -33,12 +33,13 @@ public class HumanPlayer extends Player {
     public int[] determineMove(Board board) {
     	int[] choice = null;
     	String prompt;
-    	if (board.isStillPossibleSingleMove()) {
+    	int singleMoves = board.getValidSingleMoves();
+    	if (singleMoves != 0) {
     		// ask if user wants a hint -> returns all possible moves
     		if (client.getBoolean("Do you want to get hint ? (Type y/n)")) {
     			String reply = "Possible single moves are | ";
     			for (int indice = 0; indice <= 27; indice++) {
-    				if (board.isValidSingleMove(indice)) {
+    				if ((singleMoves & (1 << indice)) != 0) {
     					reply = reply + indice + "| ";
     				}
     			}
@@ -60,9 +61,11 @@ public class HumanPlayer extends Player {
         	// ask if user wants a hint -> returns all possible moves
     		if (client.getBoolean("Do you want to get hint ? (Type y/n)")) {
     			String reply = "Possible double moves are | ";
+    			int[] secondMoves = new int[28];
+    			board.getValidDoubleMoves(secondMoves);
     			for (int indice1 = 0; indice1 <= 27; indice1++) {
     				for (int indice2 = 0; indice2 <= 27; indice2++) {
-    					if (board.isValidDoubleMove(indice1, indice2)) {
+    					if ((secondMoves[indice1] & (1 << indice2)) != 0) {
     						reply = reply + indice1 + "->" + indice2 + "| ";
     					}
     				}
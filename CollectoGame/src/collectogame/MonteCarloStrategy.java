@@ -0,0 +1,402 @@
+package collectogame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Strategy that chooses a move with Monte Carlo Tree Search (UCT).
+ * Every playout walks down a search tree, choosing the child with the best upper confidence
+ * bound, adds one new position to the tree and then plays the game to the end with random
+ * moves, like NaiveStrategy. The result of the game (win 1, draw 0.5, loss 0, see
+ * Game.winner) is added to all positions of the walk. The move that was played most often
+ * from the root is chosen.
+ *
+ * <p>The playouts run in parallel with root parallelisation: every thread grows its own tree
+ * on its own copy of the board, so the threads share nothing while they search. At the end
+ * the playouts of the root moves of all trees are added up. More threads give more playouts
+ * in the same time.
+ *
+ * <p>A search stops when the time budget is used or the number of playouts is reached. All
+ * state of a search is created by determineMove, so one strategy can be used by several
+ * threads at the same time. A strategy with more than one thread should be closed when it
+ * is no longer used, which stops its threads.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class MonteCarloStrategy implements Strategy {
+	/**
+	 * The default time budget of a move in milliseconds.
+	 */
+	public static final long DEFAULT_TIME_BUDGET = 500;
+
+	/**
+	 * The weight of the exploration term of the upper confidence bound.
+	 */
+	private static final double EXPLORATION = 1.4;
+
+	/**
+	 * The number of move numbers, see AlphaBetaStrategy.toChoice.
+	 */
+	private static final int MOVES = 28 + 28 * 28;
+
+	/**
+	 * The number of playouts between two checks of the clock.
+	 */
+	private static final int CHECK_INTERVAL = 16;
+
+	/**
+	 * @invariant name - the name of the strategy
+	 * @invariant timeBudget - the time a move may take in nanoseconds
+	 * @invariant playouts - the number of playouts of a move, 0 for no limit
+	 * @invariant threads - the number of threads that play out, at least 1
+	 * @invariant pool - the threads for threads > 1, created when first needed
+	 */
+	private String name = "MCTS";
+	private final long timeBudget;
+	private final int playouts;
+	private final int threads;
+	private ForkJoinPool pool;
+
+	/**
+	 * Creates a strategy with the default time budget and a thread for every processor.
+	 */
+	public MonteCarloStrategy() {
+		this(DEFAULT_TIME_BUDGET);
+	}
+
+	/**
+	 * Creates a strategy with the given time budget and a thread for every processor.
+	 * @param timeBudget - the time a move may take in milliseconds
+	 */
+	public MonteCarloStrategy(long timeBudget) {
+		this(timeBudget, 0, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a strategy with the given budget and number of threads.
+	 * @requires timeBudget > 0
+	 * @param timeBudget - the time a move may take in milliseconds
+	 * @param playouts - the number of playouts of a move, 0 for no limit
+	 * @param threads - the number of threads, 1 or less to use the calling thread
+	 */
+	public MonteCarloStrategy(long timeBudget, int playouts, int threads) {
+		this.timeBudget = Math.max(1, timeBudget) * 1000000L;
+		this.playouts = Math.max(0, playouts);
+		this.threads = Math.max(1, threads);
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public int[] determineMove(Board board, int[] collection) {
+		int[] rootMoves = new int[28 * 28];
+		int count = generateMoves(board, new int[28], rootMoves);
+		if (count == 0) {
+			return new int[0];
+		}
+		if (count == 1) {
+			return AlphaBetaStrategy.toChoice(rootMoves[0]);
+		}
+		long deadline = System.nanoTime() + timeBudget;
+		SplittableRandom random = new SplittableRandom();
+		List<Search> searches = new ArrayList<Search>();
+		for (int i = 0; i < threads; i++) {
+			int limit = (playouts == 0) ? 0 : Math.max(1, (playouts + threads - 1 - i) / threads);
+			searches.add(new Search(board, collection, rootMoves, count, deadline, limit,
+					random.split()));
+		}
+
+		long[] visits = new long[MOVES];
+		double[] wins = new double[MOVES];
+		if (threads == 1) {
+			searches.get(0).call();
+			searches.get(0).addRootResults(visits, wins);
+		} else {
+			List<Future<Search>> results = getPool().invokeAll(searches);
+			for (Future<Search> result : results) {
+				try {
+					result.get().addRootResults(visits, wins);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		}
+
+		int best = rootMoves[0];
+		for (int i = 1; i < count; i++) {
+			int move = rootMoves[i];
+			if ((visits[move] > visits[best])
+					|| ((visits[move] == visits[best]) && (wins[move] > wins[best]))) {
+				best = move;
+			}
+		}
+		return AlphaBetaStrategy.toChoice(best);
+	}
+
+	/**
+	 * Returns the threads for the parallel playouts.
+	 * @return the pool with threads threads
+	 */
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(threads);
+		}
+		return pool;
+	}
+
+	/**
+	 * Stops the threads of the parallel playouts. A strategy that is used after it is
+	 * closed starts new threads.
+	 * @ensures the threads stop when their current search is done
+	 */
+	@Override
+	public synchronized void close() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Fills a list with the valid moves of a board: the single moves, or the double moves
+	 * if there is no single move. Moves are numbered as in AlphaBetaStrategy.toChoice.
+	 * @param board - the board
+	 * @param masks - an array of 28 for the valid second moves
+	 * @param list - the array to store the moves in, of length 28 * 28
+	 * @return the number of moves, 0 if the game is over
+	 */
+	static int generateMoves(Board board, int[] masks, int[] list) {
+		int count = 0;
+		int singleMoves = board.getValidSingleMoves();
+		if (singleMoves != 0) {
+			for (int rest = singleMoves; rest != 0; rest &= rest - 1) {
+				list[count++] = Integer.numberOfTrailingZeros(rest);
+			}
+		} else if (board.getValidDoubleMoves(masks) > 0) {
+			for (int move1 = 0; move1 < 28; move1++) {
+				for (int rest = masks[move1]; rest != 0; rest &= rest - 1) {
+					list[count++] = 28 + move1 * 28 + Integer.numberOfTrailingZeros(rest);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Makes a move and adds the collected balls to the collection.
+	 * @param board - the board
+	 * @param move - the move, see AlphaBetaStrategy.toChoice
+	 * @param collection - the collection of the player who makes the move
+	 */
+	static void makeMove(Board board, int move, int[] collection) {
+		if (move < 28) {
+			board.makeSingleMove(move);
+		} else {
+			board.makeSingleMove((move - 28) / 28);
+			board.makeSingleMove((move - 28) % 28);
+		}
+		board.collectBall(collection);
+	}
+
+	/**
+	 * A position in the search tree.
+	 * The statistics are seen from the player who made the move to this position.
+	 */
+	private static final class Node {
+		/**
+		 * @invariant move - the move to this position, -1 for the root
+		 * @invariant side - the player who made the move, 0 is the player of the root
+		 * @invariant moves - the valid moves, null if they are not generated yet
+		 * @invariant children - the positions of the first childCount moves
+		 * @invariant visits - the number of playouts through this position
+		 * @invariant wins - the sum of the results of these playouts for side
+		 */
+		private final int move;
+		private final int side;
+		private int[] moves;
+		private Node[] children;
+		private int childCount;
+		private int visits;
+		private double wins;
+
+		/**
+		 * Creates a position that is not visited yet.
+		 * @param move - the move to the position
+		 * @param side - the player who made the move
+		 */
+		Node(int move, int side) {
+			this.move = move;
+			this.side = side;
+		}
+
+		/**
+		 * Returns the child with the best upper confidence bound.
+		 * @requires childCount > 0
+		 * @return the child to walk to
+		 */
+		Node select() {
+			double logVisits = Math.log(visits);
+			Node best = children[0];
+			double bestBound = -1;
+			for (int i = 0; i < childCount; i++) {
+				Node child = children[i];
+				double bound = (child.wins / child.visits)
+						+ EXPLORATION * Math.sqrt(logVisits / child.visits);
+				if (bound > bestBound) {
+					bestBound = bound;
+					best = child;
+				}
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * The tree and playouts of one thread.
+	 */
+	private static final class Search implements Callable<Search> {
+		/**
+		 * @invariant root - the board of the root, not changed
+		 * @invariant rootCollections - the collections of both players in the root
+		 * @invariant board and collections - the position of the current playout
+		 * @invariant tree - the root of the search tree
+		 * @invariant path - the positions of the walk of the current playout
+		 */
+		private final Board root;
+		private final int[][] rootCollections = new int[2][7];
+		private final Board board = new Board();
+		private final int[][] collections = new int[2][7];
+		private final Node tree;
+		private final long deadline;
+		private final int limit;
+		private final SplittableRandom random;
+		private final int[] masks = new int[28];
+		private final int[] moves = new int[28 * 28];
+		private final List<Node> path = new ArrayList<Node>();
+
+		/**
+		 * Creates the search of one thread.
+		 * @param position - the board to choose a move for
+		 * @param collection - the collection of the player to move
+		 * @param rootMoves - the valid moves of the board
+		 * @param count - the number of valid moves
+		 * @param deadline - the System.nanoTime at which the search stops
+		 * @param limit - the number of playouts, 0 for no limit
+		 * @param random - the random numbers of this thread
+		 */
+		Search(Board position, int[] collection, int[] rootMoves, int count, long deadline,
+				int limit, SplittableRandom random) {
+			this.root = position.deepCopy();
+			for (int colour = 1; colour < 7; colour++) {
+				int onBoard = Long.bitCount(root.getColourMask(Ball.convertTo(colour)));
+				rootCollections[0][colour] = collection[colour];
+				rootCollections[1][colour] = BoardGenerator.BALLS_PER_COLOUR - onBoard
+						- collection[colour];
+			}
+			this.tree = new Node(-1, 1);
+			tree.moves = new int[count];
+			System.arraycopy(rootMoves, 0, tree.moves, 0, count);
+			tree.children = new Node[count];
+			this.deadline = deadline;
+			this.limit = limit;
+			this.random = random;
+		}
+
+		/**
+		 * Runs playouts until the time is up or the limit is reached.
+		 * At least one playout is done.
+		 * @return this search
+		 */
+		@Override
+		public Search call() {
+			int done = 0;
+			do {
+				playout();
+				done++;
+			} while (((limit == 0) || (done < limit))
+					&& (((done % CHECK_INTERVAL) != 0) || (System.nanoTime() < deadline)));
+			return this;
+		}
+
+		/**
+		 * Does one playout: walks down the tree, adds a position, plays the game to the
+		 * end at random and adds the result to the positions of the walk.
+		 */
+		private void playout() {
+			board.copyFrom(root);
+			for (int side = 0; side < 2; side++) {
+				System.arraycopy(rootCollections[side], 0, collections[side], 0, 7);
+			}
+			path.clear();
+			Node node = tree;
+			path.add(node);
+			while ((node.moves.length > 0) && (node.childCount == node.moves.length)) {
+				node = node.select();
+				makeMove(board, node.move, collections[node.side]);
+				path.add(node);
+			}
+			if (node.childCount < node.moves.length) {
+				node = expand(node);
+				makeMove(board, node.move, collections[node.side]);
+				path.add(node);
+				node.moves = new int[generateMoves(board, masks, moves)];
+				System.arraycopy(moves, 0, node.moves, 0, node.moves.length);
+				node.children = new Node[node.moves.length];
+			}
+
+			int side = 1 - node.side;
+			int count = generateMoves(board, masks, moves);
+			while (count > 0) {
+				makeMove(board, moves[random.nextInt(count)], collections[side]);
+				side = 1 - side;
+				count = generateMoves(board, masks, moves);
+			}
+
+			int value = AlphaBetaStrategy.evaluate(collections, 0);
+			double result = (value > 0) ? 1.0 : ((value < 0) ? 0.0 : 0.5);
+			for (Node visited : path) {
+				visited.visits++;
+				visited.wins += (visited.side == 0) ? result : 1.0 - result;
+			}
+		}
+
+		/**
+		 * Adds the child of a random move that has no child yet.
+		 * @param node - the position with moves without a child
+		 * @return the new child
+		 */
+		private Node expand(Node node) {
+			int[] nodeMoves = node.moves;
+			int pick = node.childCount + random.nextInt(nodeMoves.length - node.childCount);
+			int move = nodeMoves[pick];
+			nodeMoves[pick] = nodeMoves[node.childCount];
+			nodeMoves[node.childCount] = move;
+			Node child = new Node(move, 1 - node.side);
+			node.children[node.childCount++] = child;
+			return child;
+		}
+
+		/**
+		 * Adds the playouts and wins of the root moves of this tree.
+		 * @param visits - the playouts per move number
+		 * @param wins - the wins per move number
+		 */
+		void addRootResults(long[] visits, double[] wins) {
+			for (int i = 0; i < tree.childCount; i++) {
+				Node child = tree.children[i];
+				visits[child.move] += child.visits;
+				wins[child.move] += child.wins;
+			}
+		}
+	}
+}
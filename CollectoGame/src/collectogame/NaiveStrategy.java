@@ -1,9 +1,5 @@
 package collectogame;
 
-import java.util.AbstractMap.SimpleEntry;
-import java.util.ArrayList;
-import java.util.List;
-
 public class NaiveStrategy implements Strategy {
 	private String name = "Naive";
 	
@@ -18,38 +14,42 @@ public class NaiveStrategy implements Strategy {
 	public int[] determineMove(Board board, int[] collection) {
 		int[] choice = new int[0];
 		
-		if (board.isStillPossibleSingleMove()) {
-			List<Integer> allChoice = new ArrayList<Integer>();
-			
-			for (int indice = 0; indice <= 27; indice++) {
-				if (board.isValidSingleMove(indice)) {
-					allChoice.add(indice);
-				}
-			}
-			int random = (int) (Math.random() * allChoice.size());
+		int singleMoves = board.getValidSingleMoves();
+		if (singleMoves != 0) {
+			int random = (int) (Math.random() * Integer.bitCount(singleMoves));
 			choice = new int[1];
-			choice[0] = allChoice.get(random);
-		} else if (board.isStillPossibleDoubleMove()) {
-			List<SimpleEntry<Integer, Integer>> allChoice = 
-					new ArrayList<SimpleEntry<Integer, Integer>>();
-			
-			for (int indice1 = 0; indice1 <= 27; indice1++) {
-				for (int indice2 = 0; indice2 <= 27; indice2++) {
-					if (board.isValidDoubleMove(indice1, indice2)) {
-						SimpleEntry<Integer, Integer> possibleChoice 
-								= new SimpleEntry<>(indice1, indice2);
-			
-						allChoice.add(possibleChoice);
-					}
+			choice[0] = getMove(singleMoves, random);
+		} else {
+			int[] secondMoves = new int[28];
+			int doubleMoves = board.getValidDoubleMoves(secondMoves);
+			if (doubleMoves > 0) {
+				int random = (int) (Math.random() * doubleMoves);
+				int move1 = 0;
+				while (random >= Integer.bitCount(secondMoves[move1])) {
+					random -= Integer.bitCount(secondMoves[move1]);
+					move1++;
 				}
+				choice = new int[2];
+				choice[0] = move1;
+				choice[1] = getMove(secondMoves[move1], random);
 			}
-			int random = (int) (Math.random() * allChoice.size());
-			SimpleEntry<Integer, Integer> randomChoice = allChoice.get(random);
-			choice = new int[2];
-			choice[0] = randomChoice.getKey();
-			choice[1] = randomChoice.getValue();
 		}
 		return choice;
 	}
+	
+	/**
+	 * Returns the n-th move of a mask of moves, counting from move 0.
+	 * @requires n < Integer.bitCount(moves)
+	 * @param moves - the mask of moves (see Board.getValidSingleMoves)
+	 * @param n - the number of moves to skip
+	 * @return the indice of the move
+	 */
+	private int getMove(int moves, int n) {
+		int rest = moves;
+		for (int i = 0; i < n; i++) {
+			rest &= rest - 1;
+		}
+		return Integer.numberOfTrailingZeros(rest);
+	}
 
 }
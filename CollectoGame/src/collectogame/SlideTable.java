@@ -0,0 +1,182 @@
+package collectogame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lookup table with the result of a single move for every possible row or column.
+ * A line is packed as a number in base 7: the ball number (see Ball.convertTo) of the
+ * k-th field, counted from the side the balls move to, is digit k. There are 7^7 lines,
+ * so a move becomes one array read instead of shifting the balls one by one.
+ * The result is stored with 3 bits per field, so it can be unpacked with shifts.
+ *
+ * <p>The table is split in pages that are only built when a line of that page is looked
+ * up for the first time. The number of pages kept in memory can be limited; when the limit
+ * is reached an older page is dropped and rebuilt when it is needed again.
+ * A SlideTable can be shared between threads.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class SlideTable {
+	/**
+	 * The number of possible lines, 7^DIM.
+	 */
+	public static final int LINES = 823543;
+
+	/**
+	 * The number of lines per page (7^4) and the number of pages (7^3).
+	 */
+	public static final int PAGE_SIZE = 2401;
+	public static final int PAGES = LINES / PAGE_SIZE;
+
+	/**
+	 * Bits of a table entry: the lower 3 * DIM bits hold the line after the move with
+	 * 3 bits per field (field k in bits 3k to 3k+2), CHANGED is set if at least one ball
+	 * moved and POSSIBLE if the line is not full and not empty, which is when
+	 * Board.makeSingleMove returns true.
+	 */
+	public static final int RESULT_MASK = (1 << 21) - 1;
+	public static final int CHANGED = 1 << 21;
+	public static final int POSSIBLE = 1 << 22;
+
+	/**
+	 * @invariant pages.length() == PAGES
+	 * @invariant maxPages is between 1 and PAGES
+	 * @invariant residentPages is the number of pages that are not null
+	 * @invariant clock is the page where the search for a page to drop continues
+	 */
+	private final AtomicReferenceArray<int[]> pages;
+	private final int maxPages;
+	private final AtomicInteger residentPages;
+	private final AtomicInteger clock;
+
+	/**
+	 * Creates a table that may keep all pages in memory (about 3.3 MB).
+	 */
+	public SlideTable() {
+		this(PAGES);
+	}
+
+	/**
+	 * Creates a table that keeps at most maxPages pages in memory.
+	 * @requires maxPages >= 1
+	 * @param maxPages - the maximum number of pages in memory, at most PAGES are used
+	 */
+	public SlideTable(int maxPages) {
+		this.pages = new AtomicReferenceArray<int[]>(PAGES);
+		this.maxPages = Math.max(1, Math.min(PAGES, maxPages));
+		this.residentPages = new AtomicInteger();
+		this.clock = new AtomicInteger();
+	}
+
+	/**
+	 * Creates a table that uses at most the given number of bytes for its pages.
+	 * @param bytes - the memory budget in bytes
+	 * @return the new table, with at least one page
+	 */
+	public static SlideTable withMemoryBudget(long bytes) {
+		long pageBytes = (long) PAGE_SIZE * Integer.BYTES;
+		return new SlideTable((int) Math.min(PAGES, Math.max(1, bytes / pageBytes)));
+	}
+
+	/**
+	 * Returns the entry of the table for the packed line.
+	 * @requires line is between 0 and LINES
+	 * @ensures result == slide(line)
+	 * @param line - the packed line
+	 * @return the line after the move together with the CHANGED and POSSIBLE bits
+	 */
+	public int lookup(int line) {
+		int pageNumber = line / PAGE_SIZE;
+		int[] page = pages.get(pageNumber);
+		if (page == null) {
+			page = loadPage(pageNumber);
+		}
+		return page[line - pageNumber * PAGE_SIZE];
+	}
+
+	/**
+	 * Builds a page and stores it, dropping another page if there are too many.
+	 * @param pageNumber - the page to build
+	 * @return the built page
+	 */
+	private int[] loadPage(int pageNumber) {
+		int[] page = new int[PAGE_SIZE];
+		int first = pageNumber * PAGE_SIZE;
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			page[i] = slide(first + i);
+		}
+		if (pages.compareAndSet(pageNumber, null, page)) {
+			if (residentPages.incrementAndGet() > maxPages) {
+				dropPage(pageNumber);
+			}
+			return page;
+		}
+		// another thread built it first
+		int[] stored = pages.get(pageNumber);
+		return stored == null ? page : stored;
+	}
+
+	/**
+	 * Drops one page other than the given one, going round the pages like a clock.
+	 * @param keep - the page that was just built
+	 */
+	private void dropPage(int keep) {
+		for (int tries = 0; tries < 2 * PAGES; tries++) {
+			int pageNumber = Math.floorMod(clock.getAndIncrement(), PAGES);
+			if (pageNumber == keep) {
+				continue;
+			}
+			int[] page = pages.get(pageNumber);
+			if ((page != null) && pages.compareAndSet(pageNumber, page, null)) {
+				residentPages.decrementAndGet();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of pages currently in memory.
+	 * @return the number of built pages
+	 */
+	public int getResidentPages() {
+		return residentPages.get();
+	}
+
+	/**
+	 * Returns the maximum number of bytes the pages of this table use.
+	 * @return the memory budget of the table in bytes
+	 */
+	public long getMaxMemory() {
+		return (long) maxPages * PAGE_SIZE * Integer.BYTES;
+	}
+
+	/**
+	 * Calculates the result of a single move on a packed line, without the table.
+	 * The balls are moved to the first fields, keeping their order.
+	 * @requires line is between 0 and LINES
+	 * @param line - the packed line
+	 * @return the line after the move together with the CHANGED and POSSIBLE bits
+	 */
+	public static int slide(int line) {
+		int result = 0;
+		int balls = 0;
+		boolean changed = false;
+		int rest = line;
+		for (int k = 0; k < Board.DIM; k++) {
+			int number = rest % 7;
+			rest = rest / 7;
+			if (number != 0) {
+				if (balls != k) {
+					changed = true;
+				}
+				result |= number << (3 * balls);
+				balls++;
+			}
+		}
+		if ((balls == 0) || (balls == Board.DIM)) {
+			return result;
+		}
+		return result | (changed ? CHANGED : 0) | POSSIBLE;
+	}
+}
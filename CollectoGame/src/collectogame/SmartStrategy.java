@@ -1,59 +1,122 @@
 package collectogame;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class SmartStrategy implements Strategy {
 	
 	/**
 	 * @invariant name - The name of the strategy
-	 * @invariant myCollection - the balls we collected
-	 * @invariant opponentCollection - the balls the opponent collected
-	 * @invariant boardCollections - the balls left on the board
-	 * @invariant copyBoard - a copy of the board
-	 * @invariant allChoice - the possible moves
-	 * @invariant twothreeMove - move that gets two or three balls, because they have one 
-	 * @invariant fourMove1 - you get 4 balls, so can get up to 2 colors (first color)
-	 * @invariant fourmove2 - you get 4 balls, so can get up to 2 colors (second color)
-	 * @invariant gainScore - the score you gain for the move
-	 * @invariant gainBalls - the balls you gain for the move
-	 * @invariant opponentBestGain - The max amount of balls the opponent can get after this move
-	 * @invariant opponentGainScore - The max score the opponent can get after this move
+	 * @invariant parallelism - the number of threads that evaluate the moves, at least 1
+	 * @invariant verbose - true if the evaluated moves and the choice are printed
+	 * @invariant pool - the threads for parallelism > 1, created when first needed
+	 * @invariant contexts - the state of determineMove of every calling thread, see Context
 	 */
 	private String name = "Smart";
-	private int[] myCollection, boardCollection, opponentCollection;
-	Board copyBoard;
-	private int myScore, oppScore;
-	private List<Integer> allChoice;
-	private Ball[] twothreeMove;
-	private Ball[] fourMove1, fourMove2;
-	private int[] gainScore, gainBalls, opponentBestGain, opponentGainScore;
+	private final int parallelism;
+	private final boolean verbose;
+	private ForkJoinPool pool;
+	private final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+	
+	/**
+	 * Creates a SmartStrategy that evaluates the moves on the calling thread and prints
+	 * the evaluated moves and its choice to System.out.
+	 */
+	public SmartStrategy() {
+		this(1);
+	}
+	
+	/**
+	 * Creates a SmartStrategy that evaluates the moves on the given number of threads and
+	 * prints the evaluated moves and its choice to System.out.
+	 * @param parallelism - the number of threads, 1 or less to use the calling thread
+	 */
+	public SmartStrategy(int parallelism) {
+		this(parallelism, true);
+	}
+	
+	/**
+	 * Creates a SmartStrategy that evaluates the moves on the given number of threads.
+	 * Every move is evaluated on its own board copy and writes only its own entries of the
+	 * result arrays, so the chosen move is the same as with one thread. The threads are
+	 * shared by all games that use this strategy, until it is closed.
+	 * @param parallelism - the number of threads, 1 or less to use the calling thread
+	 * @param verbose - true to print the evaluated moves and the choice to System.out,
+	 * false for games without a user, like a tournament or a benchmark
+	 */
+	public SmartStrategy(int parallelism, boolean verbose) {
+		this.parallelism = Math.max(1, parallelism);
+		this.verbose = verbose;
+	}
+	
+	/**
+	 * Returns the threads for the parallel evaluation.
+	 * @return the pool with parallelism threads
+	 */
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+	
+	/**
+	 * Stops the threads of the parallel evaluation. A strategy that is used after it is
+	 * closed starts new threads.
+	 * @ensures the threads stop when their current evaluation is done
+	 */
+	@Override
+	public synchronized void close() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
 	
 	/**
 	 * This method will find the best move of opponent 
 	 * if we choose this move's indice (for both single or double move).
+	 * The replies are tried on the given board and taken back afterwards, and the result
+	 * is stored with the results of the calling thread.
 	 * @param board - the current board
 	 * @param moveIndice - the tested move's indice
 	 * @requires board != null;
 	 * @requires isValidMove(moveIndice) == true;
+	 * @ensures the board is the same as before
 	 */
 	public void updateOppBestMove(Board board, int moveIndice) {
+		Context context = contexts.get();
+		updateOppBestMove(board, moveIndice, context, context.scratch);
+	}
+	
+	/**
+	 * Finds the best reply of the opponent after a move, see updateOppBestMove(Board, int).
+	 * @param board - the board after the move
+	 * @param moveIndice - the tested move's indice
+	 * @param context - the context whose opponent and results are used
+	 * @param scratch - the buffers to try the replies with
+	 */
+	private void updateOppBestMove(Board board, int moveIndice, Context context, 
+			Scratch scratch) {
+		int[] opponentCollection = context.opponentCollection;
+		int oppScore = context.oppScore;
 		int maxGainBalls = -1;
 		int bestScore = -1;
-		if (board.isStillPossibleSingleMove()) {
+		int singleMoves = board.getValidSingleMoves();
+		if (singleMoves != 0) {
 			for (int indice = 0; indice <= 27; indice++) {
-				if (board.isValidSingleMove(indice)) {
-					Board testBoard = board.deepCopy();
-					testBoard.makeSingleMove(indice);
-					List<Ball> collectList = testBoard.collectBall();
-					int possibleGain = collectList.size();
+				if ((singleMoves & (1 << indice)) != 0) {
+					int[] oppGainCollection = 
+							copyCollection(opponentCollection, scratch.collection);
+					board.mark(scratch.undo);
+					board.makeSingleMove(indice);
+					int possibleGain = board.collectBall(oppGainCollection);
+					board.undo(scratch.undo);
 					
 					int oppGainScore = 0;
-					int[] oppGainCollection = new int[7];
-					oppGainCollection = this.getCopyCollection(opponentCollection);
-					for (Ball ball : collectList) {
-						oppGainCollection[ball.convertTo()]++;
-			    	}
 					int oppNewScore = this.calculateScore(oppGainCollection);
 					oppGainScore = oppNewScore - oppScore;
 					
@@ -67,24 +130,18 @@ public class SmartStrategy implements Strategy {
 				}
 			}
 			
-			opponentGainScore[moveIndice] = bestScore;
-			opponentBestGain[moveIndice] =  maxGainBalls;
-		} else if (board.isStillPossibleDoubleMove()) {
-			for (int indice = 0; indice < 28 * 28; indice++) {
-				int move1 = indice / 28;
-				int move2 = indice % 28;
-				if (board.isValidDoubleMove(move1, move2)) {
-					Board testBoard = board.deepCopy();
-					testBoard.makeDoubleMove(move1, move2);
-					List<Ball> collectList = testBoard.collectBall();
-					int possibleGain = collectList.size();
+			context.opponentGainScore[moveIndice] = bestScore;
+			context.opponentBestGain[moveIndice] =  maxGainBalls;
+		} else {
+			scratch.replies.clear();
+			if (board.forEachValidDoubleMove(scratch.replies) > 0) {
+				for (int reply = 0; reply < scratch.replies.size(); reply++) {
+					int[] oppGainCollection = 
+							copyCollection(opponentCollection, scratch.collection);
+					scratch.replies.addCollected(reply, oppGainCollection);
+					int possibleGain = scratch.replies.getCollected(reply);
 					
 					int oppGainScore = 0;
-					int[] oppGainCollection = new int[7];
-					oppGainCollection = this.getCopyCollection(opponentCollection);
-					for (Ball ball : collectList) {
-						oppGainCollection[ball.convertTo()]++;
-			    	}
 					int oppNewScore = this.calculateScore(oppGainCollection);
 					oppGainScore = oppNewScore - oppScore;
 					
@@ -96,10 +153,10 @@ public class SmartStrategy implements Strategy {
 						bestScore = oppGainScore;
 					}
 				}
-			}
 			
-			opponentGainScore[moveIndice] = bestScore;
-			opponentBestGain[moveIndice] =  maxGainBalls;
+				context.opponentGainScore[moveIndice] = bestScore;
+				context.opponentBestGain[moveIndice] =  maxGainBalls;
+			}
 		}
 		
 	}
@@ -109,49 +166,24 @@ public class SmartStrategy implements Strategy {
 	 * this method will calculate your possible gained balls and scores for that move
 	 * it also classify the move get 4 ball (with 1-2 color)
 	 * and the move get 2-3 ball (with only 1 color)
-	 * because these are the most common situation
+	 * because these are the most common situation.
+	 * The moves and results are the ones of the calling thread.
 	 */
 	public void calculateAllSingleMove() {
-		gainScore = new int[28];
-		gainBalls = new int[28];
-		opponentBestGain = new int[28];
-		opponentGainScore = new int[28];
-		twothreeMove = new Ball[28];
-		fourMove1 = new Ball[28];
-		fourMove2 = new Ball[28];
- 		for (int moveIndice : allChoice) {
-			
-			Board testMoveBoard = copyBoard.deepCopy();
-			testMoveBoard.makeSingleMove(moveIndice);
-			
-			List<Ball> possibleCollectedBalls = testMoveBoard.collectBall();
-			
-			gainBalls[moveIndice] = possibleCollectedBalls.size();
-			
-			if (possibleCollectedBalls.size() <= 3) {
-				twothreeMove[moveIndice] = possibleCollectedBalls.get(0);
-			}
-			
-			if (possibleCollectedBalls.size() == 4) {
-				fourMove1[moveIndice] = possibleCollectedBalls.get(0);
-				fourMove2[moveIndice] = possibleCollectedBalls.get(1);
-				for (Ball ball : possibleCollectedBalls) {
-					if (!ball.equals(fourMove1[moveIndice])) {
-						fourMove2[moveIndice] = ball;
-					}
-				}
-			}
-			
-			int[] possibleNewCollection = new int[7];
-			possibleNewCollection = getCopyCollection(this.myCollection);
-			
-			for (Ball ball : possibleCollectedBalls) {
-				possibleNewCollection[ball.convertTo()]++;
-			}
-			
-			gainScore[moveIndice] = calculateScore(possibleNewCollection) - myScore;
-			
-			this.updateOppBestMove(testMoveBoard, moveIndice);
+		Context context = contexts.get();
+		context.clearResults(28);
+		if (parallelism > 1) {
+			getPool().invoke(new MoveTask(context, false, 0, context.allChoice.size()));
+			return;
+		}
+		Board copyBoard = context.copyBoard;
+		Scratch scratch = context.scratch;
+		for (int index = 0; index < context.allChoice.size(); index++) {
+			int moveIndice = context.allChoice.get(index);
+			copyBoard.mark(scratch.undo);
+			copyBoard.makeSingleMove(moveIndice);
+			evaluateMove(copyBoard, moveIndice, context, scratch);
+			copyBoard.undo(scratch.undo);
 		}
 	}
 	
@@ -160,70 +192,161 @@ public class SmartStrategy implements Strategy {
 	 * this method will calculate your possible gained balls and scores for that move
 	 * it also classify the move get 4 ball (with 1-2 color)
 	 * and the move get 2-3 ball (with only 1 color)
-	 * because these are the most common situation
+	 * because these are the most common situation.
+	 * Every first move is made once for all its second moves, see Board.forEachValidDoubleMove.
+	 * The moves and results are the ones of the calling thread.
 	 */
 	public void calculateAllDoubleMove() {
-		gainScore = new int[28 * 28];
-		gainBalls = new int[28 * 28];
-		opponentBestGain = new int[28 * 28];
-		opponentGainScore = new int[28 * 28];
-		twothreeMove = new Ball[28 * 28];
-		fourMove1 = new Ball[28 * 28];
-		fourMove2 = new Ball[28 * 28];
-		
- 		for (int moveIndice : allChoice) {
-			
-			Board testMoveBoard = copyBoard.deepCopy();
-			int move1 = moveIndice / 28;
-			int move2 = moveIndice % 28;
-			testMoveBoard.makeDoubleMove(move1, move2);
-			
-			List<Ball> possibleCollectedBalls = testMoveBoard.collectBall();
-			
-			gainBalls[moveIndice] = possibleCollectedBalls.size();
-			
-			if (possibleCollectedBalls.size() <= 3) {
-				twothreeMove[moveIndice] = possibleCollectedBalls.get(0);
+		Context context = contexts.get();
+		context.clearResults(28 * 28);
+		if (parallelism > 1) {
+			getPool().invoke(new MoveTask(context, true, 0, 28));
+			return;
+		}
+		context.copyBoard.forEachValidDoubleMove((board, move1, move2) ->
+				evaluateMove(board, move1 * 28 + move2, context, context.scratch));
+	}
+	
+	/**
+	 * Evaluates a part of the moves on a copy of the board of a context, which is kept in
+	 * the scratch of the thread that runs the task, so the tasks do not allocate. A task of
+	 * single moves covers a range of allChoice, a task of double moves a range of first
+	 * moves. Tasks are split until they hold one single move or one first move.
+	 */
+	private class MoveTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Context context;
+		private final boolean doubleMoves;
+		private final int from;
+		private final int to;
+		
+		/**
+		 * Creates a task for the moves from and up to, but not including, to.
+		 * @param context - the context with the moves, which receives the results
+		 * @param doubleMoves - true for double moves, false for the single moves in allChoice
+		 * @param from - the first move or index in allChoice
+		 * @param to - the end of the range
+		 */
+		MoveTask(Context context, boolean doubleMoves, int from, int to) {
+			this.context = context;
+			this.doubleMoves = doubleMoves;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new MoveTask(context, doubleMoves, from, middle), 
+						new MoveTask(context, doubleMoves, middle, to));
+				return;
 			}
-			
-			if (possibleCollectedBalls.size() == 4) {
-				fourMove1[moveIndice] = possibleCollectedBalls.get(0);
-				fourMove2[moveIndice] = possibleCollectedBalls.get(1);
-				for (Ball ball : possibleCollectedBalls) {
-					if (!ball.equals(fourMove1[moveIndice])) {
-						fourMove2[moveIndice] = ball;
-					}
-				}
+			if (from >= to || (doubleMoves && context.secondMoves[from] == 0)) {
+				return;
 			}
-			
-			int[] possibleNewCollection = new int[7];
-			possibleNewCollection = getCopyCollection(this.myCollection);
-			
-			for (Ball ball : possibleCollectedBalls) {
-				possibleNewCollection[ball.convertTo()]++;
+			// the scratch of the thread that runs the task, which is the calling thread of
+			// determineMove when it helps, but that thread does not use its scratch meanwhile
+			Scratch taskScratch = contexts.get().scratch;
+			Board board = taskScratch.board;
+			board.copyFrom(context.copyBoard);
+			if (!doubleMoves) {
+				int moveIndice = context.allChoice.get(from);
+				board.makeSingleMove(moveIndice);
+				evaluateMove(board, moveIndice, context, taskScratch);
+				return;
+			}
+			int move1 = from;
+			int secondMoves = context.secondMoves[move1];
+			board.makeSingleMove(move1);
+			for (int move2 = 0; move2 <= 27; move2++) {
+				if ((secondMoves & (1 << move2)) != 0) {
+					board.mark(taskScratch.undo);
+					board.makeSingleMove(move2);
+					evaluateMove(board, move1 * 28 + move2, context, taskScratch);
+					board.undo(taskScratch.undo);
+				}
 			}
-			
-			gainScore[moveIndice] = calculateScore(possibleNewCollection) - myScore;
-			
-			this.updateOppBestMove(testMoveBoard, moveIndice);
 		}
 	}
 	
+	/**
+	 * Calculates the gained balls and score of a move and the best reply of the opponent.
+	 * Only the entries of moveIndice in the result arrays of the context are written.
+	 * @param board - the board after the move, before the balls are collected
+	 * @param moveIndice - the move, move1 * 28 + move2 for a double move
+	 * @param context - the context whose collections are used and which gets the results
+	 * @param scratch - the buffers to try the replies with
+	 * @requires board.isCollectableBoard() == true
+	 * @ensures the balls of the move are collected from the board
+	 */
+	private void evaluateMove(Board board, int moveIndice, Context context, Scratch scratch) {
+		int[] myCollection = context.myCollection;
+		Ball firstBall = board.getField(Long.numberOfTrailingZeros(board.getCollectableMask()));
+		int[] possibleNewCollection = copyCollection(myCollection, scratch.collection);
+		int possibleGain = board.collectBall(possibleNewCollection);
+		
+		context.gainBalls[moveIndice] = possibleGain;
+		
+		if (possibleGain <= 3) {
+			context.twothreeMove[moveIndice] = firstBall;
+		}
+		
+		if (possibleGain == 4) {
+			// 4 balls have 1 or 2 colors, the second color is the one that is not the first
+			context.fourMove1[moveIndice] = firstBall;
+			context.fourMove2[moveIndice] = firstBall;
+			for (int colour = 1; colour < 7; colour++) {
+				if ((possibleNewCollection[colour] != myCollection[colour]) 
+						&& (colour != firstBall.convertTo())) {
+					context.fourMove2[moveIndice] = Ball.convertTo(colour);
+				}
+			}
+		}
+		
+		context.gainScore[moveIndice] = calculateScore(possibleNewCollection) - context.myScore;
+		
+		updateOppBestMove(board, moveIndice, context, scratch);
+	}
 
 
 	/**
 	 * This method is choose the best move among those move that get 2,3,4 balls.
+	 * The results of the last evaluation of the calling thread are used.
 	 * @param list - the list of move get 2,3,4 balls
 	 * @return the priority list of move
 	 */
 	public List<Integer> sortPriority(List<Integer> list) {
-		List<Integer> priorList = new ArrayList<Integer>();
-		List<Integer> oppGain1 = new ArrayList<Integer>();
-		List<Integer> oppGain2 = new ArrayList<Integer>();
-		List<Integer> oppGain3 = new ArrayList<Integer>();
+		return sortPriority(MoveList.of(list), contexts.get()).toList();
+	}
+	
+	/**
+	 * Sorts moves on priority, see sortPriority(List).
+	 * @param list - the moves that get 2,3,4 balls
+	 * @param context - the context with the results of the moves
+	 * @return the priority list of the moves, a list of the context
+	 */
+	private MoveList sortPriority(MoveList list, Context context) {
+		int[] gainScore = context.gainScore;
+		int[] opponentGainScore = context.opponentGainScore;
+		int[] gainBalls = context.gainBalls;
+		Ball[] fourMove1 = context.fourMove1;
+		Ball[] fourMove2 = context.fourMove2;
+		Ball[] twothreeMove = context.twothreeMove;
+		int[] opponentCollection = context.opponentCollection;
+		int[] myCollection = context.myCollection;
+		MoveList priorList = context.priorList;
+		priorList.clear();
+		MoveList oppGain1 = context.oppGain1;
+		oppGain1.clear();
+		MoveList oppGain2 = context.oppGain2;
+		oppGain2.clear();
+		MoveList oppGain3 = context.oppGain3;
+		oppGain3.clear();
 		//opponentGainScore[move]
 		// 1 move gain 2 score
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (gainScore[move] == 2) {
 				if  (opponentGainScore[move] == 0) {
 					priorList.add(move);
@@ -240,7 +363,8 @@ public class SmartStrategy implements Strategy {
 		oppGain1.clear();
 
 		// 2 4 ball at opp = 2, you = 4
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (gainBalls[move] == 4) {
 				Ball ball = fourMove1[move];
 				if ((!priorList.contains(move)) && (opponentCollection[ball.convertTo()] == 2) 
@@ -275,7 +399,8 @@ public class SmartStrategy implements Strategy {
 		oppGain1.clear();
 		
 		// 3 4 ball at opp = 4, you = 2
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (gainBalls[move] == 4) {
 				Ball ball = fourMove1[move];
 				if ((!priorList.contains(move)) && (opponentCollection[ball.convertTo()] == 4) 
@@ -309,7 +434,8 @@ public class SmartStrategy implements Strategy {
 
 		
 		// 4 3 ball at opp = 4, you = 0 
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (gainBalls[move] == 3) {
 				Ball ball = twothreeMove[move];
 				if ((!priorList.contains(move)) && (opponentCollection[ball.convertTo()] == 4) 
@@ -330,7 +456,8 @@ public class SmartStrategy implements Strategy {
 		oppGain1.clear();
 		
 		// 5 2 ball at opp = 2, you = 4 
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (gainBalls[move] == 2) {
 				Ball ball = twothreeMove[move];
 				if ((!priorList.contains(move)) && (opponentCollection[ball.convertTo()] == 2) 
@@ -351,7 +478,8 @@ public class SmartStrategy implements Strategy {
 		oppGain1.clear();
 		
 		// 6 3 ball at you = 0
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
             if (gainBalls[move] == 3) {
                 Ball ball = twothreeMove[move];
                 if ((!priorList.contains(move)) && (myCollection[ball.convertTo()] == 0)) {
@@ -370,7 +498,8 @@ public class SmartStrategy implements Strategy {
 
 		
 		// 7 2 ball at opp = 4, you = 2 
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (gainBalls[move] == 2) {
 				Ball ball = twothreeMove[move];
 				if ((!priorList.contains(move)) && (opponentCollection[ball.convertTo()] == 4) 
@@ -389,7 +518,8 @@ public class SmartStrategy implements Strategy {
 		}
 
 		//8 gain 1 score but opp gain 0 scores
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if ((!priorList.contains(move)) && (gainScore[move] == 1)) {
 				if  (opponentGainScore[move] == 0) {
 					priorList.add(move);
@@ -406,7 +536,8 @@ public class SmartStrategy implements Strategy {
 		oppGain1.clear();
 		
 		//9 other moves except opp 6 you 0
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (!priorList.contains(move)) {
 				Ball ball;
 				if (gainBalls[move] == 4) {
@@ -445,7 +576,8 @@ public class SmartStrategy implements Strategy {
 		oppGain1.clear();
 		
 		//10 your opponent get 1 ball higher
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (!priorList.contains(move)) {
 				if  (opponentGainScore[move] == 0) {
 					priorList.add(move);
@@ -466,45 +598,72 @@ public class SmartStrategy implements Strategy {
 	
 	/**
 	 * This method will divide the move get 2,3,4 ball into 2 sublist.
+	 * The results of the last evaluation of the calling thread are used.
 	 * @param list - list of moves that get 2,3,4 balls
 	 * @requires list != null
 	 * @return 1st list if move you get more or equal balls || 2nd list if you get less balls
 	 */
 	public int handle(List<Integer> list) {
-		List<Integer> equalList = new ArrayList<Integer>();
-		List<Integer> lessList = new ArrayList<Integer>();
-		for (int move : list) {
+		return handle(MoveList.of(list), contexts.get());
+	}
+	
+	/**
+	 * Chooses among moves that get 2,3,4 balls, see handle(List).
+	 * @param list - the moves that get 2,3,4 balls
+	 * @param context - the context with the results of the moves
+	 * @return the chosen move
+	 */
+	private int handle(MoveList list, Context context) {
+		int[] gainBalls = context.gainBalls;
+		int[] opponentBestGain = context.opponentBestGain;
+		MoveList equalList = context.equalList;
+		MoveList lessList = context.lessList;
+		equalList.clear();
+		lessList.clear();
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (gainBalls[move] >= opponentBestGain[move]) {
 				equalList.add(move);
 			} else {
 				lessList.add(move);
 			}
 		}
-		List<Integer> subList;
 		if (equalList.size() > 0) {
-			subList = new ArrayList<>(equalList.subList(0, equalList.size()));
-			equalList = sortPriority(subList);
-			return equalList.get(0);
+			return sortPriority(equalList, context).get(0);
 		} else {
-			subList = new ArrayList<>(lessList.subList(0, lessList.size()));
-			lessList = sortPriority(subList);
-			return lessList.get(0);
+			return sortPriority(lessList, context).get(0);
 		}
 	}
 	
 	/**
 	 * Find the best move among the list of move you have more ball than opponent.
+	 * The results of the last evaluation of the calling thread are used.
 	 * @param list - the list of move that player will gain more balls
 	 * @requires list != null;
 	 * @return the best move among move that you have more ball
 	 */
 	public int findBestMoreMove(List<Integer> list) {
+		return findBestMoreMove(MoveList.of(list), contexts.get());
+	}
+	
+	/**
+	 * Finds the best move among moves you get more balls with, see findBestMoreMove(List).
+	 * @param list - the moves
+	 * @param context - the context with the results of the moves
+	 * @return the best move, or -1 if there is none
+	 */
+	private int findBestMoreMove(MoveList list, Context context) {
+		int[] gainBalls = context.gainBalls;
+		int[] opponentBestGain = context.opponentBestGain;
+		int[] gainScore = context.gainScore;
+		int[] opponentGainScore = context.opponentGainScore;
 		int maxBall = -1;
 		int maxDifferGain = -1;
 		int bestMove = -1;
 		int maxScore = -1;
 		int leastOppGainScore = 100;
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if (gainBalls[move] <= opponentBestGain[move]) {
 				continue;
 			}
@@ -545,17 +704,33 @@ public class SmartStrategy implements Strategy {
 
 	/**
 	 * Find the best move among the list of move you have less balls than opponent.
+	 * The results of the last evaluation of the calling thread are used.
 	 * @param list the list of move that player will gain less balls
 	 * @requires list != null;
 	 * @return the best move among move that you have less ball
 	 */
 	public int findBestLessMove(List<Integer> list) {
+		return findBestLessMove(MoveList.of(list), contexts.get());
+	}
+	
+	/**
+	 * Finds the best move among moves you get less balls with, see findBestLessMove(List).
+	 * @param list - the moves
+	 * @param context - the context with the results of the moves
+	 * @return the best move, or -1 if there is none
+	 */
+	private int findBestLessMove(MoveList list, Context context) {
+		int[] gainBalls = context.gainBalls;
+		int[] opponentBestGain = context.opponentBestGain;
+		int[] gainScore = context.gainScore;
+		int[] opponentGainScore = context.opponentGainScore;
 		int leastDiff = 100;
 		int leastOppGainScore = 100;
 		int leastBall = 100;
 		int maxScore = -1;
 		int bestMove = -1;
-		for (int move : list) {
+		for (int index = 0; index < list.size(); index++) {
+			int move = list.get(index);
 			if ((opponentBestGain[move] - gainBalls[move]) < leastDiff) {
 				leastDiff = opponentBestGain[move] - gainBalls[move];
 				leastBall = opponentBestGain[move];
@@ -594,58 +769,75 @@ public class SmartStrategy implements Strategy {
 	
 	@Override
 	public int[] determineMove(Board board, int[] collection) {
+		Context context = contexts.get();
+		int[] myCollection = context.myCollection;
+		int[] opponentCollection = context.opponentCollection;
+		Board copyBoard = context.copyBoard;
+		int[] secondMoves = context.secondMoves;
+		int[] gainScore = context.gainScore;
+		int[] gainBalls = context.gainBalls;
+		int[] opponentBestGain = context.opponentBestGain;
+		int[] opponentGainScore = context.opponentGainScore;
+		MoveList allChoice = context.allChoice;
+		MoveList subChoice = context.subChoice;
 		int[] choice = new int[0];
-		allChoice = new ArrayList<Integer>();
-		myCollection = this.getCopyCollection(collection);
-		myScore = this.calculateScore(collection);
-		copyBoard = board.deepCopy();
+		allChoice.clear();
+		copyCollection(collection, myCollection);
+		context.myScore = calculateScore(collection);
+		copyBoard.copyFrom(board);
 		calculateCollection();
-		oppScore = this.calculateScore(opponentCollection);
-		if (board.isStillPossibleSingleMove()) {
+		context.oppScore = calculateScore(opponentCollection);
+		int singleMoves = copyBoard.getValidSingleMoves();
+		if (singleMoves != 0) {
 			choice = new int[1];
 			//get All possible moves
 			for (int indice = 0; indice <= 27; indice++) {
-				if (copyBoard.isValidSingleMove(indice)) {
+				if ((singleMoves & (1 << indice)) != 0) {
 					allChoice.add(indice);
 				}
 			}
-			
+		
 			// set random move to make sure at least 1 move will be return
 			int random = (int) (Math.random() * allChoice.size());
 			choice[0] = allChoice.get(random);
-			
+		
 			//calculate possible score, balls and opponent's best move
 			calculateAllSingleMove();
-			for (int move : allChoice) {
-				System.out.println("With move " + move + " you gain " + gainBalls[move] 
-						+ " balls and " + gainScore[move] + " score, but opponent can gain " 
-						+ opponentBestGain[move] + "balls and " 
-						+ opponentGainScore[move] + "scores");
+			if (verbose) {
+				for (int index = 0; index < allChoice.size(); index++) {
+					int move = allChoice.get(index);
+					System.out.println("With move " + move + " you gain " + gainBalls[move] 
+							+ " balls and " + gainScore[move] + " score, but opponent can gain " 
+							+ opponentBestGain[move] + "balls and " 
+							+ opponentGainScore[move] + "scores");
+				}
 			}
-			
+		
 			//in case no equal or more move
-			int possibleMove = findBestLessMove(allChoice);
-			List<Integer> subChoice = new ArrayList<Integer>();
-			for (Integer move : allChoice) {
+			int possibleMove = findBestLessMove(allChoice, context);
+			subChoice.clear();
+			for (int index = 0; index < allChoice.size(); index++) {
+				int move = allChoice.get(index);
 				if (opponentBestGain[move] - gainBalls[move] <= 2) {
 					subChoice.add(move);
 				}
 			}
 			if (subChoice.size() > 0) {
-				allChoice = new ArrayList<Integer>(subChoice.subList(0, subChoice.size()));
-			
+				allChoice = subChoice;
+		
 				//check if there is a move you will gain more than opponent
-				int bestMoreMove =  findBestMoreMove(allChoice);
-			
+				int bestMoreMove =  findBestMoreMove(allChoice, context);
+		
 				if (bestMoreMove != -1) {
 					possibleMove = bestMoreMove;
 				} else {
-			
+		
 					// next filer if a move gain >=5 => take it
 					int maxBall = -1;
 					int bestMove = -1;
 					int maxScore = -1;
-					for (int move : allChoice) {
+					for (int index = 0; index < allChoice.size(); index++) {
+						int move = allChoice.get(index);
 						if (gainBalls[move] > maxBall) {
 							bestMove = move;
 							maxBall = gainBalls[move];
@@ -656,62 +848,69 @@ public class SmartStrategy implements Strategy {
 							maxScore = gainScore[move];
 						}
 					}
-				
+			
 					if ((bestMove != -1) && (maxBall >= 5)) {
 						possibleMove = bestMove;
 					} else {
 						// method to handle 2,3,4 ball
-						possibleMove = handle(allChoice);
+						possibleMove = handle(allChoice, context);
 					}
 				}
 			}
 			choice[0] = possibleMove;
-			System.out.println("Best choice is" + choice[0]);
-		
-		} else if (board.isStillPossibleDoubleMove()) {
+			if (verbose) {
+				System.out.println("Best choice is" + choice[0]);
+			}
+	
+		} else if (copyBoard.getValidDoubleMoves(secondMoves) > 0) {
 			choice = new int[2];
 			for (int indice = 0; indice < 28 * 28; indice++) {
 				int move1 = indice / 28;
 				int move2 = indice % 28;
-				if (copyBoard.isValidDoubleMove(move1, move2)) {
+				if ((secondMoves[move1] & (1 << move2)) != 0) {
 					allChoice.add(indice);
 				}
 			}
 			calculateAllDoubleMove();
-			for (int move : allChoice) {
-				int move1 = move / 28;
-				int move2 = move % 28;
-				System.out.println("With move " + move1 + "-> " 
-						+ move2 + " you gain " + gainBalls[move] 
-						+ " balls and " + gainScore[move] + " score, but opponent can gain " 
-						+ opponentBestGain[move] + "balls and " 
-						+ opponentGainScore[move] + "scores");
+			if (verbose) {
+				for (int index = 0; index < allChoice.size(); index++) {
+					int move = allChoice.get(index);
+					int move1 = move / 28;
+					int move2 = move % 28;
+					System.out.println("With move " + move1 + "-> " 
+							+ move2 + " you gain " + gainBalls[move] 
+							+ " balls and " + gainScore[move] + " score, but opponent can gain " 
+							+ opponentBestGain[move] + "balls and " 
+							+ opponentGainScore[move] + "scores");
+				}
 			}
 			int random = (int) (Math.random() * allChoice.size());
 			int possibleMove = allChoice.get(random);
-			
-			List<Integer> subChoice = new ArrayList<Integer>();
-			for (Integer move : allChoice) {
+		
+			subChoice.clear();
+			for (int index = 0; index < allChoice.size(); index++) {
+				int move = allChoice.get(index);
 				if (opponentBestGain[move] - gainBalls[move] <= 2) {
 					subChoice.add(move);
 				}
 			}
-			
+		
 			if (subChoice.size() > 0) {
-				allChoice = new ArrayList<Integer>(subChoice.subList(0, subChoice.size()));
-			
+				allChoice = subChoice;
+		
 				//check if there is a move you will gain more than opponent
-				int bestMoreMove =  findBestMoreMove(allChoice);
-			
+				int bestMoreMove =  findBestMoreMove(allChoice, context);
+		
 				if (bestMoreMove != -1) {
 					possibleMove = bestMoreMove;
 				} else {
-			
+		
 					// next filer if a move gain >=5 => take it
 					int maxBall = -1;
 					int bestMove = -1;
 					int maxScore = -1;
-					for (int move : allChoice) {
+					for (int index = 0; index < allChoice.size(); index++) {
+						int move = allChoice.get(index);
 						if (gainBalls[move] > maxBall) {
 							bestMove = move;
 							maxBall = gainBalls[move];
@@ -722,16 +921,18 @@ public class SmartStrategy implements Strategy {
 							maxScore = gainScore[move];
 						}
 					}
-				
+			
 					if ((bestMove != -1) && (maxBall >= 5)) {
 						possibleMove = bestMove;
 					} else {
 						// method to handle 2,3,4 ball
-						possibleMove = handle(allChoice);
+						possibleMove = handle(allChoice, context);
 					}
 				}
 			}
-			System.out.println("My best move is " + possibleMove);
+			if (verbose) {
+				System.out.println("My best move is " + possibleMove);
+			}
 			choice[0] = possibleMove / 28;
 			choice[1] = possibleMove % 28;
 		}
@@ -751,21 +952,37 @@ public class SmartStrategy implements Strategy {
 		return copy;
 	}
 	
+	/**
+	 * Copies the balls of a collection into another collection.
+	 * @param collection - the player's ball collection
+	 * @param copy - the collection to overwrite, of length 7
+	 * @return the copy
+	 */
+	private static int[] copyCollection(int[] collection, int[] copy) {
+		for (int i = 1; i < 7; i++) {
+			copy[i] = collection[i];
+		}
+		return copy;
+	}
+	
 	/**
 	 * Calculate the opponent's collection. 
 	 * based on player and the number of ball in board.
+	 * The board and collections are the ones of the calling thread.
 	 */
 	public void calculateCollection() {
-		boardCollection = new int[7];
-		opponentCollection = new int[7];
+		Context context = contexts.get();
+		int[] boardCollection = context.boardCollection;
+		int[] opponentCollection = context.opponentCollection;
+		Arrays.fill(boardCollection, 0);
 		for (int i = 0; i < Board.DIM; i++) {
 			for (int j = 0; j < Board.DIM; j++) {
-				boardCollection[copyBoard.getField(i, j).convertTo()]++;
+				boardCollection[context.copyBoard.getField(i, j).convertTo()]++;
 			}
 		}
 		
 		for (int i = 1; i < 7; i++) {
-			opponentCollection[i] = 8 - boardCollection[i] - myCollection[i];
+			opponentCollection[i] = 8 - boardCollection[i] - context.myCollection[i];
 		}
 	}
 	
@@ -786,4 +1003,153 @@ public class SmartStrategy implements Strategy {
 	public String getName() {
 		return this.name;
 	}
+	
+	/**
+	 * A list of moves in an int array. It is cleared and filled again for every move that is
+	 * determined, so the moves are not boxed and nothing is allocated once it is large
+	 * enough.
+	 */
+	private static final class MoveList {
+		/**
+		 * @invariant moves - the moves in the first size entries, a move can be added twice
+		 * @invariant contained - contained[move] iff the move is in the list
+		 */
+		private int[] moves = new int[28 * 28];
+		private int size;
+		private final boolean[] contained = new boolean[28 * 28];
+		
+		/**
+		 * Returns a new list with the moves of a list.
+		 * @param list - the moves
+		 * @return the list
+		 */
+		private static MoveList of(List<Integer> list) {
+			MoveList moves = new MoveList();
+			for (int move : list) {
+				moves.add(move);
+			}
+			return moves;
+		}
+		
+		/**
+		 * Returns the moves as a new list.
+		 * @return the moves
+		 */
+		private List<Integer> toList() {
+			List<Integer> list = new ArrayList<Integer>();
+			for (int index = 0; index < size; index++) {
+				list.add(moves[index]);
+			}
+			return list;
+		}
+		
+		private int size() {
+			return size;
+		}
+		
+		private int get(int index) {
+			return moves[index];
+		}
+		
+		private boolean contains(int move) {
+			return contained[move];
+		}
+		
+		private void add(int move) {
+			if (size == moves.length) {
+				moves = Arrays.copyOf(moves, 2 * size);
+			}
+			moves[size++] = move;
+			contained[move] = true;
+		}
+		
+		private void addAll(MoveList list) {
+			for (int index = 0; index < list.size; index++) {
+				add(list.moves[index]);
+			}
+		}
+		
+		private void clear() {
+			for (int index = 0; index < size; index++) {
+				contained[moves[index]] = false;
+			}
+			size = 0;
+		}
+	}
+	
+	/**
+	 * The buffers one thread needs to evaluate moves: the undo stack to try moves with, 
+	 * the double moves of the opponent, a collection to add the collected balls to and a
+	 * board to copy the board of a parallel evaluation to.
+	 */
+	private static final class Scratch {
+		private final Board board = new Board();
+		private final BoardUndo undo = new BoardUndo();
+		private final DoubleMoves replies = new DoubleMoves();
+		private final int[] collection = new int[7];
+	}
+	
+	/**
+	 * The state of determineMove. Every thread that calls determineMove has its own
+	 * context, which is reused for all its calls, so one strategy can play many games at
+	 * the same time and the arrays are allocated once per thread.
+	 */
+	private static final class Context {
+		/**
+		 * @invariant myCollection - the balls we collected
+		 * @invariant opponentCollection - the balls the opponent collected
+		 * @invariant boardCollections - the balls left on the board
+		 * @invariant copyBoard - a copy of the board
+		 * @invariant scratch - the buffers to try moves on copyBoard
+		 * @invariant allChoice - the possible moves
+		 * @invariant subChoice - the possible moves after the first filter
+		 * @invariant priorList, oppGain1-3, equalList and lessList - the lists of
+		 * sortPriority and handle
+		 * @invariant secondMoves - the valid second moves of every first move
+		 * @invariant twothreeMove - move that gets two or three balls, because they have one 
+		 * @invariant fourMove1 - you get 4 balls, so can get up to 2 colors (first color)
+		 * @invariant fourmove2 - you get 4 balls, so can get up to 2 colors (second color)
+		 * @invariant gainScore - the score you gain for the move
+		 * @invariant gainBalls - the balls you gain for the move
+		 * @invariant opponentBestGain - The max amount of balls the opponent can get after 
+		 * this move
+		 * @invariant opponentGainScore - The max score the opponent can get after this move
+		 */
+		private final int[] myCollection = new int[7];
+		private final int[] boardCollection = new int[7];
+		private final int[] opponentCollection = new int[7];
+		private final Board copyBoard = new Board();
+		private final Scratch scratch = new Scratch();
+		private int myScore, oppScore;
+		private final MoveList allChoice = new MoveList();
+		private final MoveList subChoice = new MoveList();
+		private final MoveList priorList = new MoveList();
+		private final MoveList oppGain1 = new MoveList();
+		private final MoveList oppGain2 = new MoveList();
+		private final MoveList oppGain3 = new MoveList();
+		private final MoveList equalList = new MoveList();
+		private final MoveList lessList = new MoveList();
+		private final int[] secondMoves = new int[28];
+		private final Ball[] twothreeMove = new Ball[28 * 28];
+		private final Ball[] fourMove1 = new Ball[28 * 28];
+		private final Ball[] fourMove2 = new Ball[28 * 28];
+		private final int[] gainScore = new int[28 * 28];
+		private final int[] gainBalls = new int[28 * 28];
+		private final int[] opponentBestGain = new int[28 * 28];
+		private final int[] opponentGainScore = new int[28 * 28];
+		
+		/**
+		 * Sets the first entries of the result arrays back to no result.
+		 * @param size - the number of entries, 28 for single and 28 * 28 for double moves
+		 */
+		private void clearResults(int size) {
+			Arrays.fill(gainScore, 0, size, 0);
+			Arrays.fill(gainBalls, 0, size, 0);
+			Arrays.fill(opponentBestGain, 0, size, 0);
+			Arrays.fill(opponentGainScore, 0, size, 0);
+			Arrays.fill(twothreeMove, 0, size, null);
+			Arrays.fill(fourMove1, 0, size, null);
+			Arrays.fill(fourMove2, 0, size, null);
+		}
+	}
 }
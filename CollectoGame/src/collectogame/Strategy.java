@@ -1,7 +1,7 @@
 package collectogame;
 
 
-public interface Strategy {
+public interface Strategy extends AutoCloseable {
 	
 	/**
 	 * Return Strategy's name.
@@ -20,5 +20,13 @@ public interface Strategy {
 	 * @return SingleMove or DoubleMove
 	 */
 	public int[] determineMove(Board board, int[] collection);
+	
+	/**
+	 * Stops the threads the strategy started, if it has any. A strategy that is used after
+	 * it is closed starts new threads.
+	 */
+	@Override
+	public default void close() {
+	}
 }
 
@@ -0,0 +1,293 @@
+package collectogame;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size table of searched positions for search strategies such as AlphaBetaStrategy.
+ * Every entry holds the depth a position was searched to, the kind of bound its value is,
+ * the value and the best move, packed in one long next to the 64 bit key of the position.
+ * The table is two arrays of longs, so it allocates nothing after it is created.
+ *
+ * <p>The entries are grouped in buckets of two. A new position replaces, in this order, an
+ * entry of the same position, an empty entry, an entry of an older search (see newSearch)
+ * or the entry that was searched least deep. Deep results of the current search stay in
+ * the table, while results of earlier moves make room.
+ *
+ * <p>The key is stored xor-ed with the data, so an entry that was written by two threads
+ * at the same time does not match any key and is seen as empty. The table can be shared
+ * by several threads; its counters are then approximate.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class TranspositionTable {
+	/**
+	 * The default memory of a table in megabytes.
+	 */
+	public static final int DEFAULT_MEGABYTES = 16;
+
+	/**
+	 * The bound types: the value is exact, at least (LOWER) or at most (UPPER) the value.
+	 * An entry with bound NONE is empty.
+	 */
+	public static final int NONE = 0;
+	public static final int EXACT = 1;
+	public static final int LOWER = 2;
+	public static final int UPPER = 3;
+
+	/**
+	 * The largest depth of an entry, used for positions where the game is over.
+	 */
+	public static final int MAX_DEPTH = 255;
+
+	/**
+	 * The move of an entry without a best move.
+	 */
+	public static final int NO_MOVE = -1;
+
+	/**
+	 * The layout of the data: value in bits 0-31, move + 1 in 32-41, depth in 42-49,
+	 * bound in 50-51 and the age of the search in 52-59.
+	 */
+	private static final int MOVE_SHIFT = 32;
+	private static final int DEPTH_SHIFT = 42;
+	private static final int BOUND_SHIFT = 50;
+	private static final int AGE_SHIFT = 52;
+	private static final long MOVE_MASK = 0x3FF;
+	private static final long BYTE_MASK = 0xFF;
+
+	/**
+	 * The number of bytes of an entry: the key and the data.
+	 */
+	private static final int ENTRY_BYTES = 16;
+
+	/**
+	 * @invariant keys.length == data.length, a power of 2 and at least 2
+	 * @invariant keys[i] ^ data[i] is the key of the position of entry i
+	 * @invariant age is the number of the current search, modulo 256
+	 * @invariant probes, hits, collisions and stores count the calls since clear
+	 */
+	private final long[] keys;
+	private final long[] data;
+	private final int mask;
+	private volatile int age;
+	private long probes;
+	private long hits;
+	private long collisions;
+	private long stores;
+
+	/**
+	 * Creates a table of DEFAULT_MEGABYTES.
+	 */
+	public TranspositionTable() {
+		this(DEFAULT_MEGABYTES);
+	}
+
+	/**
+	 * Creates a table that uses at most the given memory. The number of entries is the
+	 * largest power of 2 that fits, with a minimum of one bucket.
+	 * @param megabytes - the memory of the table
+	 */
+	public TranspositionTable(int megabytes) {
+		long entries = Math.max(2L, ((long) Math.max(0, megabytes) << 20) / ENTRY_BYTES);
+		int size = (int) Long.highestOneBit(Math.min(entries, 1L << 30));
+		this.keys = new long[size];
+		this.data = new long[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Returns the number of entries in the table.
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Starts a new search, so the entries of earlier searches are replaced first.
+	 */
+	public synchronized void newSearch() {
+		age = (age + 1) & (int) BYTE_MASK;
+	}
+
+	/**
+	 * Removes all entries and resets the counters.
+	 */
+	public synchronized void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(data, 0L);
+		probes = 0;
+		hits = 0;
+		collisions = 0;
+		stores = 0;
+	}
+
+	/**
+	 * Looks up a position.
+	 * @param key - the key of the position, see Zobrist
+	 * @return the data of the entry (see getDepth, getBound, getValue and getMove), or 0
+	 * if the position is not in the table
+	 */
+	public long probe(long key) {
+		probes++;
+		int index = (int) key & mask & ~1;
+		for (int i = index; i <= index + 1; i++) {
+			long entry = data[i];
+			if ((keys[i] ^ entry) == key && (entry != 0L)) {
+				hits++;
+				return entry;
+			}
+		}
+		if ((data[index] != 0L) && (data[index + 1] != 0L)) {
+			collisions++;
+		}
+		return 0L;
+	}
+
+	/**
+	 * Stores the result of a search of a position.
+	 * A NO_MOVE does not replace the best move of an entry of the same position.
+	 * @requires bound is EXACT, LOWER or UPPER and move is NO_MOVE or between 0 and 1022
+	 * @param key - the key of the position, see Zobrist
+	 * @param depth - the depth the position was searched to, at most MAX_DEPTH
+	 * @param bound - the kind of bound the value is
+	 * @param value - the value of the position
+	 * @param move - the best move, or NO_MOVE
+	 */
+	public void store(long key, int depth, int bound, int value, int move) {
+		stores++;
+		int index = (int) key & mask & ~1;
+		int currentAge = age;
+		int victim = -1;
+		for (int i = index; i <= index + 1; i++) {
+			if ((keys[i] ^ data[i]) == key && (data[i] != 0L)) {
+				victim = i;
+				if (move == NO_MOVE) {
+					move = getMove(data[i]);
+				}
+				break;
+			}
+		}
+		if (victim == -1) {
+			long first = data[index];
+			long second = data[index + 1];
+			victim = index;
+			if (first != 0L) {
+				if (second == 0L) {
+					victim = index + 1;
+				} else if ((getAge(first) == currentAge) != (getAge(second) == currentAge)) {
+					victim = (getAge(first) == currentAge) ? index + 1 : index;
+				} else if (getDepth(second) < getDepth(first)) {
+					victim = index + 1;
+				}
+			}
+		}
+		long entry = (value & 0xFFFFFFFFL)
+				| (((move + 1) & MOVE_MASK) << MOVE_SHIFT)
+				| ((Math.min(Math.max(depth, 0), MAX_DEPTH) & BYTE_MASK) << DEPTH_SHIFT)
+				| (((long) bound & 3) << BOUND_SHIFT)
+				| (((long) currentAge & BYTE_MASK) << AGE_SHIFT);
+		data[victim] = entry;
+		keys[victim] = key ^ entry;
+	}
+
+	/**
+	 * Returns the value of an entry.
+	 * @param entry - the data returned by probe
+	 * @return the stored value
+	 */
+	public static int getValue(long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * Returns the best move of an entry.
+	 * @param entry - the data returned by probe
+	 * @return the stored move, or NO_MOVE
+	 */
+	public static int getMove(long entry) {
+		return (int) ((entry >>> MOVE_SHIFT) & MOVE_MASK) - 1;
+	}
+
+	/**
+	 * Returns the depth of an entry.
+	 * @param entry - the data returned by probe
+	 * @return the depth the position was searched to
+	 */
+	public static int getDepth(long entry) {
+		return (int) ((entry >>> DEPTH_SHIFT) & BYTE_MASK);
+	}
+
+	/**
+	 * Returns the bound type of an entry.
+	 * @param entry - the data returned by probe
+	 * @return EXACT, LOWER or UPPER, or NONE for no entry
+	 */
+	public static int getBound(long entry) {
+		return (int) ((entry >>> BOUND_SHIFT) & 3);
+	}
+
+	/**
+	 * Returns the search number of an entry.
+	 * @param entry - the data of an entry
+	 * @return the age of the search that stored it
+	 */
+	private static int getAge(long entry) {
+		return (int) ((entry >>> AGE_SHIFT) & BYTE_MASK);
+	}
+
+	/**
+	 * Returns the number of lookups.
+	 * @return the number of calls of probe
+	 */
+	public long getProbes() {
+		return probes;
+	}
+
+	/**
+	 * Returns the number of lookups that found their position.
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that missed while both entries of the bucket held
+	 * other positions, because the positions of the table share a bucket.
+	 * @return the number of collisions
+	 */
+	public long getCollisions() {
+		return collisions;
+	}
+
+	/**
+	 * Returns the number of stored results.
+	 * @return the number of calls of store
+	 */
+	public long getStores() {
+		return stores;
+	}
+
+	/**
+	 * Returns the part of the lookups that found their position.
+	 * @return the hits divided by the probes, 0 if there were none
+	 */
+	public double getHitRate() {
+		return (probes == 0) ? 0.0 : (double) hits / probes;
+	}
+
+	/**
+	 * Returns the part of the lookups that were collisions.
+	 * @return the collisions divided by the probes, 0 if there were none
+	 */
+	public double getCollisionRate() {
+		return (probes == 0) ? 0.0 : (double) collisions / probes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d entries, %d probes, %.1f%% hits, %.1f%% collisions, %d stores",
+				keys.length, probes, 100 * getHitRate(), 100 * getCollisionRate(), stores);
+	}
+}
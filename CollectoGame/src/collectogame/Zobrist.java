@@ -0,0 +1,112 @@
+package collectogame;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of Collecto positions.
+ * Every combination of a field and a ball number has a random 64 bit key and the hash of a
+ * position is the xor of the keys of all its balls. Moving or removing a ball changes the
+ * hash by xor-ing the keys of the fields it left and entered, so a Board keeps its hash up
+ * to date without looking at the other fields.
+ * The keys are created from a fixed seed, so hashes are the same in every run.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class Zobrist {
+	/**
+	 * The seed of the keys. Changing it changes all stored hashes.
+	 */
+	private static final long SEED = 0x436f6c6c6563746fL;
+
+	/**
+	 * KEYS[i * 7 + c] is the key of a ball with number c on field i.
+	 * The keys of Ball.EMPTY (c == 0) are 0, so an empty board has hash 0.
+	 */
+	static final long[] KEYS = createKeys();
+
+	/**
+	 * COLLECTION_KEYS[c * 16 + n] is the key of n balls with number c in a collection.
+	 * The keys of 0 balls are 0, so an empty collection has hash 0.
+	 */
+	private static final long[] COLLECTION_KEYS = createCollectionKeys();
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Creates the KEYS table.
+	 * @return the key of every field and ball number
+	 */
+	private static long[] createKeys() {
+		SplittableRandom random = new SplittableRandom(SEED);
+		long[] keys = new long[Board.DIM * Board.DIM * 7];
+		for (int i = 0; i < keys.length; i++) {
+			if (i % 7 != 0) {
+				keys[i] = random.nextLong();
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Creates the COLLECTION_KEYS table, from another seed than KEYS.
+	 * @return the key of every ball number and number of balls
+	 */
+	private static long[] createCollectionKeys() {
+		SplittableRandom random = new SplittableRandom(~SEED);
+		long[] keys = new long[7 * 16];
+		for (int i = 16; i < keys.length; i++) {
+			if (i % 16 != 0) {
+				keys[i] = random.nextLong();
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns the key of a ball on a field.
+	 * @requires index to be a valid field and colour is between 0 and 6
+	 * @ensures result == 0 iff colour == 0
+	 * @param index - the index of the field
+	 * @param colour - the number of the ball (see Ball.convertTo)
+	 * @return the key of the ball on the field
+	 */
+	public static long key(int index, int colour) {
+		return KEYS[index * 7 + colour];
+	}
+
+	/**
+	 * Calculates the hash of a position from its color masks, with all fields moved by
+	 * a symmetry of the board. For symmetry 0 this is the hash that Board keeps.
+	 * @requires colours.length == 7 and symmetry is between 0 and BitBoard.SYMMETRIES
+	 * @param colours - the mask of every ball number (see Board.getColourMask)
+	 * @param symmetry - the number of the symmetry (see BitBoard.transform)
+	 * @return the hash of the moved position
+	 */
+	public static long hash(long[] colours, int symmetry) {
+		long hash = 0L;
+		for (int colour = 1; colour < 7; colour++) {
+			for (long rest = colours[colour]; rest != 0; rest &= rest - 1) {
+				int index = BitBoard.transform(symmetry, Long.numberOfTrailingZeros(rest));
+				hash ^= KEYS[index * 7 + colour];
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Calculates the hash of a collection of balls. Xor-ed with the hash of a board it is
+	 * the key of a position with the collection of the player to move: together with the
+	 * board that collection also fixes the collection of the opponent.
+	 * @requires collection.length == 7 and every number of balls is below 16
+	 * @param collection - the number of balls of every ball number (see Player)
+	 * @return the hash of the collection
+	 */
+	public static long hash(int[] collection) {
+		long hash = 0L;
+		for (int colour = 1; colour < 7; colour++) {
+			hash ^= COLLECTION_KEYS[colour * 16 + (collection[colour] & 15)];
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,177 @@
+package server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import collectogame.Board;
+import collectogame.BoardGenerator;
+
+/**
+ * Bounded pool of ready starting boards for new games.
+ * A background thread generates boards until the pool holds highWatermark boards and
+ * then sleeps until the pool has dropped to lowWatermark boards. Taking a board is then
+ * only a poll of the queue. When the pool is empty the board is generated by the caller,
+ * which is counted as a miss.
+ *
+ * <p>The refill thread waits on a ReentrantLock instead of a monitor, so client handlers on
+ * virtual threads that wake it up in take do not pin their platform thread.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class BoardPool {
+	/**
+	 * The default capacity and watermarks of the pool.
+	 */
+	public static final int DEFAULT_CAPACITY = 64;
+	public static final int DEFAULT_LOW_WATERMARK = 16;
+
+	/**
+	 * @invariant boards holds at most capacity valid starting boards
+	 * @invariant 0 <= lowWatermark < highWatermark <= capacity
+	 * @invariant hits and misses count the boards taken from the pool and generated by take
+	 * @invariant refiller is the refill thread, null if the pool is not started
+	 * @invariant lock guards refiller; belowLow is signalled when the pool may need a refill
+	 */
+	private final ArrayBlockingQueue<Board> boards;
+	private final int lowWatermark;
+	private final int highWatermark;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private Thread refiller;
+	private volatile boolean running;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition belowLow = lock.newCondition();
+
+	/**
+	 * Creates a pool with the default capacity and watermarks.
+	 */
+	public BoardPool() {
+		this(DEFAULT_CAPACITY, DEFAULT_LOW_WATERMARK, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a pool with the given size and refill watermarks.
+	 * @requires capacity >= 1
+	 * @param capacity - the maximum number of boards in the pool
+	 * @param lowWatermark - the number of boards at which the refill starts
+	 * @param highWatermark - the number of boards at which the refill stops
+	 */
+	public BoardPool(int capacity, int lowWatermark, int highWatermark) {
+		this.boards = new ArrayBlockingQueue<Board>(Math.max(1, capacity));
+		this.highWatermark = Math.max(1, Math.min(highWatermark, boards.remainingCapacity()));
+		this.lowWatermark = Math.max(0, Math.min(lowWatermark, this.highWatermark - 1));
+	}
+
+	/**
+	 * Starts the background thread that fills the pool.
+	 * It is a daemon thread, so it does not keep the server running.
+	 * @ensures the pool is filled until highWatermark boards
+	 */
+	public void start() {
+		lock.lock();
+		try {
+			if (refiller != null) {
+				return;
+			}
+			running = true;
+			refiller = new Thread(this::refill, "BoardPool-refill");
+			refiller.setDaemon(true);
+			refiller.start();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the background thread. The boards in the pool can still be taken.
+	 */
+	public void stop() {
+		lock.lock();
+		try {
+			running = false;
+			if (refiller != null) {
+				refiller.interrupt();
+				refiller = null;
+			}
+			belowLow.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Takes a starting board from the pool, or generates one if the pool is empty.
+	 * @ensures result is a valid starting board that is not used by anyone else
+	 * @return the board
+	 */
+	public Board take() {
+		Board board = boards.poll();
+		if (board == null) {
+			misses.incrementAndGet();
+			board = new BoardGenerator().createBoard();
+		} else {
+			hits.incrementAndGet();
+		}
+		if (boards.size() <= lowWatermark) {
+			lock.lock();
+			try {
+				belowLow.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Fills the pool until highWatermark and waits until it drops to lowWatermark,
+	 * until the pool is stopped.
+	 */
+	private void refill() {
+		BoardGenerator generator = new BoardGenerator();
+		// an interrupted thread was stopped, even if the pool was started again
+		while (running && !Thread.currentThread().isInterrupted()) {
+			while (running && (boards.size() < highWatermark)) {
+				if (!boards.offer(generator.createBoard())) {
+					break;
+				}
+			}
+			lock.lock();
+			try {
+				while (running && (boards.size() > lowWatermark)) {
+					belowLow.await();
+				}
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of boards that are ready in the pool.
+	 * @return the number of boards
+	 */
+	public int size() {
+		return boards.size();
+	}
+
+	/**
+	 * Returns the number of boards that were taken from the pool.
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of boards take had to generate because the pool was empty.
+	 * @return the number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+}
@@ -6,11 +6,18 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 import exceptions.ClientUnavailableException;
 import protocol.ProtocolMessages;
 
 public class CollectoClientHandler implements Runnable {
+	/**
+	 * The size of the buffers of the streams in chars. The messages of the protocol are
+	 * short, and a small buffer keeps the memory per client low when there are many.
+	 */
+	private static final int BUFFER_CHARS = 1024;
 
 	/**
 	 * @invariant in != null | The input stream for this socket
@@ -20,14 +27,19 @@ public class CollectoClientHandler implements Runnable {
 	 * @invariant userName | The name the user uses for this server
 	 * @invariant playerRole >= -1 && playerRole <= 1 | Saves which client is player one or two
 	 * @invariant game | The game the user is playing if not playing a game, game == null
+	 * 		playerRole and game are changed by the mailbox of the game, so they are volatile
+	 * @invariant writeLock | Makes sure messages of different threads are not mixed
+	 * @invariant shutdown | True once the disconnection is handled
 	 */
 	private BufferedReader in;
     private BufferedWriter out;
     private Socket sock;
     private CollectoServer server;
     private String userName = null;
-    private int playerRole = -1;
-    private CollectoServerGame game;
+    private volatile int playerRole = -1;
+    private volatile CollectoServerGame game;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean shutdown = new AtomicBoolean();
     
 	/**
      * Starts a new server handler.
@@ -37,13 +49,27 @@ public class CollectoClientHandler implements Runnable {
      * @throws IOException - This is thrown when the in, out, or sock are closed
      */
     public CollectoClientHandler(Socket sock, CollectoServer server) throws IOException {
-        this.in = new BufferedReader(new InputStreamReader(sock.getInputStream()));
-        this.out = new BufferedWriter(new OutputStreamWriter(sock.getOutputStream()));
+        this.in = new BufferedReader(new InputStreamReader(sock.getInputStream()),
+        		BUFFER_CHARS);
+        this.out = new BufferedWriter(new OutputStreamWriter(sock.getOutputStream()),
+        		BUFFER_CHARS);
         this.sock = sock;
         this.server = server;
         this.game = null;
         this.playerRole = -1;
     }
+
+	/**
+     * Starts a client handler without a socket, for handlers that do their own input and
+     * output (see NioClientHandler). Such a handler overrides sendToClient and
+     * closeConnection and passes every received line to handleCommand.
+     * @param server - the server this client handler belongs to
+     */
+    protected CollectoClientHandler(CollectoServer server) {
+        this.server = server;
+        this.game = null;
+        this.playerRole = -1;
+    }
     
 	/**
 	 * Sets the userName belonging to this client.
@@ -97,6 +123,15 @@ public class CollectoClientHandler implements Runnable {
     }
     
 	/**
+	 * Checks if the connection with the client is closed. Handlers without a socket
+	 * override it.
+	 * @return true if the connection is closed or is being shut down
+	 */
+    boolean isClosed() {
+    	return shutdown.get() || sock.isClosed();
+    }
+    
+	/**
      * Constantly checks for serverInput.
      * @ensures Input is handled correctly
      */
@@ -125,13 +160,17 @@ public class CollectoClientHandler implements Runnable {
      * @throws ClientUnavailableException - if connection between server and client failed
      */
     public void sendToClient(String msg) throws ClientUnavailableException {
-    	if (out != null) {			
+    	if (out != null) {
+    		// the opponent's handler sends moves too, so a message is written under a lock
+    		writeLock.lock();
 			try {
 				out.write(msg);
 				out.newLine();
 				out.flush();
 			} catch (IOException e) {
 				throw new ClientUnavailableException("The client is Unavailable");
+			} finally {
+				writeLock.unlock();
 			}
 		}
     }
@@ -142,7 +181,7 @@ public class CollectoClientHandler implements Runnable {
      * @ensures that the command is send to the right method in the server
      * @throws ClientUnavailableException - if connection between server and client failed
      */
-    private void handleCommand(String input) throws ClientUnavailableException {
+    protected void handleCommand(String input) throws ClientUnavailableException {
     	String[] splitted = input.split(ProtocolMessages.DELIMITER, 2);
 		switch (splitted[0]) {
 			case ProtocolMessages.HELLO:
@@ -169,30 +208,33 @@ public class CollectoClientHandler implements Runnable {
      * Handle the disconnection between the client and this client handler.
      * @ensures socked is closed
      * @ensures BufferdWriter and reader are closed
-     * @ensures doGameOver if the disconnected client in a game and the other is still online
+     * @ensures doGameOver if the disconnected client in a game and the other is still online,
+     * 		see CollectoServer.handleDisconnect
+     * @ensures the disconnection is handled once, also when the reading thread and the
+     * 		mailbox of the game both find the connection broken
      */
 	protected void shutdown() {
+		if (!shutdown.compareAndSet(false, true)) {
+			return;
+		}
 		System.out.println("> [" + userName + "] Shutting down.");
 		try {
-			in.close();
-			out.close();
-			sock.close();			
-			if (this.game != null) {
-				if (this.game.getClientHandler1().equals(this)) {
-					server.doGameOver(this.game.getClientHandler2(), this, 
-							ProtocolMessages.DISCONNECT, 
-									this.game.getClientHandler2().getUserName());
-				} else if (this.game.getClientHandler2().equals(this)) {
-					server.doGameOver(this.game.getClientHandler1(), this, 
-							ProtocolMessages.DISCONNECT, 
-							this.game.getClientHandler1().getUserName());
-				}
-			}			
+			closeConnection();
 		} catch (IOException e1) {
 			// not necessary to print anything
-		} catch (ClientUnavailableException e2) {
-			// not necessary to print anything
-		}					
+		}
+		server.handleDisconnect(this);
 		server.removeClient(this);
 	}
+
+	/**
+	 * Closes the streams and the socket of this client handler.
+	 * @ensures the connection with the client is closed
+	 * @throws IOException - if closing the connection failed
+	 */
+	protected void closeConnection() throws IOException {
+		in.close();
+		out.close();
+		sock.close();
+	}
 }
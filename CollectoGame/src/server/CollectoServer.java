@@ -1,11 +1,20 @@
 package server;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 import collectoclient.CollectoClient;
 import collectogame.Board;
@@ -19,14 +28,54 @@ public class CollectoServer implements Runnable {
 	
 	/**
 	 * @invariant userNames - Contains the userNames of the clients that logged in
-	 * @invariant queue - Contains the client handlers of the clients in the queue for a game
+	 * @invariant matchmaker - Pairs the client handlers of the clients in the queue for a game
+	 * @invariant ratings - The Elo ratings of the users, updated after every game
 	 * @invariant port - The port number the server is working with
+	 * @invariant userNamesLock - guards userNames; it is a ReentrantLock and not a
+	 * 		synchronized block, because a virtual thread that blocks inside a synchronized
+	 * 		block keeps its platform thread
 	 */
 	private List<String> userNames = new ArrayList<String>();
-	private LinkedList<CollectoClientHandler> queue = new LinkedList<CollectoClientHandler>();
+	private final Matchmaker<CollectoClientHandler> matchmaker;
+	private final EloRatings ratings = new EloRatings();
+	private final ReentrantLock userNamesLock = new ReentrantLock();
 	private CollectoServerView view;
 	private ServerSocket ssock;
 
+	/**
+	 * The ready starting boards for new games, filled by a background thread.
+	 */
+	private final BoardPool boardPool;
+
+	/**
+	 * The way the clients are served.
+	 */
+	private final ServerMode mode;
+
+	/**
+	 * The shared threads the mailboxes of the games run on, see CollectoServerGame.execute.
+	 */
+	private final ExecutorService gameExecutor;
+
+	/**
+	 * The matchmaker when the clients are paired by rating, otherwise null.
+	 */
+	private final RatedMatchmaker<CollectoClientHandler> ratedMatchmaker;
+
+	/**
+	 * Widens the windows of the rated matchmaker while the server runs, see startTicker.
+	 * @invariant ticks and reportedMatches - the ticks so far and the matches when the wait
+	 * 		times were shown last, only used by the thread of the ticker
+	 */
+	private ScheduledExecutorService ticker;
+	private long ticks;
+	private long reportedMatches;
+
+	/**
+	 * The time between two reports of the wait times of the rated matchmaker.
+	 */
+	private static final long REPORT_MILLIS = 60000;
+
 	// The name of this server
 	private static final String SERVER_NAME = "Yellow-1.3 Minh&Jesse Server";
     
@@ -34,13 +83,74 @@ public class CollectoServer implements Runnable {
 	 * Creates a new object CollectoServer with the given port number.
 	 */
     public CollectoServer() {
+    	this(new BoardPool());
+    }
+
+	/**
+	 * Creates a new object CollectoServer that takes its starting boards from the given pool.
+	 * @param boardPool - the pool of starting boards
+	 * @requires boardPool != null;
+	 */
+    public CollectoServer(BoardPool boardPool) {
+    	this(boardPool, ServerMode.THREADS);
+    }
+
+	/**
+	 * Creates a new object CollectoServer that serves its clients in the given way.
+	 * @param boardPool - the pool of starting boards
+	 * @param mode - the way the clients are served, see ServerMode
+	 * @requires boardPool != null && mode != null;
+	 */
+    public CollectoServer(BoardPool boardPool, ServerMode mode) {
+    	this(boardPool, mode, MatchmakingMode.QUEUE);
+    }
+
+	/**
+	 * Creates a new object CollectoServer that serves its clients and pairs the clients in
+	 * the queue in the given ways.
+	 * @param boardPool - the pool of starting boards
+	 * @param mode - the way the clients are served, see ServerMode
+	 * @param matchmaking - the way the clients in the queue are paired, see MatchmakingMode
+	 * @requires boardPool != null && mode != null && matchmaking != null;
+	 */
+    public CollectoServer(BoardPool boardPool, ServerMode mode, MatchmakingMode matchmaking) {
     	this.view = new CollectoServerTUI();
+    	this.boardPool = boardPool;
+    	this.mode = mode;
+    	Predicate<CollectoClientHandler> notInGame = handler -> handler.getGame() == null;
+    	if (matchmaking == MatchmakingMode.RATED) {
+    		this.ratedMatchmaker = new RatedMatchmaker<CollectoClientHandler>(this::startGame,
+    				handler -> ratings.getRating(handler.getUserName()), notInGame);
+    		this.matchmaker = ratedMatchmaker;
+    	} else {
+    		this.ratedMatchmaker = null;
+    		this.matchmaker = new QueueMatchmaker<CollectoClientHandler>(this::startGame,
+    				notInGame);
+    	}
+    	if (mode == ServerMode.VIRTUAL_THREADS) {
+    		if (!hasVirtualThreads()) {
+    			view.showMessage("WARNING: this JVM has no virtual threads, the clients and "
+    					+ "games are served by a cached pool of platform threads instead");
+    		}
+    		this.gameExecutor = newVirtualThreadExecutor();
+    	} else {
+    		AtomicInteger threads = new AtomicInteger();
+    		this.gameExecutor = Executors.newFixedThreadPool(
+    				Runtime.getRuntime().availableProcessors(), task -> {
+    					Thread thread = new Thread(task,
+    							"CollectoGame-" + threads.incrementAndGet());
+    					thread.setDaemon(true);
+    					return thread;
+    				});
+    	}
     }
     
     /**
      * Starts the server and creates new client handlers for new clients.
      * @ensures Server is started with given port number as a local host
-     * @ensures new client hander is started on a new thread for each new client
+     * @ensures new client hander is started on a new (virtual) thread for each new client,
+     * 		or all clients are served by a NioServerCore, depending on the mode
+     * @ensures the rated matchmaker is ticked while the server runs, see startTicker
      */
     public void run() {
     	try {
@@ -49,17 +159,123 @@ public class CollectoServer implements Runnable {
 			view.showMessage("The program is closed");
 			return;
 		}
+    	boardPool.start();
+    	startTicker();
+    	if (mode == ServerMode.NIO) {
+    		try {
+    			new NioServerCore(this, ssock.getChannel()).run();
+    		} catch (IOException e) {
+    			e.printStackTrace();
+    		}
+    		stopTicker();
+    		return;
+    	}
+    	ExecutorService clients = null;
+    	if (mode == ServerMode.VIRTUAL_THREADS) {
+    		clients = newVirtualThreadExecutor();
+    	}
 	    while (true) {
 	    	Socket sock;
 			try {
 				sock = ssock.accept();
 				CollectoClientHandler handler = new CollectoClientHandler(sock, this);
-				new Thread(handler).start(); 
+				if (clients != null) {
+					clients.execute(handler);
+				} else {
+					new Thread(handler).start();
+				}
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
     	}
     }
+
+    /**
+     * Starts the thread that ticks the rated matchmaker every TICK_MILLIS, which widens the
+     * windows of the waiting clients. Without a rated matchmaker nothing is started.
+     */
+    private void startTicker() {
+    	if (ratedMatchmaker == null) {
+    		return;
+    	}
+    	ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+    		Thread thread = new Thread(task, "CollectoMatchmaker");
+    		thread.setDaemon(true);
+    		return thread;
+    	});
+    	ticker.scheduleAtFixedRate(this::tickMatchmaker, RatedMatchmaker.TICK_MILLIS,
+    			RatedMatchmaker.TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ticks the rated matchmaker, and shows its wait times every REPORT_MILLIS if clients
+     * were paired since they were shown last. A failed tick is shown, because an exception
+     * would cancel all later ticks.
+     */
+    private void tickMatchmaker() {
+    	try {
+    		ratedMatchmaker.tick();
+    		ticks++;
+    		if ((ticks % (REPORT_MILLIS / RatedMatchmaker.TICK_MILLIS) == 0)
+    				&& (ratedMatchmaker.getMatches() != reportedMatches)) {
+    			reportedMatches = ratedMatchmaker.getMatches();
+    			view.showMessage("Matchmaking wait times: " + getWaitTimes());
+    		}
+    	} catch (RuntimeException e) {
+    		view.showMessage("ERROR: matchmaking tick failed: " + e);
+    	}
+    }
+
+    /**
+     * Stops the thread of startTicker, when the server no longer serves clients, and shows
+     * the wait times of the rated matchmaker.
+     */
+    private void stopTicker() {
+    	if (ticker != null) {
+    		ticker.shutdownNow();
+    		ticker = null;
+    		view.showMessage("Matchmaking wait times: " + getWaitTimes());
+    	}
+    }
+
+    /**
+     * Returns the times the clients waited in the queue until they were paired.
+     * @return the wait times, or null if the clients are not paired by rating
+     */
+    public WaitTimeHistogram getWaitTimes() {
+    	return (ratedMatchmaker == null) ? null : ratedMatchmaker.getWaitTimes();
+    }
+
+    /**
+     * Checks if this JVM has virtual threads, which are available from Java 21.
+     * @return true if newVirtualThreadExecutor runs its tasks on virtual threads
+     */
+    public static boolean hasVirtualThreads() {
+    	try {
+    		Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    		return true;
+    	} catch (NoSuchMethodException e) {
+    		return false;
+    	}
+    }
+
+    /**
+     * Creates an executor that runs every task on a new virtual thread.
+     * The executor is looked up at runtime, so the server also runs on a JVM without
+     * virtual threads; then a cached pool of platform threads is returned, see
+     * hasVirtualThreads. The server warns about this when it starts in VIRTUAL_THREADS mode.
+     * @ensures result runs every task at once, without waiting for other tasks
+     * @return the executor
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+    	try {
+    		return (ExecutorService) Executors.class
+    				.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    	} catch (NoSuchMethodException | IllegalAccessException
+    			| InvocationTargetException e) {
+    		return Executors.newCachedThreadPool();
+    	}
+    }
     
 	/**
 	 * Sets up a Internet connection on local host with a port number thats being asked.
@@ -74,7 +290,18 @@ public class CollectoServer implements Runnable {
 			// try to open a new ServerSocket
 			try {
 				view.showMessage("Attempting to open a socket at port " + port + "...");
-				ssock = new ServerSocket(port);
+				if (mode == ServerMode.NIO) {
+					ServerSocketChannel channel = ServerSocketChannel.open();
+					try {
+						channel.bind(new InetSocketAddress(port));
+					} catch (IOException e) {
+						channel.close();
+						throw e;
+					}
+					ssock = channel.socket();
+				} else {
+					ssock = new ServerSocket(port);
+				}
 				view.showMessage("Server started at port " + port);
 			} catch (IOException e) {
 				view.showMessage("ERROR: could not create a socket on port " + port + ".");
@@ -87,6 +314,30 @@ public class CollectoServer implements Runnable {
 		}
     }
     
+    /**
+     * Returns the pool the starting boards of new games are taken from.
+     * @return the board pool, with its hit and miss counters
+     */
+    public BoardPool getBoardPool() {
+    	return this.boardPool;
+    }
+
+    /**
+     * Returns the matchmaker that pairs the clients in the queue.
+     * @return the matchmaker
+     */
+    public Matchmaker<CollectoClientHandler> getMatchmaker() {
+    	return this.matchmaker;
+    }
+
+    /**
+     * Returns the Elo ratings of the users of this server.
+     * @return the ratings
+     */
+    public EloRatings getRatings() {
+    	return this.ratings;
+    }
+
     /**
      * If client disconnects it should be removed from the lists.
      * @param handler - the ClientHandler that should be removed
@@ -94,16 +345,15 @@ public class CollectoServer implements Runnable {
      * @ensures That the client is removed everywhere
      */
     public void removeClient(CollectoClientHandler handler) {
-    	synchronized (this.userNames) {
+    	userNamesLock.lock();
+    	try {
     		if (this.userNames.contains(handler.getUserName())) {
         		userNames.remove(handler.getUserName());
         	}
+    	} finally {
+    		userNamesLock.unlock();
     	}
-    	synchronized (this.queue) {
-        	if (this.queue.contains(handler)) {
-        		this.queue.remove(handler);
-        	}
-    	}	
+    	matchmaker.remove(handler);
     }
     
     /**
@@ -134,15 +384,23 @@ public class CollectoServer implements Runnable {
     		doError("You are already logged in as: " + handler.getUserName(), handler);
     		return;
     	}
-    	synchronized (this.userNames) {
-    		if (userNames.contains(clientInput)) {
-        		handler.sendToClient(ProtocolMessages.ALREADYLOGGEDIN);
-        	} else {
-        		handler.sendToClient(ProtocolMessages.LOGIN);
+    	boolean loggedIn;
+    	userNamesLock.lock();
+    	try {
+    		loggedIn = !userNames.contains(clientInput);
+    		if (loggedIn) {
         		userNames.add(clientInput);
         		handler.setUserName(clientInput);
         	}
-    	}	
+    	} finally {
+    		userNamesLock.unlock();
+    	}
+    	// the reply is sent after the lock is released, so a slow client does not hold it
+    	if (loggedIn) {
+    		handler.sendToClient(ProtocolMessages.LOGIN);
+    	} else {
+    		handler.sendToClient(ProtocolMessages.ALREADYLOGGEDIN);
+    	}
     }
     
     /**
@@ -152,7 +410,7 @@ public class CollectoServer implements Runnable {
      * @ensures if client is already in queue, it is removed from it.
      * @ensures if client is not in queue, it is added to it, 
      * also is checked if there are now 2 players in queue so a game can be played
-     * @ensures the role of player is picked randomly.
+     * @ensures the role of player is picked randomly, see startGame.
 	 * @throws ClientUnavailableException - if connection between server and client failed
      */
     public void handleQueue(CollectoClientHandler handler) throws ClientUnavailableException {
@@ -164,27 +422,59 @@ public class CollectoServer implements Runnable {
 			doError("You can not use this command while in a game", handler);
 			return;
 		}
-    	synchronized (this.queue) {
-        	if (queue.contains(handler)) {
-        		queue.remove(handler);
-        	} else {
-        		queue.add(handler);
-        		if (queue.size() >= 2) {
-       			
-        			CollectoClientHandler clientHandler1 = queue.removeFirst();
-        			CollectoClientHandler clientHandler2 = queue.removeFirst();
-        			    			
-        			int random = (int) (Math.random() * 2);
-    				if (random == 0) {
-    					doNewGame(clientHandler1, clientHandler2);
-    				} else {
-    					doNewGame(clientHandler2, clientHandler1);
-    				}		
-        		}
-        	}
+    	matchmaker.toggle(handler);
+    }
+
+    /**
+     * Starts the game of two clients the matchmaker paired, with a random first player.
+     * It is called without any lock held, by the thread of the client that completed the
+     * pair.
+     * @param clientHandler1 - The client that waited longest
+     * @param clientHandler2 - The other client
+     * @ensures the role of player is picked randomly.
+     * @ensures if a client can not be reached, the game is aborted, see abortGame
+     */
+    private void startGame(CollectoClientHandler clientHandler1,
+    		CollectoClientHandler clientHandler2) {
+    	try {
+    		int random = (int) (Math.random() * 2);
+    		if (random == 0) {
+    			doNewGame(clientHandler1, clientHandler2);
+    		} else {
+    			doNewGame(clientHandler2, clientHandler1);
+    		}
+    	} catch (ClientUnavailableException e) {
+    		abortGame(clientHandler1, clientHandler2);
     	}
     }
     
+    /**
+     * Ends a game that could not be started because a client could not be reached.
+     * It is not known which client failed, so both clients leave the game, and every
+     * client that is still connected gets a game over by disconnect, which it wins.
+     * The game was never played, so the ratings do not change.
+     * @param handler1 - a client of the game
+     * @param handler2 - the other client of the game
+     * @ensures both clients are no longer in a game
+     */
+    private void abortGame(CollectoClientHandler handler1, CollectoClientHandler handler2) {
+    	for (CollectoClientHandler handler : List.of(handler1, handler2)) {
+    		handler.setNewGame(null);
+    		handler.setNewPlayerRole(-1);
+    		if (!handler.isClosed()) {
+    			try {
+    				handler.sendToClient(ProtocolMessages.GAMEOVER + ProtocolMessages.DELIMITER
+    						+ ProtocolMessages.DISCONNECT + ProtocolMessages.DELIMITER
+    						+ handler.getUserName());
+    			} catch (ClientUnavailableException e) {
+    				// this client is gone as well, its handler shuts it down
+    			}
+    		}
+    	}
+    	view.showMessage("[" + handler1.getUserName() + " + " 
+    			+ handler2.getUserName() + "] Game could not be started");
+    }
+    
     /**
      * Starts a new Collecto game with the clients given in the parameters.
      * @param hdler1 - The first client waiting in the queue
@@ -202,7 +492,7 @@ public class CollectoServer implements Runnable {
 		OnlinePlayer p1 = new OnlinePlayer(hdler1.getUserName(), 0, cc);
 		OnlinePlayer p2 = new OnlinePlayer(hdler2.getUserName(), 1, cc);
 		
-		CollectoServerGame game = new CollectoServerGame(p1, p2, cc, hdler1, hdler2);
+		CollectoServerGame game = new CollectoServerGame(p1, p2, cc, hdler1, hdler2, gameExecutor);
 		
 		hdler1.setNewGame(game);
 		hdler2.setNewGame(game);
@@ -212,7 +502,7 @@ public class CollectoServer implements Runnable {
 		view.showMessage("[" + hdler1.getUserName() + " + " 
 				+ hdler2.getUserName() + "] Started a new Game");
 		
-		game.createNewBoard();
+		game.setBoard(boardPool.take());
 		Board board = game.getBoard().deepCopy();
 		
 		String reply = ProtocolMessages.NEWGAME;
@@ -245,6 +535,31 @@ public class CollectoServer implements Runnable {
     		doError("You are currently not playing a game", handler);
     		return;
     	}
+    	game.execute(() -> {
+    		try {
+    			handleGameMove(clientInput, handler, game);
+    		} catch (ClientUnavailableException e) {
+    			handler.shutdown();
+    		}
+    	});
+    }
+
+    /**
+     * Handles the move sent by the client in the mailbox of its game, so the turn check and
+     * the move can not be mixed with other commands of the game.
+     * @param clientInput - the move(s) the client wants to make separated with the delimiter
+     * @param handler - The client that made the move request
+     * @param game - The game the client was playing when it sent the move
+     * @requires clientInput != null;
+     * @requires handler != null && game != null;
+     * @throws ClientUnavailableException - if connection between server and client failed
+     */
+    private void handleGameMove(String clientInput, CollectoClientHandler handler,
+    		CollectoServerGame game) throws ClientUnavailableException {
+    	if (handler.getGame() != game) {
+    		doError("You are currently not playing a game", handler);
+    		return;
+    	}
     	if (game.getCurrentTurn() != handler.getPlayerRole()) {
     		doError("This is not your turn you", handler);
 			return;
@@ -253,8 +568,10 @@ public class CollectoServer implements Runnable {
     	String[] splitted = clientInput.split(ProtocolMessages.DELIMITER);
     	int[] choice;
 		
-		Board copyBoard = game.getBoard().deepCopy();
-    	boolean isStillPossibleSingleMove = copyBoard.isStillPossibleSingleMove();
+		// the checks only try moves and leave the board as it is, and the legal moves
+		// of this position are usually cached by the end game check of the last move
+		Board board = game.getBoard();
+    	boolean isStillPossibleSingleMove = board.isStillPossibleSingleMove();
     	
     	if (isStillPossibleSingleMove && (splitted.length == 3)) {
     		doError("There is still possible single move", handler);
@@ -269,7 +586,7 @@ public class CollectoServer implements Runnable {
     	if (isStillPossibleSingleMove && (splitted.length == 2)) {
     		choice = new int[1];
     		choice[0] = Integer.valueOf(splitted[1]);
-    		if (!copyBoard.isValidSingleMove(choice[0])) {
+    		if (!board.isValidSingleMove(choice[0])) {
     			doError("Move " + choice[0] + " is not a valid move", handler);
     			return;
     		} else {
@@ -280,7 +597,7 @@ public class CollectoServer implements Runnable {
     		choice = new int[2];
     		choice[0] = Integer.valueOf(splitted[1]);
     		choice[1] = Integer.valueOf(splitted[2]);
-    		if (!copyBoard.isValidDoubleMove(choice[0], choice[1])) {
+    		if (!board.isValidDoubleMove(choice[0], choice[1])) {
     			doError("Move " + choice[0] + " and " + choice[1] + " are not valid", handler);
     			return;
     		} else {
@@ -289,6 +606,37 @@ public class CollectoServer implements Runnable {
     	}		
     }
     
+    /**
+     * Ends the game of a client that disconnected, in the mailbox of the game.
+     * @param handler - The client that disconnected
+     * @requires handler != null;
+     * @ensures doGameOver is sent to the other client if the game was still running
+     * @ensures the disconnected client is no longer in the game
+     */
+    public void handleDisconnect(CollectoClientHandler handler) {
+    	CollectoServerGame game = handler.getGame();
+    	if (game == null) {
+    		return;
+    	}
+    	game.execute(() -> {
+    		if (handler.getGame() != game) {
+    			// the game ended before the client disconnected
+    			return;
+    		}
+    		// the game is over for the disconnected client too, so a later task of the game
+    		// does not end it again
+    		handler.setNewGame(null);
+    		handler.setNewPlayerRole(-1);
+    		CollectoClientHandler other = game.getClientHandler1().equals(handler)
+    				? game.getClientHandler2() : game.getClientHandler1();
+    		try {
+    			doGameOver(other, handler, ProtocolMessages.DISCONNECT, other.getUserName());
+    		} catch (ClientUnavailableException e) {
+    			// not necessary to print anything
+    		}
+    	});
+    }
+
     /**
      * Handles the correct choice of client and apply to the game.
      * @param choice - the move(s) the client
@@ -304,7 +652,7 @@ public class CollectoServer implements Runnable {
     	player.updateOnlinveMove(choice);
     	game.makeOnlineMove(game.getCurrentTurn());
     	game.updateCurrentTurn();
-    	Board copyBoard = game.getBoard().deepCopy();
+    	Board board = game.getBoard();
     	
     	if (choice.length == 1) {
 			doMove(choice[0], -1, game.getClientHandler1(), game.getClientHandler2());
@@ -312,7 +660,7 @@ public class CollectoServer implements Runnable {
 			doMove(choice[0], choice[1], game.getClientHandler1(), game.getClientHandler2());
 		}
     	
-    	if (copyBoard.isEndGame()) {
+    	if (board.isEndGame()) {
     		Player winner = game.winner();
     		String reason = "";
     		if (winner != null) {
@@ -336,10 +684,20 @@ public class CollectoServer implements Runnable {
      * @requires reason.equals(ProtocolMessages.DRAW) || 
      * reason.equals(ProtocolMessages.DISCONECTED) || reason.equals(ProtocolMessages.VICTORY)
      * @ensures message is sent to client according the protocol
+     * @ensures the ratings of both users are updated, a disconnect is a loss
      * @throws ClientUnavailableException - if connection between server and client failed
      */
     public void doGameOver(CollectoClientHandler handler1, CollectoClientHandler handler2, 
     							String reason, String name) throws ClientUnavailableException {
+    	double score1 = 1;
+    	if (reason.equals(ProtocolMessages.DRAW)) {
+    		score1 = 0.5;
+    	} else if (reason.equals(ProtocolMessages.VICTORY)
+    			&& !handler1.getUserName().equals(name)) {
+    		score1 = 0;
+    	}
+    	ratings.recordGame(handler1.getUserName(), handler2.getUserName(), score1);
+
     	String reply = ProtocolMessages.GAMEOVER;
     	if (reason.equals(ProtocolMessages.DRAW)) {
     		reply = reply + ProtocolMessages.DELIMITER + reason;
@@ -399,8 +757,13 @@ public class CollectoServer implements Runnable {
      */
     public void handleList(CollectoClientHandler handler) throws ClientUnavailableException {  	
     	String reply = ProtocolMessages.LIST;
-    	for (String name : this.userNames) {
-    		reply = reply + ProtocolMessages.DELIMITER + name;
+    	userNamesLock.lock();
+    	try {
+    		for (String name : this.userNames) {
+    			reply = reply + ProtocolMessages.DELIMITER + name;
+    		}
+    	} finally {
+    		userNamesLock.unlock();
     	}
     	handler.sendToClient(reply);
     }
@@ -420,11 +783,15 @@ public class CollectoServer implements Runnable {
     }
     
     /**
-     * Starts a new server with the port number given in the arguments.
-     * @param args - the Arguments added when running
+     * Starts a new server, the port number is asked.
+     * @param args - the Arguments added when running: "virtual" to run every client on a
+     * 		virtual thread, "nio" to serve all clients from one thread (see ServerMode),
+     * 		optionally followed by "rated" to pair clients by rating (see MatchmakingMode)
      */
     public static void main(String[] args) {
-        CollectoServer s = new CollectoServer();
+        ServerMode mode = ServerMode.parse((args.length > 0) ? args[0] : null);
+        MatchmakingMode matchmaking = MatchmakingMode.parse((args.length > 1) ? args[1] : null);
+        CollectoServer s = new CollectoServer(new BoardPool(), mode, matchmaking);
         new Thread(s).start();
     }
 }
@@ -1,5 +1,7 @@
 package server;
 
+import java.util.concurrent.Executor;
+
 import collectoclient.CollectoClient;
 import collectogame.Game;
 import collectogame.Player;
@@ -8,9 +10,11 @@ public class CollectoServerGame extends Game {
 	/**
 	 * @invariant ch1 != null - the CollectoClientHandler of first player
 	 * @invariant ch2 != null - the CollectoClientHandler of second player
+	 * @invariant mailbox != null - runs the commands of this game one at a time
 	 */
 	private CollectoClientHandler ch1;
 	private CollectoClientHandler ch2;
+	private final Executor mailbox;
 
 	/**
 	 * Creates a new CollectoGame for the CollectoServer.
@@ -22,9 +26,35 @@ public class CollectoServerGame extends Game {
 	 */
 	public CollectoServerGame(Player s0, Player s1, CollectoClient client, 
 			CollectoClientHandler chp0, CollectoClientHandler chp1) {
+		this(s0, s1, client, chp0, chp1, Runnable::run);
+	}
+
+	/**
+	 * Creates a new CollectoGame for the CollectoServer with its own mailbox.
+	 * @param s0 - The first player playing the game
+	 * @param s1 - The second player playing the game
+	 * @param client - For the output of the game (not used)
+	 * @param chp0 - The first clientHandler belonging to this game
+	 * @param chp1 - The second clientHandler belonging to this game
+	 * @param executor - The shared executor the commands of this game run on
+	 */
+	public CollectoServerGame(Player s0, Player s1, CollectoClient client, 
+			CollectoClientHandler chp0, CollectoClientHandler chp1, Executor executor) {
 		super(s0, s1, client);
 		this.ch1 = chp0;
 		this.ch2 = chp1;
+		this.mailbox = new SerialExecutor(executor);
+	}
+
+	/**
+	 * Runs a command on this game after the commands that were given before.
+	 * The commands of a game never run at the same time, so they can use the game and its
+	 * board without locks.
+	 * @param command - the command to run
+	 * @requires command != null;
+	 */
+	public void execute(Runnable command) {
+		mailbox.execute(command);
 	}
 	
 	/**
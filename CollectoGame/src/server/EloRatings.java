@@ -0,0 +1,67 @@
+package server;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Elo ratings of the users of a server, by user name.
+ * A user that has not played yet has INITIAL_RATING. After a game the winner gets the
+ * points the loser loses, K_FACTOR times the difference between the result and the
+ * expected result, so beating a stronger player gains more than beating a weaker one.
+ * The ratings are kept as long as the server runs, also after a user disconnects.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class EloRatings {
+	/**
+	 * The rating of a user that has not played yet.
+	 */
+	public static final int INITIAL_RATING = 1200;
+
+	/**
+	 * The most points a game can change a rating by.
+	 */
+	public static final int K_FACTOR = 32;
+
+	/**
+	 * @invariant ratings - the rating of every user that played a game
+	 */
+	private final ConcurrentHashMap<String, Integer> ratings =
+			new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * Returns the rating of a user.
+	 * @requires name != null
+	 * @param name - the user name
+	 * @return the rating, INITIAL_RATING if the user has not played yet
+	 */
+	public int getRating(String name) {
+		return ratings.getOrDefault(name, INITIAL_RATING);
+	}
+
+	/**
+	 * Returns the expected result of a player against an opponent.
+	 * @param rating - the rating of the player
+	 * @param opponent - the rating of the opponent
+	 * @return the expected result, between 0 (loss) and 1 (win)
+	 */
+	public static double expectedScore(int rating, int opponent) {
+		return 1.0 / (1.0 + Math.pow(10, (opponent - rating) / 400.0));
+	}
+
+	/**
+	 * Updates the ratings of two users after a game between them.
+	 * A user is in one game at a time, so the ratings of a user are not updated by two
+	 * games at the same time.
+	 * @requires name1 != null && name2 != null && !name1.equals(name2)
+	 * @param name1 - the first user
+	 * @param name2 - the second user
+	 * @param score1 - the result of the first user: 1 for a win, 0.5 for a draw, 0 for a loss
+	 * @ensures the first user gains the points the second user loses
+	 */
+	public void recordGame(String name1, String name2, double score1) {
+		int change = (int) Math.round(K_FACTOR
+				* (score1 - expectedScore(getRating(name1), getRating(name2))));
+		ratings.merge(name1, INITIAL_RATING + change, (rating, initial) -> rating + change);
+		ratings.merge(name2, INITIAL_RATING - change, (rating, initial) -> rating - change);
+	}
+}
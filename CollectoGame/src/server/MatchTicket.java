@@ -0,0 +1,64 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ticket of a player that waits in a matchmaker.
+ * The state of a ticket is an AtomicInteger, so a player leaves with one compare-and-set
+ * from WAITING to CANCELLED, without finding its ticket in the data structures of the
+ * matchmaker. The pairing thread claims a ticket before it pairs it; a player that leaves
+ * while its ticket is CLAIMED waits until the ticket is paired or back to WAITING.
+ *
+ * @param <T> - the type of the players
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+class MatchTicket<T> {
+	/**
+	 * The states of a ticket.
+	 */
+	static final int WAITING = 0;
+	static final int CLAIMED = 1;
+	static final int MATCHED = 2;
+	static final int CANCELLED = 3;
+
+	/**
+	 * @invariant player - the player of the ticket
+	 * @invariant state - WAITING, CLAIMED, MATCHED or CANCELLED
+	 */
+	final T player;
+	final AtomicInteger state = new AtomicInteger(WAITING);
+
+	/**
+	 * Creates a waiting ticket.
+	 * @param player - the player of the ticket
+	 */
+	MatchTicket(T player) {
+		this.player = player;
+	}
+
+	/**
+	 * Claims the ticket for the pairing thread if it is still waiting.
+	 * @return true if the ticket is claimed, false if it was cancelled
+	 */
+	boolean claim() {
+		return state.compareAndSet(WAITING, CLAIMED);
+	}
+
+	/**
+	 * Cancels the ticket if it is still waiting.
+	 * @return true if the ticket was cancelled, false if it was paired
+	 */
+	boolean cancel() {
+		while (true) {
+			int current = state.get();
+			if (current == CLAIMED) {
+				// the pairing thread decides within a few instructions
+				Thread.onSpinWait();
+			} else if (current != WAITING) {
+				return current == CANCELLED;
+			} else if (state.compareAndSet(WAITING, CANCELLED)) {
+				return true;
+			}
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package server;
+
+/**
+ * Pairs players that wait for a game.
+ * A player joins or leaves with toggle, the way the QUEUE command works, and the pairs
+ * that are found are given to the MatchListener of the matchmaker. The listener is called
+ * without any lock of the matchmaker held, so it may start the game and send messages.
+ *
+ * @param <T> - the type of the players, for the server a CollectoClientHandler
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public interface Matchmaker<T> {
+	/**
+	 * Receives the pairs of a matchmaker.
+	 * @param <T> - the type of the players
+	 */
+	@FunctionalInterface
+	interface MatchListener<T> {
+		/**
+		 * Called once for every pair, by the thread that found it.
+		 * @param first - the player that waited longest
+		 * @param second - the other player
+		 */
+		void matched(T first, T second);
+	}
+
+	/**
+	 * Adds a player that is not waiting, or removes a player that is waiting.
+	 * A player that was just paired can not leave any more; it stays paired.
+	 * @requires player != null
+	 * @param player - the player
+	 * @return true if the player is waiting or paired after the call, false if it left
+	 */
+	boolean toggle(T player);
+
+	/**
+	 * Removes a player, for example because it disconnected. Nothing happens if the
+	 * player is not waiting.
+	 * @param player - the player
+	 */
+	void remove(T player);
+
+	/**
+	 * Returns the number of waiting players.
+	 * @return the number of players that are waiting and not paired yet
+	 */
+	int size();
+}
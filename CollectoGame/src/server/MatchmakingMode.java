@@ -0,0 +1,31 @@
+package server;
+
+/**
+ * The ways a CollectoServer can pair the clients in the queue.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public enum MatchmakingMode {
+	/**
+	 * The clients are paired in the order they joined the queue, see QueueMatchmaker.
+	 */
+	QUEUE,
+
+	/**
+	 * The clients are paired with a client with a similar Elo rating, with a window that
+	 * widens while they wait, see RatedMatchmaker.
+	 */
+	RATED;
+
+	/**
+	 * Returns the mode with the given name, as given on the command line.
+	 * @param name - "queue" or "rated", in any case, or null
+	 * @return the mode, QUEUE for null or an unknown name
+	 */
+	public static MatchmakingMode parse(String name) {
+		if ((name != null) && name.equalsIgnoreCase("rated")) {
+			return RATED;
+		}
+		return QUEUE;
+	}
+}
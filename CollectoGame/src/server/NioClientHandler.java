@@ -0,0 +1,193 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import exceptions.ClientUnavailableException;
+
+/**
+ * Client handler of a non-blocking connection of a NioServerCore.
+ * It does not have a thread of its own: the selector thread of the core calls read when
+ * bytes arrived and flush when the channel can be written. The bytes are split into lines
+ * the same way BufferedReader.readLine does, and every line is handled by handleCommand
+ * of CollectoClientHandler, so the protocol is the same as with a blocking handler.
+ *
+ * <p>sendToClient only queues the message and asks the core to write it, so it never
+ * blocks and may be called from any thread. A client that does not read its messages is
+ * disconnected once MAX_PENDING_BYTES are waiting.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class NioClientHandler extends CollectoClientHandler {
+	/**
+	 * The longest line a client may send, in bytes.
+	 */
+	public static final int MAX_LINE_BYTES = 8192;
+
+	/**
+	 * The most bytes that may wait to be written to a client.
+	 */
+	public static final int MAX_PENDING_BYTES = 1 << 20;
+
+	/**
+	 * The line separator and charset of a BufferedWriter, so the messages are the same
+	 * as those of a blocking handler.
+	 */
+	private static final String NEW_LINE = System.lineSeparator();
+	private static final Charset CHARSET = Charset.defaultCharset();
+
+	/**
+	 * @invariant channel - the non-blocking connection with the client
+	 * @invariant core - the core whose selector thread reads and writes the channel
+	 * @invariant line and lineLength - the bytes of the line that is not complete yet
+	 * @invariant skipNewLine - true if the last line ended with '\r', so a '\n' directly
+	 * after it does not end an empty line
+	 * @invariant output - the messages that are not written yet, guarded by itself
+	 * @invariant pendingBytes - the bytes in output
+	 * @invariant closed - true once the connection is closed
+	 */
+	private final SocketChannel channel;
+	private final NioServerCore core;
+	private SelectionKey key;
+	private byte[] line = new byte[128];
+	private int lineLength;
+	private boolean skipNewLine;
+	private final ArrayDeque<ByteBuffer> output = new ArrayDeque<ByteBuffer>();
+	private int pendingBytes;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a handler for an accepted connection.
+	 * @requires channel is connected and in non-blocking mode
+	 * @param channel - the connection with the client
+	 * @param server - the server whose handle methods are called
+	 * @param core - the core that selects the channel
+	 */
+	NioClientHandler(SocketChannel channel, CollectoServer server, NioServerCore core) {
+		super(server);
+		this.channel = channel;
+		this.core = core;
+	}
+
+	/**
+	 * Sets the key of the channel with the selector of the core.
+	 * @param key - the selection key
+	 */
+	void setKey(SelectionKey key) {
+		this.key = key;
+	}
+
+	/**
+	 * Reads the bytes that arrived and handles every complete line.
+	 * Called by the selector thread when the channel is readable.
+	 * @param buffer - an empty buffer to read into, shared by all handlers of the core
+	 * @return false if the client closed the connection or sent a too long line
+	 * @throws IOException - if reading the channel failed
+	 * @throws ClientUnavailableException - if a reply could not be sent
+	 */
+	boolean read(ByteBuffer buffer) throws IOException, ClientUnavailableException {
+		buffer.clear();
+		int read = channel.read(buffer);
+		if (read < 0) {
+			return false;
+		}
+		buffer.flip();
+		while (buffer.hasRemaining() && !closed) {
+			byte b = buffer.get();
+			if ((b == '\n') && skipNewLine) {
+				skipNewLine = false;
+			} else if ((b == '\n') || (b == '\r')) {
+				skipNewLine = (b == '\r');
+				String msg = new String(line, 0, lineLength, CHARSET);
+				lineLength = 0;
+				System.out.println("> [" + getUserName() + "] Incoming: " + msg);
+				handleCommand(msg);
+			} else {
+				skipNewLine = false;
+				if (lineLength == MAX_LINE_BYTES) {
+					return false;
+				}
+				if (lineLength == line.length) {
+					line = Arrays.copyOf(line, Math.min(2 * line.length, MAX_LINE_BYTES));
+				}
+				line[lineLength++] = b;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Queues a command for the client, the selector thread of the core writes it.
+	 * @param msg - the command you want to send to the client
+	 * @requires msg to be a message according the protocol
+	 * @ensures the command is sent to the client, unless the connection breaks
+	 * @throws ClientUnavailableException - if the connection is closed or the client does
+	 * not read its messages
+	 */
+	@Override
+	public void sendToClient(String msg) throws ClientUnavailableException {
+		byte[] bytes = (msg + NEW_LINE).getBytes(CHARSET);
+		synchronized (output) {
+			if (closed || (pendingBytes + bytes.length > MAX_PENDING_BYTES)) {
+				throw new ClientUnavailableException("The client is Unavailable");
+			}
+			output.add(ByteBuffer.wrap(bytes));
+			pendingBytes += bytes.length;
+		}
+		core.requestFlush(this);
+	}
+
+	/**
+	 * Writes as much of the queued messages as the channel accepts, and selects the channel
+	 * for writing while messages are left. Called by the selector thread.
+	 * @throws IOException - if writing the channel failed
+	 */
+	void flush() throws IOException {
+		synchronized (output) {
+			while (!output.isEmpty()) {
+				ByteBuffer buffer = output.peek();
+				pendingBytes -= channel.write(buffer);
+				if (buffer.hasRemaining()) {
+					break;
+				}
+				output.poll();
+			}
+			if ((key != null) && key.isValid()) {
+				key.interestOps(output.isEmpty() ? SelectionKey.OP_READ
+						: SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the connection is closed.
+	 * @return true if the connection is closed
+	 */
+	@Override
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Closes the channel and drops the messages that were not written.
+	 * @ensures the channel is no longer selected
+	 * @throws IOException - if closing the channel failed
+	 */
+	@Override
+	protected void closeConnection() throws IOException {
+		synchronized (output) {
+			closed = true;
+			output.clear();
+			pendingBytes = 0;
+		}
+		if (key != null) {
+			key.cancel();
+		}
+		channel.close();
+	}
+}
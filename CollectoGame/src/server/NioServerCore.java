@@ -0,0 +1,210 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import exceptions.ClientUnavailableException;
+
+/**
+ * Server core that serves all clients of a CollectoServer from one thread with a Selector,
+ * instead of a thread per client. The channels are non-blocking; a NioClientHandler splits
+ * the received bytes into lines and passes them to the handle methods of the server, so
+ * the protocol is the same as with the blocking CollectoClientHandler.
+ *
+ * <p>All reading, writing and handling is done by the thread that runs the core. Messages
+ * that are sent from other threads are queued and written after the selector is woken up.
+ * A client whose connection breaks while a message is written is shut down after the
+ * current command, so a command is never interrupted by the shutdown of another client.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class NioServerCore implements Runnable {
+	/**
+	 * The size of the buffer the channels are read into.
+	 */
+	private static final int READ_BUFFER_BYTES = 8192;
+
+	/**
+	 * @invariant server - the server whose handle methods are called
+	 * @invariant channel - the bound channel that accepts new clients
+	 * @invariant flushes - the handlers with messages from other threads to write
+	 * @invariant broken - the handlers whose connection broke during the current command,
+	 * only used by the selector thread
+	 */
+	private final CollectoServer server;
+	private final ServerSocketChannel channel;
+	private final Selector selector;
+	private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+	private final ConcurrentLinkedQueue<NioClientHandler> flushes =
+			new ConcurrentLinkedQueue<NioClientHandler>();
+	private final List<NioClientHandler> broken = new ArrayList<NioClientHandler>();
+	private volatile Thread selectorThread;
+
+	/**
+	 * Creates a core that accepts clients on the given channel.
+	 * @requires channel is bound
+	 * @param server - the server whose handle methods are called
+	 * @param channel - the channel to accept clients on
+	 * @throws IOException - if the selector could not be opened
+	 */
+	public NioServerCore(CollectoServer server, ServerSocketChannel channel) throws IOException {
+		this.server = server;
+		this.channel = channel;
+		this.selector = Selector.open();
+		channel.configureBlocking(false);
+		channel.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Accepts, reads and writes until the core is closed.
+	 * @ensures every received line is handled by the server
+	 */
+	@Override
+	public void run() {
+		selectorThread = Thread.currentThread();
+		try {
+			while (channel.isOpen()) {
+				selector.select();
+				for (NioClientHandler handler = flushes.poll(); handler != null;
+						handler = flushes.poll()) {
+					flush(handler);
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+					} else {
+						serve(key);
+					}
+				}
+				shutdownBroken();
+			}
+		} catch (ClosedSelectorException e) {
+			// the core is closed
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			closeAll();
+		}
+	}
+
+	/**
+	 * Accepts the waiting clients.
+	 * @throws IOException - if the server channel failed
+	 */
+	private void accept() throws IOException {
+		SocketChannel client = channel.accept();
+		while (client != null) {
+			client.configureBlocking(false);
+			NioClientHandler handler = new NioClientHandler(client, server, this);
+			handler.setKey(client.register(selector, SelectionKey.OP_READ, handler));
+			client = channel.accept();
+		}
+	}
+
+	/**
+	 * Writes and reads the channel of a client, as far as it is ready.
+	 * @param key - the selected key of the client
+	 */
+	private void serve(SelectionKey key) {
+		NioClientHandler handler = (NioClientHandler) key.attachment();
+		try {
+			if (key.isWritable()) {
+				handler.flush();
+			}
+			if (key.isValid() && key.isReadable() && !handler.read(readBuffer)) {
+				handler.shutdown();
+			}
+		} catch (IOException | ClientUnavailableException e) {
+			handler.shutdown();
+		}
+	}
+
+	/**
+	 * Writes the queued messages of a handler now if this is the selector thread, otherwise
+	 * wakes the selector thread up to write them.
+	 * @param handler - the handler with queued messages
+	 */
+	void requestFlush(NioClientHandler handler) {
+		if (Thread.currentThread() == selectorThread) {
+			flush(handler);
+		} else {
+			flushes.add(handler);
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Writes the queued messages of a handler, and remembers it if its connection broke.
+	 * @param handler - the handler with queued messages
+	 */
+	private void flush(NioClientHandler handler) {
+		try {
+			handler.flush();
+		} catch (IOException e) {
+			broken.add(handler);
+		}
+	}
+
+	/**
+	 * Shuts down the handlers whose connection broke during the last commands.
+	 */
+	private void shutdownBroken() {
+		while (!broken.isEmpty()) {
+			broken.remove(broken.size() - 1).shutdown();
+		}
+	}
+
+	/**
+	 * Stops the core: the server channel is closed and the selector thread closes the
+	 * connections of all clients.
+	 * @ensures run returns
+	 */
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// not necessary to print anything
+		}
+		if (selectorThread == null) {
+			closeAll();
+		} else {
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Shuts down all clients and closes the selector.
+	 */
+	private void closeAll() {
+		try {
+			channel.close();
+			List<NioClientHandler> handlers = new ArrayList<NioClientHandler>();
+			for (SelectionKey key : selector.keys()) {
+				if (key.attachment() instanceof NioClientHandler) {
+					handlers.add((NioClientHandler) key.attachment());
+				}
+			}
+			for (NioClientHandler handler : handlers) {
+				handler.shutdown();
+			}
+			selector.close();
+		} catch (IOException | ClosedSelectorException e) {
+			// not necessary to print anything
+		}
+	}
+}
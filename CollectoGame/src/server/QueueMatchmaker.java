@@ -0,0 +1,185 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Matchmaker that pairs the players in the order they joined, without locks.
+ *
+ * <p>Every waiting player has a MatchTicket in a concurrent queue and in a map from player
+ * to ticket. Leaving is one compare-and-set on the state of the ticket, so it takes
+ * constant time; the cancelled ticket stays in the queue and is dropped when the pairing
+ * reaches it.
+ *
+ * <p>Pairing is done by one thread at a time in a drain loop: the thread that finds the
+ * drain counter at 0 pairs, and every join while it pairs only raises the counter, so the
+ * pairing thread loops once more instead of the joining thread waiting for it. During
+ * pairing a ticket is CLAIMED for a moment; a player that leaves then waits until it is
+ * paired or back to WAITING. The pairs are given to the listener after the drain loop,
+ * so starting a game and sending messages is done without holding anything and by the
+ * thread that found the pair.
+ *
+ * <p>A player is only paired if it is eligible when its ticket is claimed. The caller of
+ * toggle checks this as well, but a pair that is found between that check and the toggle
+ * could otherwise put a player that just got a game back in the queue.
+ *
+ * @param <T> - the type of the players
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class QueueMatchmaker<T> implements Matchmaker<T> {
+	/**
+	 * @invariant listener - receives the pairs
+	 * @invariant eligible - tells if a player may be paired
+	 * @invariant queue - the tickets in the order the players joined, with cancelled tickets
+	 * @invariant tickets - the ticket of every waiting or just paired player
+	 * @invariant drains - the number of drain requests that are not handled yet
+	 * @invariant waiting - the number of WAITING tickets
+	 * @invariant matches - the number of pairs that were found
+	 */
+	private final MatchListener<T> listener;
+	private final Predicate<T> eligible;
+	private final ConcurrentLinkedDeque<MatchTicket<T>> queue =
+			new ConcurrentLinkedDeque<MatchTicket<T>>();
+	private final ConcurrentHashMap<T, MatchTicket<T>> tickets =
+			new ConcurrentHashMap<T, MatchTicket<T>>();
+	private final AtomicInteger drains = new AtomicInteger();
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final AtomicLong matches = new AtomicLong();
+
+	/**
+	 * Creates a matchmaker for which every player is eligible.
+	 * @requires listener != null
+	 * @param listener - receives the pairs
+	 */
+	public QueueMatchmaker(MatchListener<T> listener) {
+		this(listener, player -> true);
+	}
+
+	/**
+	 * Creates a matchmaker.
+	 * @requires listener != null && eligible != null
+	 * @param listener - receives the pairs
+	 * @param eligible - tells if a player may be paired, for example if it is not in a game;
+	 * a waiting player that is not eligible when it would be paired leaves the queue
+	 */
+	public QueueMatchmaker(MatchListener<T> listener, Predicate<T> eligible) {
+		this.listener = listener;
+		this.eligible = eligible;
+	}
+
+	@Override
+	public boolean toggle(T player) {
+		MatchTicket<T> ticket = tickets.get(player);
+		if (ticket != null) {
+			if (!ticket.cancel()) {
+				// paired just now, the game is being started
+				return true;
+			}
+			waiting.decrementAndGet();
+			tickets.remove(player, ticket);
+			return false;
+		}
+		ticket = new MatchTicket<T>(player);
+		if (tickets.putIfAbsent(player, ticket) != null) {
+			// a concurrent toggle of the same player joined first
+			return true;
+		}
+		waiting.incrementAndGet();
+		queue.add(ticket);
+		drain();
+		return true;
+	}
+
+	@Override
+	public void remove(T player) {
+		MatchTicket<T> ticket = tickets.get(player);
+		if ((ticket != null) && ticket.cancel()) {
+			waiting.decrementAndGet();
+			tickets.remove(player, ticket);
+		}
+	}
+
+	@Override
+	public int size() {
+		return Math.max(0, waiting.get());
+	}
+
+	/**
+	 * Returns the number of pairs that were found.
+	 * @return the number of matches
+	 */
+	public long getMatches() {
+		return matches.get();
+	}
+
+	/**
+	 * Pairs the waiting players if no other thread is pairing, and gives the pairs to the
+	 * listener.
+	 */
+	private void drain() {
+		if (drains.getAndIncrement() != 0) {
+			return;
+		}
+		List<MatchTicket<T>> paired = new ArrayList<MatchTicket<T>>();
+		int missed = 1;
+		do {
+			while (true) {
+				MatchTicket<T> first = claim();
+				if (first == null) {
+					break;
+				}
+				MatchTicket<T> second = claim();
+				if (second == null) {
+					first.state.set(MatchTicket.WAITING);
+					queue.addFirst(first);
+					break;
+				}
+				first.state.set(MatchTicket.MATCHED);
+				second.state.set(MatchTicket.MATCHED);
+				waiting.addAndGet(-2);
+				paired.add(first);
+				paired.add(second);
+			}
+			missed = drains.addAndGet(-missed);
+		} while (missed != 0);
+
+		for (int i = 0; i < paired.size(); i += 2) {
+			MatchTicket<T> first = paired.get(i);
+			MatchTicket<T> second = paired.get(i + 1);
+			matches.incrementAndGet();
+			try {
+				listener.matched(first.player, second.player);
+			} catch (RuntimeException e) {
+				// the other pairs are still started
+				e.printStackTrace();
+			}
+			tickets.remove(first.player, first);
+			tickets.remove(second.player, second);
+		}
+	}
+
+	/**
+	 * Takes the first waiting ticket from the queue and claims it, dropping the cancelled
+	 * tickets in front of it and cancelling those of players that are not eligible.
+	 * Only called by the pairing thread.
+	 * @return the claimed ticket, or null if no player is waiting
+	 */
+	private MatchTicket<T> claim() {
+		for (MatchTicket<T> ticket = queue.poll(); ticket != null; ticket = queue.poll()) {
+			if (ticket.claim()) {
+				if (eligible.test(ticket.player)) {
+					return ticket;
+				}
+				ticket.state.set(MatchTicket.CANCELLED);
+				waiting.decrementAndGet();
+				tickets.remove(ticket.player, ticket);
+			}
+		}
+		return null;
+	}
+}
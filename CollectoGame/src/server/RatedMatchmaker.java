@@ -0,0 +1,411 @@
+package server;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Matchmaker that pairs players with a similar rating. A player is paired with a player
+ * whose rating differs at most its window from its own rating. The window starts at the
+ * initial window and widens with the time the player waits, so a player with a rare
+ * rating still gets a game.
+ *
+ * <p>The waiting players are kept in buckets of BUCKET_WIDTH rating points, in a TreeMap
+ * from bucket to the tickets in the order they joined. A pairing only looks at the
+ * oldest ticket of the buckets within the window, so it takes time in the width of the
+ * window and not in the number of waiting players. Within a bucket the player that waited
+ * longest is paired first.
+ *
+ * <p>Joining and leaving work as in QueueMatchmaker: a joining player adds its MatchTicket
+ * to a concurrent queue of arrivals and one thread at a time pairs in a drain loop; the
+ * buckets are only used by that thread, so they need no lock. Leaving is a compare-and-set
+ * on the ticket, the cancelled ticket is dropped from its bucket later. A new player is
+ * paired when it arrives, with its initial window. The owner of the matchmaker calls tick
+ * every TICK_MILLIS, so the players that wait are paired again with their wider window.
+ *
+ * <p>The wait time of every paired player is recorded in a WaitTimeHistogram.
+ *
+ * @param <T> - the type of the players
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class RatedMatchmaker<T> implements Matchmaker<T> {
+	/**
+	 * The number of rating points in a bucket.
+	 */
+	public static final int BUCKET_WIDTH = 50;
+
+	/**
+	 * The default window of a player that just joined, in rating points.
+	 */
+	public static final int INITIAL_WINDOW = 100;
+
+	/**
+	 * The default number of rating points the window widens every second.
+	 */
+	public static final int WIDEN_PER_SECOND = 25;
+
+	/**
+	 * The widest window, wide enough to pair any two ratings.
+	 */
+	public static final int MAX_WINDOW = 10000;
+
+	/**
+	 * How often tick should be called, in milliseconds.
+	 */
+	public static final long TICK_MILLIS = 250;
+
+	/**
+	 * The ticket of a player, with the rating and the time at which it joined.
+	 * @param <T> - the type of the players
+	 */
+	private static final class RatedTicket<T> extends MatchTicket<T> {
+		private final int rating;
+		private final int bucket;
+		private final long joined;
+
+		/**
+		 * Creates a waiting ticket.
+		 * @param player - the player of the ticket
+		 * @param rating - the rating of the player
+		 * @param joined - the time at which the player joined, in nanoseconds
+		 */
+		RatedTicket(T player, int rating, long joined) {
+			super(player);
+			this.rating = rating;
+			this.bucket = Math.floorDiv(rating, BUCKET_WIDTH);
+			this.joined = joined;
+		}
+	}
+
+	/**
+	 * @invariant listener - receives the pairs
+	 * @invariant rating - gives the rating of a player when it joins
+	 * @invariant eligible - tells if a player may be paired
+	 * @invariant initialWindow and widenPerSecond - give the window of a waiting player
+	 * @invariant clock - gives the time in nanoseconds
+	 * @invariant tickets - the ticket of every waiting or just paired player
+	 * @invariant arrivals - the tickets that are not in a bucket yet
+	 * @invariant buckets - the tickets by bucket, only used by the pairing thread
+	 * @invariant drains - the number of drain requests that are not handled yet
+	 * @invariant sweep - true if the waiting players should be paired with their window
+	 * @invariant waiting - the number of WAITING tickets
+	 * @invariant stale - the number of cancelled tickets that are still in a bucket or in
+	 * 		arrivals
+	 * @invariant matches - the number of pairs that were found
+	 * @invariant waitTimes - the wait times of the paired players
+	 */
+	private final MatchListener<T> listener;
+	private final ToIntFunction<T> rating;
+	private final Predicate<T> eligible;
+	private final int initialWindow;
+	private final int widenPerSecond;
+	private final LongSupplier clock;
+	private final ConcurrentHashMap<T, RatedTicket<T>> tickets =
+			new ConcurrentHashMap<T, RatedTicket<T>>();
+	private final ConcurrentLinkedQueue<RatedTicket<T>> arrivals =
+			new ConcurrentLinkedQueue<RatedTicket<T>>();
+	private final TreeMap<Integer, ArrayDeque<RatedTicket<T>>> buckets =
+			new TreeMap<Integer, ArrayDeque<RatedTicket<T>>>();
+	private final AtomicInteger drains = new AtomicInteger();
+	private final AtomicBoolean sweep = new AtomicBoolean();
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final AtomicInteger stale = new AtomicInteger();
+	private final AtomicLong matches = new AtomicLong();
+	private final WaitTimeHistogram waitTimes = new WaitTimeHistogram();
+
+	/**
+	 * Creates a matchmaker with the default window.
+	 * @requires listener != null && rating != null && eligible != null
+	 * @param listener - receives the pairs
+	 * @param rating - gives the rating of a player when it joins
+	 * @param eligible - tells if a player may be paired, see QueueMatchmaker
+	 */
+	public RatedMatchmaker(MatchListener<T> listener, ToIntFunction<T> rating,
+			Predicate<T> eligible) {
+		this(listener, rating, eligible, INITIAL_WINDOW, WIDEN_PER_SECOND, System::nanoTime);
+	}
+
+	/**
+	 * Creates a matchmaker.
+	 * @requires listener != null && rating != null && eligible != null && clock != null
+	 * @requires 0 <= initialWindow <= MAX_WINDOW && widenPerSecond >= 0
+	 * @param listener - receives the pairs
+	 * @param rating - gives the rating of a player when it joins
+	 * @param eligible - tells if a player may be paired, see QueueMatchmaker
+	 * @param initialWindow - the window of a player that just joined
+	 * @param widenPerSecond - the number of rating points the window widens every second
+	 * @param clock - gives the time in nanoseconds, like System.nanoTime
+	 */
+	public RatedMatchmaker(MatchListener<T> listener, ToIntFunction<T> rating,
+			Predicate<T> eligible, int initialWindow, int widenPerSecond, LongSupplier clock) {
+		this.listener = listener;
+		this.rating = rating;
+		this.eligible = eligible;
+		this.initialWindow = initialWindow;
+		this.widenPerSecond = widenPerSecond;
+		this.clock = clock;
+	}
+
+	@Override
+	public boolean toggle(T player) {
+		RatedTicket<T> ticket = tickets.get(player);
+		if (ticket != null) {
+			if (!ticket.cancel()) {
+				// paired just now, the game is being started
+				return true;
+			}
+			waiting.decrementAndGet();
+			stale.incrementAndGet();
+			tickets.remove(player, ticket);
+			return false;
+		}
+		ticket = new RatedTicket<T>(player, rating.applyAsInt(player), clock.getAsLong());
+		if (tickets.putIfAbsent(player, ticket) != null) {
+			// a concurrent toggle of the same player joined first
+			return true;
+		}
+		waiting.incrementAndGet();
+		arrivals.add(ticket);
+		drain();
+		return true;
+	}
+
+	@Override
+	public void remove(T player) {
+		RatedTicket<T> ticket = tickets.get(player);
+		if ((ticket != null) && ticket.cancel()) {
+			waiting.decrementAndGet();
+			stale.incrementAndGet();
+			tickets.remove(player, ticket);
+		}
+	}
+
+	@Override
+	public int size() {
+		return Math.max(0, waiting.get());
+	}
+
+	/**
+	 * Pairs the waiting players with their current window. Called every TICK_MILLIS by the
+	 * owner of the matchmaker.
+	 */
+	public void tick() {
+		sweep.set(true);
+		drain();
+	}
+
+	/**
+	 * Returns the number of pairs that were found.
+	 * @return the number of matches
+	 */
+	public long getMatches() {
+		return matches.get();
+	}
+
+	/**
+	 * Returns the wait times of the paired players.
+	 * @return the histogram, from which the percentiles can be read
+	 */
+	public WaitTimeHistogram getWaitTimes() {
+		return waitTimes;
+	}
+
+	/**
+	 * Returns the window of a ticket.
+	 * @param ticket - the ticket
+	 * @param now - the current time in nanoseconds
+	 * @return the number of rating points the rating of the other player may differ
+	 */
+	private int window(RatedTicket<T> ticket, long now) {
+		long widened = Math.max(0, now - ticket.joined) / 1000000 * widenPerSecond / 1000;
+		return (int) Math.min(MAX_WINDOW, initialWindow + widened);
+	}
+
+	/**
+	 * Puts the arrivals in their bucket and pairs them, and pairs the waiting players if a
+	 * tick asked for it, if no other thread is pairing. Then gives the pairs to the
+	 * listener.
+	 */
+	private void drain() {
+		if (drains.getAndIncrement() != 0) {
+			return;
+		}
+		List<RatedTicket<T>> paired = new ArrayList<RatedTicket<T>>();
+		int missed = 1;
+		do {
+			long now = clock.getAsLong();
+			for (RatedTicket<T> ticket = arrivals.poll(); ticket != null;
+					ticket = arrivals.poll()) {
+				if (!pair(ticket, now, paired)) {
+					bucket(ticket.bucket).addLast(ticket);
+				}
+			}
+			if (sweep.getAndSet(false)) {
+				sweep(now, paired);
+			}
+			missed = drains.addAndGet(-missed);
+		} while (missed != 0);
+
+		for (int i = 0; i < paired.size(); i += 2) {
+			RatedTicket<T> first = paired.get(i);
+			RatedTicket<T> second = paired.get(i + 1);
+			matches.incrementAndGet();
+			try {
+				listener.matched(first.player, second.player);
+			} catch (RuntimeException e) {
+				// the other pairs are still started
+				e.printStackTrace();
+			}
+			tickets.remove(first.player, first);
+			tickets.remove(second.player, second);
+		}
+	}
+
+	/**
+	 * Pairs the oldest ticket of every bucket while it finds a partner within its window.
+	 * Only called by the pairing thread.
+	 * @param now - the current time in nanoseconds
+	 * @param paired - the list the pairs are added to
+	 */
+	private void sweep(long now, List<RatedTicket<T>> paired) {
+		if (stale.get() > waiting.get()) {
+			compact();
+		}
+		for (Integer key : new ArrayList<Integer>(buckets.keySet())) {
+			while (true) {
+				ArrayDeque<RatedTicket<T>> bucket = buckets.get(key);
+				RatedTicket<T> oldest = (bucket == null) ? null : oldest(bucket);
+				if (oldest == null) {
+					buckets.remove(key);
+					break;
+				}
+				bucket.poll();
+				if (!pair(oldest, now, paired)) {
+					bucket(key).addFirst(oldest);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pairs a ticket that is not in a bucket with the closest rating of the oldest tickets
+	 * of the buckets within its window. Only called by the pairing thread.
+	 * @param ticket - the ticket to pair
+	 * @param now - the current time in nanoseconds
+	 * @param paired - the list the pair is added to
+	 * @return false if the ticket is waiting and not paired, true if it was paired or has
+	 * 		left
+	 */
+	private boolean pair(RatedTicket<T> ticket, long now, List<RatedTicket<T>> paired) {
+		if (!ticket.claim()) {
+			stale.decrementAndGet();
+			return true;
+		}
+		if (!eligible.test(ticket.player)) {
+			drop(ticket);
+			return true;
+		}
+		int window = window(ticket, now);
+		while (true) {
+			RatedTicket<T> best = null;
+			for (ArrayDeque<RatedTicket<T>> bucket : buckets.subMap(
+					Math.floorDiv(ticket.rating - window, BUCKET_WIDTH), true,
+					Math.floorDiv(ticket.rating + window, BUCKET_WIDTH), true).values()) {
+				RatedTicket<T> oldest = oldest(bucket);
+				if ((oldest != null) && (Math.abs(oldest.rating - ticket.rating) <= window)
+						&& ((best == null) || (Math.abs(oldest.rating - ticket.rating)
+								< Math.abs(best.rating - ticket.rating)))) {
+					best = oldest;
+				}
+			}
+			if (best == null) {
+				ticket.state.set(MatchTicket.WAITING);
+				return false;
+			}
+			ArrayDeque<RatedTicket<T>> bucket = buckets.get(best.bucket);
+			bucket.poll();
+			if (bucket.isEmpty()) {
+				buckets.remove(best.bucket);
+			}
+			if (!best.claim()) {
+				// cancelled after it was found
+				stale.decrementAndGet();
+			} else if (!eligible.test(best.player)) {
+				drop(best);
+			} else {
+				ticket.state.set(MatchTicket.MATCHED);
+				best.state.set(MatchTicket.MATCHED);
+				waiting.addAndGet(-2);
+				waitTimes.record((now - ticket.joined) / 1000000);
+				waitTimes.record((now - best.joined) / 1000000);
+				boolean bestFirst = best.joined - ticket.joined <= 0;
+				paired.add(bestFirst ? best : ticket);
+				paired.add(bestFirst ? ticket : best);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the oldest ticket of a bucket that did not leave, dropping the cancelled
+	 * tickets in front of it. Only called by the pairing thread.
+	 * @param bucket - the bucket
+	 * @return the oldest ticket, or null if the bucket has no waiting ticket
+	 */
+	private RatedTicket<T> oldest(ArrayDeque<RatedTicket<T>> bucket) {
+		RatedTicket<T> oldest = bucket.peek();
+		while ((oldest != null) && (oldest.state.get() == MatchTicket.CANCELLED)) {
+			bucket.poll();
+			stale.decrementAndGet();
+			oldest = bucket.peek();
+		}
+		return oldest;
+	}
+
+	/**
+	 * Returns the bucket with the given key, and adds it if it is not there.
+	 * @param key - the key of the bucket
+	 * @return the bucket
+	 */
+	private ArrayDeque<RatedTicket<T>> bucket(int key) {
+		return buckets.computeIfAbsent(key, k -> new ArrayDeque<RatedTicket<T>>());
+	}
+
+	/**
+	 * Cancels a claimed ticket whose player is not eligible, so it leaves the matchmaker.
+	 * @param ticket - the claimed ticket, not in a bucket
+	 */
+	private void drop(RatedTicket<T> ticket) {
+		ticket.state.set(MatchTicket.CANCELLED);
+		waiting.decrementAndGet();
+		tickets.remove(ticket.player, ticket);
+	}
+
+	/**
+	 * Removes the cancelled tickets from all buckets, so the buckets do not grow when many
+	 * players join and leave without being paired.
+	 */
+	private void compact() {
+		Iterator<ArrayDeque<RatedTicket<T>>> iterator = buckets.values().iterator();
+		while (iterator.hasNext()) {
+			ArrayDeque<RatedTicket<T>> bucket = iterator.next();
+			int before = bucket.size();
+			bucket.removeIf(ticket -> ticket.state.get() == MatchTicket.CANCELLED);
+			stale.addAndGet(bucket.size() - before);
+			if (bucket.isEmpty()) {
+				iterator.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package server;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mailbox that runs its tasks one at a time, in the order they were given, on the threads
+ * of a shared executor. Every CollectoServerGame has one, so the commands of a game never
+ * run at the same time, while the commands of different games run in parallel on the
+ * threads of the shared executor. No lock is held while a task runs.
+ *
+ * <p>At most one drain of the mailbox is scheduled at a time. A drain runs at most
+ * BATCH_SIZE tasks and then schedules itself again if tasks are left, so a busy game
+ * does not keep a thread of the shared executor from the other games.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public final class SerialExecutor implements Executor {
+	/**
+	 * The maximum number of tasks a drain runs before it gives the thread back.
+	 */
+	public static final int BATCH_SIZE = 32;
+
+	/**
+	 * @invariant executor - the shared executor the drains run on
+	 * @invariant mailbox - the tasks that did not run yet
+	 * @invariant scheduled - true while a drain is scheduled or running
+	 */
+	private final Executor executor;
+	private final ConcurrentLinkedQueue<Runnable> mailbox = new ConcurrentLinkedQueue<Runnable>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	/**
+	 * Creates a mailbox that runs its tasks on the given executor.
+	 * @requires executor != null
+	 * @param executor - the shared executor
+	 */
+	public SerialExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Adds a task to the mailbox. It runs after all tasks that were added before it.
+	 * A task that throws a RuntimeException does not stop the tasks after it.
+	 * @requires task != null
+	 * @param task - the task to run
+	 * @throws RejectedExecutionException - if the shared executor does not accept the drain
+	 */
+	@Override
+	public void execute(Runnable task) {
+		mailbox.add(task);
+		schedule();
+	}
+
+	/**
+	 * Schedules a drain on the shared executor, unless one is scheduled already.
+	 */
+	private void schedule() {
+		if (scheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				scheduled.set(false);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Runs the tasks in the mailbox, at most BATCH_SIZE.
+	 */
+	private void drain() {
+		try {
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				Runnable task = mailbox.poll();
+				if (task == null) {
+					break;
+				}
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		} finally {
+			scheduled.set(false);
+			// a task that was added after the last poll saw scheduled still set
+			if (!mailbox.isEmpty()) {
+				schedule();
+			}
+		}
+	}
+}
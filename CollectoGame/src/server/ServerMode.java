@@ -0,0 +1,47 @@
+package server;
+
+/**
+ * The ways a CollectoServer can serve its clients.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public enum ServerMode {
+	/**
+	 * A new platform thread with a blocking CollectoClientHandler for every client.
+	 */
+	THREADS,
+
+	/**
+	 * A virtual thread with a blocking CollectoClientHandler for every client. A blocked
+	 * virtual thread does not hold a platform thread, so an idle client only costs its
+	 * handler and a small stack. Virtual threads need Java 21. On an older JVM the server
+	 * warns when it starts and uses a cached pool of platform threads instead, so every
+	 * client then holds a platform thread, as with THREADS.
+	 */
+	VIRTUAL_THREADS,
+
+	/**
+	 * One thread with a NioServerCore for all clients.
+	 */
+	NIO;
+
+	/**
+	 * Returns the mode with the given name, as given on the command line.
+	 * @param name - "threads", "virtual" or "nio", in any case, or null
+	 * @return the mode, THREADS for null or an unknown name
+	 */
+	public static ServerMode parse(String name) {
+		if (name == null) {
+			return THREADS;
+		}
+		switch (name.toLowerCase()) {
+			case "virtual":
+			case "virtual_threads":
+				return VIRTUAL_THREADS;
+			case "nio":
+				return NIO;
+			default:
+				return THREADS;
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of the times players waited in a matchmaker, in milliseconds, from which the
+ * percentiles are read. Recording is one atomic increment, so the pairing thread never
+ * waits for a thread that reads the percentiles.
+ *
+ * <p>The counts are kept in log-linear buckets: the values below 32 have a bucket each, and
+ * every higher power of two is split into SUB_BUCKETS buckets. A percentile is the upper
+ * bound of the bucket it falls in, so it is at most 1/SUB_BUCKETS too high, whatever the
+ * number of recorded values.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class WaitTimeHistogram {
+	/**
+	 * The number of buckets every power of two is split into.
+	 */
+	public static final int SUB_BUCKETS = 16;
+	private static final int SUB_BITS = 4;
+
+	/**
+	 * @invariant counts - the number of recorded values in every bucket
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(index(Integer.MAX_VALUE) + 1);
+
+	/**
+	 * Records a wait time.
+	 * @param millis - the wait time in milliseconds, negative times are recorded as 0 and
+	 * times above Integer.MAX_VALUE as Integer.MAX_VALUE
+	 */
+	public void record(long millis) {
+		counts.incrementAndGet(index(Math.max(0, Math.min(millis, Integer.MAX_VALUE))));
+	}
+
+	/**
+	 * Returns the number of recorded wait times.
+	 * @return the count
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the wait time that the given percentage of the recorded wait times does not
+	 * exceed.
+	 * @requires 0 <= percentile <= 100
+	 * @param percentile - for example 50 for the median or 99
+	 * @return the percentile in milliseconds, 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] snapshot = new long[counts.length()];
+		long count = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			snapshot[i] = counts.get(i);
+			count += snapshot[i];
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return upperBound(snapshot.length - 1);
+	}
+
+	/**
+	 * Returns the bucket of a value.
+	 * @requires 0 <= value <= Integer.MAX_VALUE
+	 * @param value - the value
+	 * @return the index of its bucket
+	 */
+	private static int index(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/**
+	 * Returns the highest value of a bucket.
+	 * @param index - the index of the bucket
+	 * @return the highest value that is recorded in the bucket
+	 */
+	private static long upperBound(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long mantissa = index - shift * SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+	/**
+	 * Returns the median, 90th and 99th percentile and the count.
+	 * @return the percentiles as text
+	 */
+	@Override
+	public String toString() {
+		return "p50=" + getPercentile(50) + "ms p90=" + getPercentile(90) + "ms p99="
+				+ getPercentile(99) + "ms n=" + getCount();
+	}
+}
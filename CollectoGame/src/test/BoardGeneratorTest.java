@@ -0,0 +1,74 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import collectogame.Ball;
+import collectogame.Board;
+import collectogame.BoardGenerator;
+
+public class BoardGeneratorTest {
+
+	/**
+	 * test createBoard method.
+	 * check if every board is a valid starting board.
+	 */
+	@Test
+	public void testCreateBoard() {
+		BoardGenerator generator = new BoardGenerator(42L);
+		for (int test = 0; test < 10000; test++) {
+			assertStartingBoard(generator.createBoard());
+		}
+	}
+
+	/**
+	 * test the seeded constructor.
+	 * check if the same seed gives the same boards and another seed other boards.
+	 */
+	@Test
+	public void testSeed() {
+		BoardGenerator generator1 = new BoardGenerator(7L);
+		BoardGenerator generator2 = new BoardGenerator(7L);
+		BoardGenerator generator3 = new BoardGenerator(8L);
+		for (int test = 0; test < 10; test++) {
+			Board board = generator1.createBoard();
+			assertEquals(board, generator2.createBoard());
+			assertNotEquals(board, generator3.createBoard());
+		}
+	}
+
+	/**
+	 * test the fixed board that is used when no random board was found.
+	 * check if it is a valid starting board for every renumbering and symmetry.
+	 */
+	@Test
+	public void testFixedBoard() {
+		BoardGenerator generator = new BoardGenerator(new SplittableRandom(1L), 0);
+		for (int test = 0; test < 100; test++) {
+			assertStartingBoard(generator.createBoard());
+		}
+	}
+
+	/**
+	 * Checks the rules of a starting board.
+	 * @param board - the board to check
+	 */
+	private void assertStartingBoard(Board board) {
+		assertEquals(Ball.EMPTY, board.getField(24));
+		for (int i = 0; i < Board.DIM; i++) {
+			for (int j = 0; j < Board.DIM; j++) {
+				assertTrue(board.isValidPosition(i, j));
+			}
+		}
+		for (int colour = 1; colour < 7; colour++) {
+			assertEquals(BoardGenerator.BALLS_PER_COLOUR,
+					Long.bitCount(board.getColourMask(Ball.convertTo(colour))));
+		}
+		assertTrue(board.isStillPossibleSingleMove());
+	}
+}
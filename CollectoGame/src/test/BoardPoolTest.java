@@ -0,0 +1,45 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import collectogame.Ball;
+import collectogame.Board;
+import server.BoardPool;
+
+public class BoardPoolTest {
+
+	/**
+	 * test take method.
+	 * check if an empty pool still gives a starting board and counts a miss,
+	 * and if a started pool is filled in the background and counts hits.
+	 */
+	@Test
+	public void testTake() throws InterruptedException {
+		BoardPool pool = new BoardPool(8, 2, 6);
+		Board board = pool.take();
+		assertEquals(Ball.EMPTY, board.getField(24));
+		assertTrue(board.isStillPossibleSingleMove());
+		assertEquals(0, pool.getHits());
+		assertEquals(1, pool.getMisses());
+
+		pool.start();
+		for (int wait = 0; (wait < 500) && (pool.size() < 6); wait++) {
+			Thread.sleep(10);
+		}
+		assertEquals(6, pool.size());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(pool.take().isStillPossibleSingleMove());
+		}
+		assertEquals(4, pool.getHits());
+
+		// the pool dropped to the low watermark, so it is filled again
+		for (int wait = 0; (wait < 500) && (pool.size() < 6); wait++) {
+			Thread.sleep(10);
+		}
+		assertEquals(6, pool.size());
+		pool.stop();
+	}
+}
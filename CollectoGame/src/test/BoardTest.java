@@ -3,14 +3,25 @@ package test;
 import static collectogame.Board.DIM;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import collectogame.Ball;
 import collectogame.Board;
+import collectogame.BoardRenderer;
+import collectogame.BoardUndo;
+import collectogame.DoubleMoves;
 
 
 
@@ -129,6 +140,33 @@ public class BoardTest {
         assertTrue(board.isCollectableBoard());
     }
     
+    /**
+     * test getColourMask and getCollectableMask methods.
+     * the masks need to follow every setField and collectBall call.
+     */
+    @Test
+    public void testColourMasks() {
+    	assertEquals(0L, board.getColourMask(Ball.BLUE));
+    	board.setField(0, Ball.BLUE);
+    	board.setField(1, Ball.BLUE);
+    	board.setField(6, Ball.BLUE);
+    	board.setField(7, Ball.RED);
+    	assertEquals(0b1000011L, board.getColourMask(Ball.BLUE));
+    	assertEquals(1L << 7, board.getColourMask(Ball.RED));
+    	assertEquals(0L, board.getColourMask(Ball.EMPTY));
+    	assertEquals(0b11L, board.getCollectableMask());
+    	
+    	// field 6 and 7 are not adjacent, they are on different rows
+    	board.setField(6, Ball.RED);
+    	assertEquals(0b11L, board.getCollectableMask());
+    	assertEquals(0b11L, board.getColourMask(Ball.BLUE));
+    	
+    	board.collectBall();
+    	assertEquals(0L, board.getColourMask(Ball.BLUE));
+    	assertEquals(0L, board.getCollectableMask());
+    	assertEquals(Ball.RED, board.getField(6));
+    }
+    
     /**
      * test initializeNewBoard method.
      * true if the middle of board is empty
@@ -227,6 +265,35 @@ public class BoardTest {
     	assertFalse(board.makeSingleMove(27));
     }
     
+    /**
+     * test makeSingleMove method in all 4 directions.
+     * the balls keep their order and a full row or column stays unchanged.
+     */
+    @Test
+    public void testSingleMoveDirections() {
+    	board.setField(1, 1, Ball.BLUE);
+    	board.setField(1, 4, Ball.RED);
+    	assertTrue(board.makeSingleMove(8));
+    	assertEquals(Ball.BLUE, board.getField(1, 5));
+    	assertEquals(Ball.RED, board.getField(1, 6));
+    	assertTrue(board.makeSingleMove(1));
+    	assertEquals(Ball.BLUE, board.getField(1, 0));
+    	assertEquals(Ball.RED, board.getField(1, 1));
+    	assertTrue(board.makeSingleMove(21));
+    	assertEquals(Ball.BLUE, board.getField(6, 0));
+    	assertTrue(board.makeSingleMove(15));
+    	assertEquals(Ball.RED, board.getField(0, 1));
+    	assertEquals(Ball.EMPTY, board.getField(1, 1));
+    	
+    	for (int i = 0; i < DIM; i++) {
+    		board.setField(3, i, Ball.convertTo(i % 2 + 1));
+    	}
+    	assertFalse(board.makeSingleMove(3));
+    	for (int i = 0; i < DIM; i++) {
+    		assertEquals(Ball.convertTo(i % 2 + 1), board.getField(3, i));
+    	}
+    }
+    
     /**
      * test isValidSingleMove method.
      * check if the move's indice is correct or not.
@@ -261,6 +328,26 @@ public class BoardTest {
     	assertThat(ans, containsString("10--> | ORANGE |  BLUE  | ORANGE |      "
     			+ "  | ORANGE |  BLUE  | ORANGE | <-- 3"));
     }
+
+    /**
+     * test BoardRenderer.render methods.
+     * check if the rendered text is appended and equals toString, also after a move.
+     */
+    @Test
+    public void testRender() throws IOException {
+    	board.initializeNewBoard();
+    	StringBuilder text = new StringBuilder("board:\n");
+    	BoardRenderer.render(board, text);
+    	assertEquals("board:\n" + board.toString(), text.toString());
+    	
+    	String before = board.toString();
+    	board.makeSingleMove(3);
+    	StringWriter writer = new StringWriter();
+    	BoardRenderer.render(board, writer);
+    	assertEquals(writer.toString(), board.toString());
+    	assertNotEquals(before, board.toString());
+    	assertEquals(BoardRenderer.LENGTH, before.length());
+    }
     
     /**
      * test makeDoubleMove method.
@@ -327,6 +414,238 @@ public class BoardTest {
     	assertTrue(board.isStillPossibleDoubleMove());        
     }
     
+    /**
+     * test getValidSingleMoves and getValidDoubleMoves methods.
+     * check if the masks contain exactly the moves that isValidSingleMove 
+     * and isValidDoubleMove accept.
+     */
+    @Test
+    public void testValidMoveMasks() {
+    	board.setField(0, Ball.BLUE);
+    	board.setField(47, Ball.BLUE);
+    	board.setField(5, Ball.YELLOW);
+    	assertEquals(0, board.getValidSingleMoves());
+    	int[] secondMoves = new int[28];
+    	int count = board.getValidDoubleMoves(secondMoves);
+    	assertTrue(count > 0);
+    	assertTrue((secondMoves[7] & (1 << 19)) != 0);
+    	
+    	for (int test = 0; test < 20; test++) {
+    		if (test > 0) {
+    			board.initializeNewBoard();
+    			for (int move = 0; move < test; move++) {
+    				board.makeSingleMove((move * 5 + test) % 28);
+    				board.collectBall();
+    			}
+    		}
+    		int singleMoves = board.getValidSingleMoves();
+    		count = board.getValidDoubleMoves(secondMoves);
+    		// a board without cached moves, so every move is really tried
+    		Board fresh = copyFields(board);
+    		int expectedCount = 0;
+    		for (int indice1 = 0; indice1 <= 27; indice1++) {
+    			assertEquals(fresh.isValidSingleMove(indice1), (singleMoves & (1 << indice1)) != 0);
+    			for (int indice2 = 0; indice2 <= 27; indice2++) {
+    				boolean valid = fresh.isValidDoubleMove(indice1, indice2);
+    				assertEquals(valid, (secondMoves[indice1] & (1 << indice2)) != 0);
+    				if (valid) {
+    					expectedCount++;
+    				}
+    			}
+    		}
+    		assertEquals(expectedCount, count);
+    	}
+    }
+    
+    /**
+     * test getDoubleMoves method.
+     * check if every valid double move is found once with the balls it collects
+     * and the board is the same afterwards.
+     */
+    @Test
+    public void testGetDoubleMoves() {
+    	board.setField(0, Ball.BLUE);
+    	board.setField(5, Ball.YELLOW);
+    	board.setField(47, Ball.BLUE);
+    	board.setField(44, Ball.YELLOW);
+    	board.setField(30, Ball.RED);
+    	board.setField(18, Ball.RED);
+    	assertFalse(board.isStillPossibleSingleMove());
+    	Board original = board.deepCopy();
+    	
+    	DoubleMoves moves = board.getDoubleMoves();
+    	assertEquals(original, board);
+    	assertEquals(original.toString(), board.toString());
+    	assertTrue(moves.size() > 0);
+    	int found = 0;
+    	for (int move = 0; move < 28 * 28; move++) {
+    		if (!original.isValidDoubleMove(move / 28, move % 28)) {
+    			continue;
+    		}
+    		assertEquals(move, moves.getMove(found));
+    		Board copy = original.deepCopy();
+    		copy.makeDoubleMove(moves.getFirstMove(found), moves.getSecondMove(found));
+    		List<Ball> collected = copy.collectBall();
+    		assertEquals(collected.size(), moves.getCollected(found));
+    		assertEquals(collected.get(0), moves.getFirstBall(found));
+    		int[] collection = new int[7];
+    		moves.addCollected(found, collection);
+    		for (Ball ball : collected) {
+    			collection[ball.convertTo()]--;
+    		}
+    		assertArrayEquals(new int[7], collection);
+    		found++;
+    	}
+    	assertEquals(found, moves.size());
+    }
+
+    /**
+     * test forEachValidDoubleMove method on a board with single moves.
+     * check if the double moves whose first move does not move any ball are visited
+     * in the position after the double move.
+     */
+    @Test
+    public void testForEachValidDoubleMoveUnchanged() {
+    	board.initializeNewBoard();
+    	assertTrue(board.isStillPossibleSingleMove());
+    	Board original = board.deepCopy();
+    	List<Integer> visited = new ArrayList<Integer>();
+    	board.forEachValidDoubleMove((moved, move1, move2) -> {
+    		Board copy = original.deepCopy();
+    		copy.makeDoubleMove(move1, move2);
+    		assertEquals(copy, moved);
+    		visited.add(move1 * 28 + move2);
+    	});
+    	assertEquals(original, board);
+    	List<Integer> expected = new ArrayList<Integer>();
+    	for (int move = 0; move < 28 * 28; move++) {
+    		if (original.isValidDoubleMove(move / 28, move % 28)) {
+    			expected.add(move);
+    		}
+    	}
+    	assertEquals(expected, visited);
+    }
+
+    /**
+     * test forEachValidDoubleMove method with a visitor that uses the same board.
+     * check if the double moves of other positions asked by the visitor do not end up
+     * in the cached double moves of this position.
+     */
+    @Test
+    public void testForEachValidDoubleMoveNested() {
+    	board.initializeNewBoard();
+    	Board original = board.deepCopy();
+    	int[] expectedMoves = new int[28];
+    	int expected = copyFields(board).getValidDoubleMoves(expectedMoves);
+    	assertTrue(expected > 0);
+    	int[] nested = new int[28];
+    	assertEquals(expected, board.forEachValidDoubleMove((moved, move1, move2) ->
+    			moved.getValidDoubleMoves(nested)));
+    	assertEquals(original, board);
+    	int[] secondMoves = new int[28];
+    	assertEquals(expected, board.getValidDoubleMoves(secondMoves));
+    	assertArrayEquals(expectedMoves, secondMoves);
+
+    	// without a nested calculation the moves are cached as they are visited
+    	assertEquals(expected, board.forEachValidDoubleMove((moved, move1, move2) -> { }));
+    	assertEquals(expected, board.getValidDoubleMoves(secondMoves));
+    	assertArrayEquals(expectedMoves, secondMoves);
+    }
+
+    /**
+     * test the cached legal moves.
+     * check if the cached moves are forgotten after every change of the board.
+     */
+    @Test
+    public void testLegalMoveCache() {
+    	board.setField(0, Ball.BLUE);
+    	board.setField(5, Ball.YELLOW);
+    	assertTrue(board.isEndGame());
+    	board.setField(47, Ball.BLUE);
+    	assertFalse(board.isStillPossibleSingleMove());
+    	assertFalse(board.isEndGame());
+    	assertTrue(board.isValidDoubleMove(7, 19));
+    	
+    	BoardUndo undo = new BoardUndo();
+    	int[] secondMoves = new int[28];
+    	int[] expectedMoves = new int[28];
+    	board.initializeNewBoard();
+    	for (int move = 0; move < 60; move++) {
+    		board.getValidSingleMoves();
+    		board.getValidDoubleMoves(secondMoves);
+    		if (move % 3 == 0) {
+    			board.mark(undo);
+    		}
+    		board.makeSingleMove((move * 11) % 28);
+    		if (move % 2 == 0) {
+    			board.collectBall();
+    		}
+    		if (move % 3 == 2) {
+    			board.undo(undo);
+    		}
+    		Board fresh = copyFields(board);
+    		assertEquals(fresh.getValidSingleMoves(), board.getValidSingleMoves());
+    		assertEquals(fresh.getValidDoubleMoves(expectedMoves), 
+    				board.getValidDoubleMoves(secondMoves));
+    		assertArrayEquals(expectedMoves, secondMoves);
+    		assertEquals(fresh.isEndGame(), board.deepCopy().isEndGame());
+    	}
+    }
+
+    /**
+     * test getHash, getCanonicalHash and equals methods.
+     * check if the hash only depends on the position and the canonical hash
+     * is the same for a rotated and mirrored board.
+     */
+    @Test
+    public void testHash() {
+    	assertEquals(0L, board.getHash());
+    	board.initializeNewBoard();
+    	Board rotated = new Board();
+    	Board mirrored = new Board();
+    	for (int row = 0; row < DIM; row++) {
+    		for (int col = 0; col < DIM; col++) {
+    			rotated.setField(col, DIM - 1 - row, board.getField(row, col));
+    			mirrored.setField(row, DIM - 1 - col, board.getField(row, col));
+    		}
+    	}
+    	assertEquals(board.getCanonicalHash(), rotated.getCanonicalHash());
+    	assertEquals(board.getCanonicalHash(), mirrored.getCanonicalHash());
+    	assertNotEquals(board.getHash(), rotated.getHash());
+    	assertNotEquals(board, rotated);
+    	
+    	BoardUndo undo = new BoardUndo();
+    	long start = board.getHash();
+    	board.mark(undo);
+    	for (int move = 0; move < 30; move++) {
+    		board.makeSingleMove((move * 3) % 28);
+    		board.collectBall(new int[7]);
+    		rotated.makeSingleMove((move * 3) % 28);
+    		rotated.collectBall();
+    		Board fresh = copyFields(board);
+    		assertEquals(fresh.getHash(), board.getHash());
+    		assertEquals(fresh.getCanonicalHash(), board.getCanonicalHash());
+    		assertEquals(fresh, board);
+    		assertEquals(fresh.hashCode(), board.hashCode());
+    		assertEquals(copyFields(rotated).getHash(), rotated.getHash());
+    	}
+    	board.undo(undo);
+    	assertEquals(start, board.getHash());
+    }
+
+    /**
+     * Creates a board with the same balls as the given board, by setting every field.
+     * @param original - the board to copy
+     * @return the new board
+     */
+    private Board copyFields(Board original) {
+    	Board copy = new Board();
+    	for (int i = 0; i < Board.DIM * Board.DIM; i++) {
+    		copy.setField(i, original.getField(i));
+    	}
+    	return copy;
+    }
+
     /**
      * test collectBall method.
      * check if all invalid balls is actually removed from board or not.
@@ -348,6 +667,104 @@ public class BoardTest {
     	assertEquals(Ball.BLUE, board.getField(0));
     }
     
+    /**
+     * test mark and undo methods.
+     * check if a move and collection are taken back and the stack can be reused.
+     */
+    @Test
+    public void testMarkAndUndo() {
+    	board.setField(0, Ball.BLUE);
+    	board.setField(6, Ball.BLUE);
+    	board.setField(42, Ball.YELLOW);
+    	Board original = board.deepCopy();
+    	BoardUndo undo = new BoardUndo(1);
+    	
+    	board.mark(undo);
+    	board.makeSingleMove(0);
+    	board.mark(undo);
+    	assertEquals(2, board.collectBall(null));
+    	board.makeSingleMove(21);
+    	assertEquals(2, undo.size());
+    	board.undo(undo);
+    	assertEquals(Ball.BLUE, board.getField(1));
+    	assertEquals(Ball.YELLOW, board.getField(42));
+    	board.undo(undo);
+    	assertEquals(0, undo.size());
+    	for (int i = 0; i < DIM * DIM; i++) {
+    		assertEquals(original.getField(i), board.getField(i));
+    	}
+    	assertEquals(original.getCollectableMask(), board.getCollectableMask());
+    }
+    
+    /**
+     * test the pairs that are kept up to date after every move, collection and undo.
+     * check if the collectable mask equals the one of a board filled field by field.
+     */
+    @Test
+    public void testCollectableMaskAfterMoves() {
+    	BoardUndo undo = new BoardUndo();
+    	for (int test = 0; test < 100; test++) {
+    		board.initializeNewBoard();
+    		for (int move = 0; move < 40; move++) {
+    			int indice = (move * 11 + test) % 28;
+    			if (move % 5 == 0) {
+    				board.mark(undo);
+    			}
+    			board.makeSingleMove(indice);
+    			assertEquals(expectedCollectableMask(board), board.getCollectableMask());
+    			if (move % 3 == 0) {
+    				board.collectBall();
+    				assertEquals(0L, board.getCollectableMask());
+    			}
+    			if (move % 7 == 0) {
+    				board.undo(undo);
+    				assertEquals(expectedCollectableMask(board), board.getCollectableMask());
+    			}
+    		}
+    		undo.clear();
+    	}
+    }
+    
+    /**
+     * Calculates the collectable mask of a board with isValidPosition for every field.
+     * @param testBoard - the board to check
+     * @return the mask of all fields that are not in a valid position
+     */
+    private long expectedCollectableMask(Board testBoard) {
+    	long mask = 0L;
+    	for (int i = 0; i < DIM; i++) {
+    		for (int j = 0; j < DIM; j++) {
+    			if (!testBoard.isValidPosition(i, j)) {
+    				mask |= 1L << testBoard.index(i, j);
+    			}
+    		}
+    	}
+    	return mask;
+    }
+    
+    /**
+     * test collectBall method that counts the balls in a collection.
+     * check if the same balls are removed and counted per color.
+     */
+    @Test
+    public void testcollectBallCollection() {
+    	board.setField(0, Ball.BLUE);
+    	board.setField(1, Ball.BLUE);
+    	board.setField(7, Ball.BLUE);
+    	board.setField(20, Ball.RED);
+    	board.setField(27, Ball.RED);
+    	board.setField(30, Ball.GREEN);
+    	int[] collection = new int[7];
+    	collection[Ball.BLUE.convertTo()] = 2;
+    	assertEquals(5, board.collectBall(collection));
+    	assertEquals(5, collection[Ball.BLUE.convertTo()]);
+    	assertEquals(2, collection[Ball.RED.convertTo()]);
+    	assertEquals(0, collection[Ball.GREEN.convertTo()]);
+    	assertEquals(Ball.EMPTY, board.getField(7));
+    	assertEquals(Ball.GREEN, board.getField(30));
+    	assertEquals(0, board.collectBall(collection));
+    }
+    
     /**
      * test isEndGame method.
      * test if are there any possible single moves or double moves in board
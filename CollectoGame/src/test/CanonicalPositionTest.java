@@ -0,0 +1,80 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import collectogame.Ball;
+import collectogame.BitBoard;
+import collectogame.Board;
+import collectogame.CanonicalPosition;
+
+public class CanonicalPositionTest {
+	private Board board;
+	private int[] collection1;
+	private int[] collection2;
+
+	@BeforeEach
+	public void setUp() {
+		board = new Board();
+		board.initializeNewBoard();
+		for (int move = 0; move < 6; move++) {
+			board.makeSingleMove((move * 9) % 28);
+			board.collectBall();
+		}
+		collection1 = new int[] {0, 2, 0, 4, 1, 0, 2};
+		collection2 = new int[] {0, 0, 3, 0, 1, 2, 2};
+	}
+
+	/**
+	 * test of method.
+	 * check if a turned board with renumbered colors has the same canonical position.
+	 */
+	@Test
+	public void testSymmetricPositions() {
+		CanonicalPosition canonical = CanonicalPosition.of(board, collection1, collection2);
+		int[] renumber = {0, 4, 6, 1, 3, 2, 5};
+		for (int s = 0; s < BitBoard.SYMMETRIES; s++) {
+			Board moved = new Board();
+			int[] moved1 = new int[7];
+			int[] moved2 = new int[7];
+			for (int i = 0; i < Board.DIM * Board.DIM; i++) {
+				int colour = board.getField(i).convertTo();
+				moved.setField(BitBoard.transform(s, i), Ball.convertTo(renumber[colour]));
+			}
+			for (int colour = 1; colour < 7; colour++) {
+				moved1[renumber[colour]] = collection1[colour];
+				moved2[renumber[colour]] = collection2[colour];
+			}
+			CanonicalPosition other = CanonicalPosition.of(moved, moved1, moved2);
+			assertEquals(canonical.getBoard(), other.getBoard());
+			assertArrayEquals(canonical.getCollection(0), other.getCollection(0));
+			assertArrayEquals(canonical.getCollection(1), other.getCollection(1));
+		}
+	}
+
+	/**
+	 * test toCanonicalMove, toOriginalMove and toOriginalMoves methods.
+	 * check if a move on the canonical board gives the same board as the original move.
+	 */
+	@Test
+	public void testMoves() {
+		CanonicalPosition canonical = CanonicalPosition.of(board, collection1);
+		Board canonicalBoard = canonical.getBoard();
+		assertEquals(board.getValidSingleMoves(),
+				canonical.toOriginalMoves(canonicalBoard.getValidSingleMoves()));
+		for (int move = 0; move < 28; move++) {
+			assertEquals(move, canonical.toOriginalMove(canonical.toCanonicalMove(move)));
+			Board original = board.deepCopy();
+			Board copy = canonicalBoard.deepCopy();
+			assertEquals(original.makeSingleMove(move),
+					copy.makeSingleMove(canonical.toCanonicalMove(move)));
+			for (int i = 0; i < Board.DIM * Board.DIM; i++) {
+				assertEquals(canonical.toCanonical(original.getField(i)),
+						copy.getField(BitBoard.transform(canonical.getSymmetry(), i)));
+			}
+		}
+	}
+}
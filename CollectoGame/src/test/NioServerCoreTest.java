@@ -0,0 +1,154 @@
+package test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import collectogame.Ball;
+import collectogame.Board;
+import protocol.ProtocolMessages;
+import server.BoardPool;
+import server.CollectoServer;
+import server.NioClientHandler;
+import server.NioServerCore;
+import server.ServerMode;
+
+public class NioServerCoreTest {
+	private NioServerCore core;
+	private Thread thread;
+	private int port;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		port = channel.socket().getLocalPort();
+		core = new NioServerCore(new CollectoServer(new BoardPool(), ServerMode.NIO), channel);
+		thread = new Thread(core);
+		thread.start();
+	}
+
+	@AfterEach
+	public void tearDown() throws InterruptedException {
+		core.close();
+		thread.join(5000);
+	}
+
+	/**
+	 * Connects a client to the server core.
+	 * @return the socket of the client
+	 * @throws IOException - if the connection failed
+	 */
+	private Socket connect() throws IOException {
+		Socket sock = new Socket(InetAddress.getLoopbackAddress(), port);
+		sock.setSoTimeout(5000);
+		return sock;
+	}
+
+	/**
+	 * Sends raw text to the server, so the line endings can be chosen.
+	 */
+	private static void send(Socket sock, String text) throws IOException {
+		OutputStream out = sock.getOutputStream();
+		out.write(text.getBytes());
+		out.flush();
+	}
+
+	/**
+	 * test the protocol over the non-blocking server.
+	 * check if hello, login, list, queue, move and disconnect work as with a blocking server
+	 */
+	@Test
+	public void testProtocol() throws IOException {
+		try (Socket sock1 = connect()) {
+			Socket sock2 = connect();
+			try {
+				BufferedReader in1 =
+						new BufferedReader(new InputStreamReader(sock1.getInputStream()));
+				BufferedReader in2 =
+						new BufferedReader(new InputStreamReader(sock2.getInputStream()));
+
+				send(sock1, ProtocolMessages.HELLO + ProtocolMessages.DELIMITER + "client\n");
+				assertThat(in1.readLine(), containsString(ProtocolMessages.HELLO
+						+ ProtocolMessages.DELIMITER));
+				send(sock1, ProtocolMessages.QUEUE + "\n");
+				assertThat(in1.readLine(), containsString(ProtocolMessages.ERROR));
+				send(sock1, ProtocolMessages.LOGIN + ProtocolMessages.DELIMITER + "Tester1\r\n");
+				assertEquals(ProtocolMessages.LOGIN, in1.readLine());
+				send(sock2, ProtocolMessages.LOGIN + ProtocolMessages.DELIMITER + "Tester1\n");
+				assertEquals(ProtocolMessages.ALREADYLOGGEDIN, in2.readLine());
+
+				// a line that arrives in parts
+				send(sock2, ProtocolMessages.LOGIN + ProtocolMessages.DELIMITER + "Tes");
+				send(sock2, "ter2\r");
+				send(sock2, "\n" + ProtocolMessages.LIST + "\n");
+				assertEquals(ProtocolMessages.LOGIN, in2.readLine());
+				String list = in2.readLine();
+				assertThat(list, containsString("Tester1"));
+				assertThat(list, containsString("Tester2"));
+
+				send(sock1, ProtocolMessages.QUEUE + "\n");
+				send(sock2, ProtocolMessages.QUEUE + "\n");
+				String newGame = in1.readLine();
+				assertThat(newGame, containsString(ProtocolMessages.NEWGAME
+						+ ProtocolMessages.DELIMITER));
+				assertEquals(newGame, in2.readLine());
+
+				// the first player of NEWGAME moves first, the move is sent to both players
+				String[] fields = newGame.split(ProtocolMessages.DELIMITER);
+				Board board = new Board();
+				for (int i = 0; i < Board.DIM * Board.DIM; i++) {
+					board.setField(i, Ball.convertTo(Integer.parseInt(fields[i + 1])));
+				}
+				int move = Integer.numberOfTrailingZeros(board.getValidSingleMoves());
+				boolean firstStarts = fields[50].equals("Tester1");
+				Socket starter = firstStarts ? sock1 : sock2;
+				Socket waiter = firstStarts ? sock2 : sock1;
+				BufferedReader waiterIn = firstStarts ? in2 : in1;
+				send(waiter, ProtocolMessages.MOVE + ProtocolMessages.DELIMITER + move + "\n");
+				assertThat(waiterIn.readLine(), containsString(ProtocolMessages.ERROR));
+				send(starter, ProtocolMessages.MOVE + ProtocolMessages.DELIMITER + move + "\n");
+				String moved = ProtocolMessages.MOVE + ProtocolMessages.DELIMITER + move;
+				assertEquals(moved, in1.readLine());
+				assertEquals(moved, in2.readLine());
+
+				sock2.close();
+				assertEquals(ProtocolMessages.GAMEOVER + ProtocolMessages.DELIMITER
+						+ ProtocolMessages.DISCONNECT + ProtocolMessages.DELIMITER + "Tester1",
+						in1.readLine());
+				send(sock1, ProtocolMessages.LIST + "\n");
+				assertEquals(ProtocolMessages.LIST + ProtocolMessages.DELIMITER + "Tester1",
+						in1.readLine());
+			} finally {
+				sock2.close();
+			}
+		}
+	}
+
+	/**
+	 * test a too long line.
+	 * check if a client that sends a line longer than the maximum is disconnected
+	 */
+	@Test
+	public void testLongLine() throws IOException {
+		try (Socket sock = connect()) {
+			BufferedReader in = new BufferedReader(new InputStreamReader(sock.getInputStream()));
+			send(sock, "x".repeat(NioClientHandler.MAX_LINE_BYTES + 1));
+			assertNull(in.readLine());
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -7,9 +8,18 @@ import static org.hamcrest.CoreMatchers.containsString;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import collectogame.AlphaBetaStrategy;
 import collectogame.Ball;
 import collectogame.Board;
+import collectogame.BoardGenerator;
 import collectogame.ComputerPlayer;
+import collectogame.MonteCarloStrategy;
 import collectogame.NaiveStrategy;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -319,4 +329,177 @@ public class PlayerandStrategyTest {
     	choice = cSmart.determineMove(board);
     	assertEquals(2, choice.length);
     }
+    
+    /**
+     * test parallel Smart Strategy.
+     * check if the parallel evaluation returns the same best single move as the serial one
+     * check if it returns a valid double move
+     */
+    @Test
+    public void testParallelSmartStrategy() {
+    	String testBoard = "5~3~4~2~5~3~6~4~6~3~4~3~1~2~5~3~2~1~2~6~5~4~1~4~0~4~1~4"
+    			+ "~5~6~2~1~5~6~2~3~1~5~4~6~5~3~6~3~6~2~1~2~1";
+    	String[] splitted = testBoard.split("~");
+    	Board board = new Board();
+    	for (int i = 0; i < 49; i++) {
+			board.setField(i, Ball.convertTo(Integer.valueOf(splitted[i])));
+		}
+    	try (SmartStrategy parallel = new SmartStrategy(4, false)) {
+    		int[] choice = parallel.determineMove(board, new int[7]);
+    		assertEquals(1, choice.length);
+    		assertEquals(17, choice[0]);
+    		
+    		for (int i = 0; i < 49; i++) {
+    			board.setField(i, Ball.EMPTY);
+    		}
+    		board.setField(8, Ball.BLUE);
+    		board.setField(5, Ball.BLUE);
+    		choice = parallel.determineMove(board, new int[7]);
+    		assertEquals(2, choice.length);
+    		assertTrue(board.isValidDoubleMove(choice[0], choice[1]));
+    	}
+    }
+    
+    /**
+     * test parallel Smart Strategy with double moves.
+     * check if the parallel evaluation returns the same double move as the serial one
+     * on boards without single moves
+     */
+    @Test
+    public void testParallelSmartStrategyDoubleMove() {
+    	Random random = new Random(2021);
+    	int positions = 0;
+    	try (SmartStrategy serial = new SmartStrategy(1, false);
+    			SmartStrategy parallel = new SmartStrategy(4, false)) {
+    		for (int position = 0; position < 200; position++) {
+    			Board board = new Board();
+    			int balls = 2 + random.nextInt(7);
+    			for (int i = 0; i < balls; i++) {
+    				board.setField(random.nextInt(49), Ball.convertTo(1 + random.nextInt(6)));
+    			}
+    			if (board.getValidSingleMoves() == 0 
+    					&& board.getValidDoubleMoves(new int[28]) > 0) {
+    				positions++;
+    				int[] choice = serial.determineMove(board, new int[7]);
+    				assertEquals(2, choice.length);
+    				assertArrayEquals(choice, parallel.determineMove(board, new int[7]));
+    			}
+    		}
+    	}
+    	assertTrue(positions >= 20);
+    }
+    
+    /**
+     * test shared Smart Strategy.
+     * check if one strategy used by several threads at the same time
+     * returns the same best move in every thread
+     */
+    @Test
+    public void testSharedSmartStrategy() throws Exception {
+    	String testBoard = "5~3~4~2~5~3~6~4~6~3~4~3~1~2~5~3~2~1~2~6~5~4~1~4~0~4~1~4"
+    			+ "~5~6~2~1~5~6~2~3~1~5~4~6~5~3~6~3~6~2~1~2~1";
+    	String[] splitted = testBoard.split("~");
+    	Board board = new Board();
+    	for (int i = 0; i < 49; i++) {
+			board.setField(i, Ball.convertTo(Integer.valueOf(splitted[i])));
+		}
+    	Strategy shared = new SmartStrategy();
+    	ExecutorService executor = Executors.newFixedThreadPool(4);
+    	try {
+    		List<Future<int[]>> results = new ArrayList<Future<int[]>>();
+    		for (int game = 0; game < 16; game++) {
+    			Board copy = board.deepCopy();
+    			results.add(executor.submit(() -> shared.determineMove(copy, new int[7])));
+    		}
+    		for (Future<int[]> result : results) {
+    			int[] choice = result.get();
+    			assertEquals(1, choice.length);
+    			assertEquals(17, choice[0]);
+    		}
+    	} finally {
+    		executor.shutdown();
+    	}
+    }
+    
+    /**
+     * test AlphaBeta Strategy.
+     * check if return a valid single and double move
+     * check if return no move when the game is over
+     */
+    @Test
+    public void testAlphaBetaStrategy() {
+    	String testBoard = "5~3~4~2~5~3~6~4~6~3~4~3~1~2~5~3~2~1~2~6~5~4~1~4~0~4~1~4"
+    			+ "~5~6~2~1~5~6~2~3~1~5~4~6~5~3~6~3~6~2~1~2~1";
+    	String[] splitted = testBoard.split("~");
+    	Board board = new Board();
+    	for (int i = 0; i < 49; i++) {
+			board.setField(i, Ball.convertTo(Integer.valueOf(splitted[i])));
+		}
+    	Strategy alphaBeta = new AlphaBetaStrategy(200, 3);
+    	int[] choice = alphaBeta.determineMove(board, new int[7]);
+    	assertEquals(1, choice.length);
+    	assertTrue(board.isValidSingleMove(choice[0]));
+    	
+    	for (int i = 0; i < 49; i++) {
+			board.setField(i, Ball.EMPTY);
+		}
+    	choice = alphaBeta.determineMove(board, new int[7]);
+    	assertEquals(0, choice.length);
+    	board.setField(8, Ball.BLUE);
+    	board.setField(5, Ball.BLUE);
+    	choice = alphaBeta.determineMove(board, new int[7]);
+    	assertEquals(2, choice.length);
+    	assertTrue(board.isValidDoubleMove(choice[0], choice[1]));
+    }
+    
+    /**
+     * test time budget of AlphaBeta Strategy.
+     * check if a deep search on a new board stops when its time budget is used, with a clock
+     * that moves a millisecond every time it is read, so the result does not depend on the
+     * speed of the machine
+     */
+    @Test
+    public void testAlphaBetaTimeBudget() {
+    	Board board = new BoardGenerator(7L).createBoard();
+    	AtomicLong reads = new AtomicLong();
+    	Strategy alphaBeta = new AlphaBetaStrategy(50, 64, null,
+    			() -> reads.incrementAndGet() * 1000000L);
+    	int[] choice = alphaBeta.determineMove(board, new int[7]);
+    	assertEquals(1, choice.length);
+    	assertTrue(board.isValidSingleMove(choice[0]));
+    	assertTrue(reads.get() > 50);
+    	assertTrue(reads.get() <= 60);
+    }
+    
+    /**
+     * test MCTS Strategy.
+     * check if one and several threads return a valid single and double move
+     * check if return no move when the game is over
+     */
+    @Test
+    public void testMonteCarloStrategy() {
+    	Board board = new BoardGenerator(3L).createBoard();
+    	Strategy serial = new MonteCarloStrategy(1000, 200, 1);
+    	try (Strategy parallel = new MonteCarloStrategy(1000, 200, 4)) {
+    		int[] choice = serial.determineMove(board, new int[7]);
+    		assertEquals(1, choice.length);
+    		assertTrue(board.isValidSingleMove(choice[0]));
+    		choice = parallel.determineMove(board, new int[7]);
+    		assertEquals(1, choice.length);
+    		assertTrue(board.isValidSingleMove(choice[0]));
+    		
+    		for (int i = 0; i < 49; i++) {
+    			board.setField(i, Ball.EMPTY);
+    		}
+    		choice = parallel.determineMove(board, new int[7]);
+    		assertEquals(0, choice.length);
+    		board.setField(8, Ball.BLUE);
+    		board.setField(5, Ball.BLUE);
+    		board.setField(40, Ball.RED);
+    		board.setField(30, Ball.RED);
+    		choice = parallel.determineMove(board, new int[7]);
+    		assertEquals(2, choice.length);
+    		assertTrue(board.isValidDoubleMove(choice[0], choice[1]));
+    	}
+    }
 }
@@ -0,0 +1,97 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import server.QueueMatchmaker;
+
+public class QueueMatchmakerTest {
+
+	/**
+	 * test toggle method.
+	 * check if players are paired in the order they joined and can leave before that
+	 */
+	@Test
+	public void testToggle() {
+		List<String> pairs = new ArrayList<String>();
+		QueueMatchmaker<String> matchmaker =
+				new QueueMatchmaker<String>((first, second) -> pairs.add(first + "-" + second));
+		assertTrue(matchmaker.toggle("a"));
+		assertEquals(1, matchmaker.size());
+		assertFalse(matchmaker.toggle("a"));
+		assertEquals(0, matchmaker.size());
+		assertTrue(matchmaker.toggle("b"));
+		assertTrue(matchmaker.toggle("c"));
+		assertTrue(matchmaker.toggle("a"));
+		matchmaker.remove("a");
+		assertTrue(matchmaker.toggle("d"));
+		assertTrue(matchmaker.toggle("e"));
+		assertEquals(List.of("b-c", "d-e"), pairs);
+		assertEquals(0, matchmaker.size());
+		assertEquals(2, matchmaker.getMatches());
+
+		// a paired player can join again
+		assertTrue(matchmaker.toggle("b"));
+		assertEquals(1, matchmaker.size());
+	}
+
+	/**
+	 * test toggle method with threads.
+	 * check if players that join and leave at random from many threads are paired at most
+	 * once per game, never with themselves, and the waiting players add up
+	 */
+	@Test
+	public void testConcurrentToggle() throws InterruptedException {
+		int threads = 8;
+		int players = 64;
+		int toggles = 20000;
+		ConcurrentHashMap<Integer, AtomicInteger> inGame = new ConcurrentHashMap<>();
+		for (int player = 0; player < threads * players; player++) {
+			inGame.put(player, new AtomicInteger());
+		}
+		AtomicInteger errors = new AtomicInteger();
+		QueueMatchmaker<Integer> matchmaker = new QueueMatchmaker<Integer>((first, second) -> {
+			if (first.equals(second)) {
+				errors.incrementAndGet();
+			}
+			for (Integer player : List.of(first, second)) {
+				if (inGame.get(player).incrementAndGet() != 1) {
+					errors.incrementAndGet();
+				}
+			}
+		}, player -> inGame.get(player).get() == 0);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < toggles; i++) {
+					// every thread has its own players, as every client has its own handler
+					int player = thread * players + random.nextInt(players);
+					AtomicInteger games = inGame.get(player);
+					if ((games.get() > 0) && random.nextBoolean()) {
+						// the game of the player ended
+						games.decrementAndGet();
+					} else if (games.get() == 0) {
+						matchmaker.toggle(player);
+					}
+				}
+				done.countDown();
+			}).start();
+		}
+		done.await();
+		assertEquals(0, errors.get());
+		assertTrue(matchmaker.getMatches() > 0);
+		assertTrue(matchmaker.size() <= 1);
+	}
+}
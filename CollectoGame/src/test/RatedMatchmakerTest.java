@@ -0,0 +1,175 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import server.BoardPool;
+import server.CollectoServer;
+import server.EloRatings;
+import server.MatchmakingMode;
+import server.RatedMatchmaker;
+import server.ServerMode;
+import server.WaitTimeHistogram;
+
+public class RatedMatchmakerTest {
+	private static final long SECOND = 1000000000L;
+
+	private AtomicLong clock;
+	private Map<String, Integer> ratings;
+	private List<String> pairs;
+	private RatedMatchmaker<String> matchmaker;
+
+	@BeforeEach
+	public void setUp() {
+		clock = new AtomicLong();
+		ratings = new HashMap<String, Integer>();
+		pairs = new ArrayList<String>();
+		matchmaker = new RatedMatchmaker<String>((first, second) -> pairs.add(first + "-" + second),
+				ratings::get, player -> true, 100, 25, clock::get);
+	}
+
+	/**
+	 * Lets a player with the given rating join.
+	 */
+	private void join(String player, int rating) {
+		ratings.put(player, rating);
+		assertTrue(matchmaker.toggle(player));
+	}
+
+	/**
+	 * test toggle method.
+	 * check if a player is paired with the closest rating within its window, and can leave
+	 */
+	@Test
+	public void testToggle() {
+		join("a", 1200);
+		join("b", 1500);
+		assertEquals(2, matchmaker.size());
+		join("c", 1330);
+		join("d", 1280);
+		assertEquals(List.of("c-d"), pairs);
+		join("e", 1150);
+		assertEquals(List.of("c-d", "a-e"), pairs);
+		assertFalse(matchmaker.toggle("b"));
+		join("f", 1500);
+		assertEquals(1, matchmaker.size());
+		assertEquals(2, matchmaker.getMatches());
+	}
+
+	/**
+	 * test tick method.
+	 * check if the window of a waiting player widens with the time it waits, and if the wait
+	 * times are recorded
+	 */
+	@Test
+	public void testWidening() {
+		join("a", 1200);
+		clock.set(SECOND);
+		join("b", 1500);
+		clock.set(5 * SECOND);
+		matchmaker.tick();
+		// the window of a is 100 + 5 * 25 = 225
+		assertTrue(pairs.isEmpty());
+		clock.set(8 * SECOND);
+		matchmaker.tick();
+		assertEquals(List.of("a-b"), pairs);
+		assertEquals(0, matchmaker.size());
+		WaitTimeHistogram waitTimes = matchmaker.getWaitTimes();
+		assertEquals(2, waitTimes.getCount());
+		assertTrue(waitTimes.getPercentile(50) >= 7000);
+		assertTrue(waitTimes.getPercentile(100) >= 8000);
+		assertTrue(waitTimes.getPercentile(100) <= 8000 + 8000 / WaitTimeHistogram.SUB_BUCKETS);
+	}
+
+	/**
+	 * test toggle method with many players.
+	 * check if tens of thousands of players are paired within their window and the waiting
+	 * players add up
+	 */
+	@Test
+	public void testManyPlayers() {
+		Random random = new Random(2021);
+		Map<String, Integer> paired = new HashMap<String, Integer>();
+		matchmaker = new RatedMatchmaker<String>((first, second) -> {
+			assertTrue(Math.abs(ratings.get(first) - ratings.get(second)) <= 100);
+			paired.merge(first, 1, Integer::sum);
+			paired.merge(second, 1, Integer::sum);
+		}, ratings::get, player -> !paired.containsKey(player), 100, 25, clock::get);
+		int players = 50000;
+		for (int i = 0; i < players; i++) {
+			join("p" + i, 400 + random.nextInt(2400));
+			if (random.nextInt(10) == 0) {
+				// some players leave again, or join again after they were paired
+				matchmaker.toggle("p" + random.nextInt(i + 1));
+			}
+		}
+		matchmaker.tick();
+		assertTrue(paired.values().stream().allMatch(games -> games == 1));
+		assertEquals(2 * matchmaker.getMatches(), paired.size());
+		assertTrue(matchmaker.getMatches() > players / 3);
+		assertTrue(matchmaker.size() + paired.size() <= players);
+	}
+
+	/**
+	 * test getPercentile method.
+	 * check if the percentiles are at most 1/SUB_BUCKETS above the exact percentiles
+	 */
+	@Test
+	public void testPercentile() {
+		WaitTimeHistogram histogram = new WaitTimeHistogram();
+		assertEquals(0, histogram.getPercentile(50));
+		for (int millis = 1; millis <= 10000; millis++) {
+			histogram.record(millis);
+		}
+		assertEquals(10000, histogram.getCount());
+		for (int percentile : new int[] {1, 50, 90, 99, 100}) {
+			long exact = percentile * 100;
+			long value = histogram.getPercentile(percentile);
+			assertTrue(value >= exact);
+			assertTrue(value <= exact + exact / WaitTimeHistogram.SUB_BUCKETS);
+		}
+	}
+
+	/**
+	 * test getWaitTimes method of the server.
+	 * check if a rated server reports the wait times and a server with a queue does not
+	 */
+	@Test
+	public void testServerWaitTimes() {
+		CollectoServer rated = new CollectoServer(new BoardPool(), ServerMode.THREADS,
+				MatchmakingMode.RATED);
+		assertEquals(0, rated.getWaitTimes().getCount());
+		assertNull(new CollectoServer(new BoardPool(), ServerMode.THREADS,
+				MatchmakingMode.QUEUE).getWaitTimes());
+	}
+
+	/**
+	 * test recordGame method.
+	 * check if the winner gains what the loser loses, more against a stronger player
+	 */
+	@Test
+	public void testElo() {
+		EloRatings elo = new EloRatings();
+		assertEquals(0.5, EloRatings.expectedScore(1200, 1200), 1e-9);
+		elo.recordGame("a", "b", 1);
+		assertEquals(EloRatings.INITIAL_RATING + EloRatings.K_FACTOR / 2, elo.getRating("a"));
+		assertEquals(EloRatings.INITIAL_RATING - EloRatings.K_FACTOR / 2, elo.getRating("b"));
+		elo.recordGame("b", "a", 1);
+		assertTrue(elo.getRating("b") > EloRatings.INITIAL_RATING);
+		assertEquals(2 * EloRatings.INITIAL_RATING, elo.getRating("a") + elo.getRating("b"));
+		elo.recordGame("c", "d", 0.5);
+		assertEquals(EloRatings.INITIAL_RATING, elo.getRating("c"));
+	}
+}
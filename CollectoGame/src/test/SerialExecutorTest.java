@@ -0,0 +1,104 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import server.SerialExecutor;
+
+public class SerialExecutorTest {
+	private ExecutorService pool;
+
+	@BeforeEach
+	public void setUp() {
+		pool = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * test execute method.
+	 * check if tasks of many threads run one at a time and in order per thread
+	 */
+	@Test
+	public void testSerial() throws InterruptedException {
+		SerialExecutor mailbox = new SerialExecutor(pool);
+		int producers = 4;
+		int tasks = 2000;
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger overlaps = new AtomicInteger();
+		int[] last = new int[producers];
+		List<Integer> outOfOrder = new ArrayList<Integer>();
+		CountDownLatch done = new CountDownLatch(producers * tasks);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			threads.add(new Thread(() -> {
+				for (int i = 1; i <= tasks; i++) {
+					int number = i;
+					mailbox.execute(() -> {
+						if (running.incrementAndGet() != 1) {
+							overlaps.incrementAndGet();
+						}
+						// no lock: the mailbox runs one task at a time
+						if (last[producer] != number - 1) {
+							outOfOrder.add(number);
+						}
+						last[producer] = number;
+						running.decrementAndGet();
+						done.countDown();
+					});
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, overlaps.get());
+		assertTrue(outOfOrder.isEmpty());
+	}
+
+	/**
+	 * test execute method with two mailboxes.
+	 * check if the tasks of different mailboxes run at the same time, and a failing task
+	 * does not stop the mailbox
+	 */
+	@Test
+	public void testParallel() throws InterruptedException {
+		SerialExecutor first = new SerialExecutor(pool);
+		SerialExecutor second = new SerialExecutor(pool);
+		CountDownLatch both = new CountDownLatch(2);
+		CountDownLatch done = new CountDownLatch(2);
+		Runnable meet = () -> {
+			both.countDown();
+			try {
+				if (both.await(5, TimeUnit.SECONDS)) {
+					done.countDown();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		first.execute(() -> {
+			throw new IllegalStateException("failing task");
+		});
+		first.execute(meet);
+		second.execute(meet);
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,66 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import server.CollectoServer;
+import server.ServerMode;
+
+public class ServerModeTest {
+
+	/**
+	 * test parse method.
+	 * check if the command line names give the right mode
+	 */
+	@Test
+	public void testParse() {
+		assertEquals(ServerMode.THREADS, ServerMode.parse(null));
+		assertEquals(ServerMode.THREADS, ServerMode.parse("other"));
+		assertEquals(ServerMode.VIRTUAL_THREADS, ServerMode.parse("Virtual"));
+		assertEquals(ServerMode.NIO, ServerMode.parse("NIO"));
+	}
+
+	/**
+	 * test hasVirtualThreads method.
+	 * check if virtual threads are found from Java 21 on
+	 */
+	@Test
+	public void testHasVirtualThreads() {
+		assertEquals(Runtime.version().feature() >= 21, CollectoServer.hasVirtualThreads());
+	}
+
+	/**
+	 * test newVirtualThreadExecutor method.
+	 * check if many blocking tasks run at the same time, as client handlers do
+	 */
+	@Test
+	public void testVirtualThreadExecutor() throws InterruptedException {
+		int tasks = 1000;
+		CountDownLatch started = new CountDownLatch(tasks);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = CollectoServer.newVirtualThreadExecutor();
+		try {
+			for (int i = 0; i < tasks; i++) {
+				executor.execute(() -> {
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+}
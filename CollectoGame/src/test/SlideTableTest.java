@@ -0,0 +1,81 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import collectogame.Ball;
+import collectogame.Board;
+import collectogame.SlideTable;
+
+public class SlideTableTest {
+
+	@AfterEach
+	public void tearDown() {
+		Board.useSlideTable(null);
+	}
+
+	/**
+	 * test slide method.
+	 * check if the balls are moved to the first fields and the flags are correct.
+	 */
+	@Test
+	public void testSlide() {
+		// digits from field 0: EMPTY, BLUE, EMPTY, RED, 0, 0, 0
+		int line = 1 * 7 + 3 * 7 * 7 * 7;
+		int entry = SlideTable.slide(line);
+		assertEquals(1 | (3 << 3), entry & SlideTable.RESULT_MASK);
+		assertTrue((entry & SlideTable.CHANGED) != 0);
+		assertTrue((entry & SlideTable.POSSIBLE) != 0);
+
+		// BLUE already on field 0, so nothing changes but the move is possible
+		entry = SlideTable.slide(1);
+		assertEquals(SlideTable.POSSIBLE | 1, entry);
+
+		// an empty line is not possible
+		assertEquals(0, SlideTable.slide(0));
+	}
+
+	/**
+	 * test lookup method with a memory budget of 2 pages.
+	 * check if every entry equals the calculated one, while pages are dropped.
+	 */
+	@Test
+	public void testLookupWithSmallBudget() {
+		SlideTable table = new SlideTable(2);
+		for (int line = 0; line < SlideTable.LINES; line += 97) {
+			assertEquals(SlideTable.slide(line), table.lookup(line));
+		}
+		assertTrue(table.getResidentPages() <= 2);
+		assertEquals(2L * SlideTable.PAGE_SIZE * Integer.BYTES, table.getMaxMemory());
+	}
+
+	/**
+	 * test makeSingleMove with a slide table.
+	 * check if the board is the same as the board moved without a table.
+	 */
+	@Test
+	public void testMoveWithTable() {
+		String testBoard = "5~3~4~2~5~3~6~4~6~3~4~3~1~2~5~3~2~1~2~6~5~4~1~4~0~4~1~4"
+				+ "~5~6~2~1~5~6~2~3~1~5~4~6~5~3~6~3~6~2~1~2~1";
+		String[] splitted = testBoard.split("~");
+		Board board = new Board();
+		for (int i = 0; i < 49; i++) {
+			board.setField(i, Ball.convertTo(Integer.valueOf(splitted[i])));
+		}
+		Board tableBoard = board.deepCopy();
+		Board.useSlideTable(SlideTable.withMemoryBudget(100_000));
+		for (int move = 0; move < 28; move++) {
+			boolean possible = tableBoard.makeSingleMove(move);
+			Board.useSlideTable(null);
+			assertEquals(board.makeSingleMove(move), possible);
+			Board.useSlideTable(SlideTable.withMemoryBudget(100_000));
+			for (int i = 0; i < 49; i++) {
+				assertEquals(board.getField(i), tableBoard.getField(i));
+			}
+			assertEquals(board.getCollectableMask(), tableBoard.getCollectableMask());
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import collectogame.AlphaBetaStrategy;
+import collectogame.NaiveStrategy;
+import tournament.Tournament;
+import tournament.TournamentResult;
+
+public class TournamentTest {
+
+	/**
+	 * test play method.
+	 * check if every game is counted once and the statistics are filled
+	 */
+	@Test
+	public void testPlay() throws InterruptedException {
+		Tournament tournament = new Tournament(NaiveStrategy::new, NaiveStrategy::new, 4, 1L);
+		TournamentResult result = tournament.play(40);
+		assertEquals(40, result.getGames());
+		assertEquals(40, result.getWins() + result.getDraws() + result.getLosses());
+		assertEquals(0, result.getIllegalMoves(0));
+		assertEquals(0, result.getIllegalMoves(1));
+		assertTrue(result.getMoves(0) > 0 && result.getMoves(1) > 0);
+		assertTrue(result.getBalls(0) + result.getBalls(1) > 0);
+		assertTrue(result.getGamesPerSecond() > 0);
+	}
+
+	/**
+	 * test play method with threads.
+	 * check if a deterministic tournament gives the same result with 1 and 3 threads
+	 */
+	@Test
+	public void testThreadsSameResult() throws InterruptedException {
+		TournamentResult serial = new Tournament(() -> new AlphaBetaStrategy(10000, 1),
+				() -> new AlphaBetaStrategy(10000, 2), 1, 7L).play(12);
+		TournamentResult parallel = new Tournament(() -> new AlphaBetaStrategy(10000, 1),
+				() -> new AlphaBetaStrategy(10000, 2), 3, 7L).play(12);
+		assertEquals(serial.getWins(), parallel.getWins());
+		assertEquals(serial.getDraws(), parallel.getDraws());
+		assertEquals(serial.getLosses(), parallel.getLosses());
+		assertEquals(serial.getScore(0), parallel.getScore(0));
+		assertEquals(serial.getBalls(1), parallel.getBalls(1));
+		assertEquals(serial.getMoves(0), parallel.getMoves(0));
+	}
+}
@@ -0,0 +1,125 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import collectogame.AlphaBetaStrategy;
+import collectogame.Board;
+import collectogame.BoardGenerator;
+import collectogame.TranspositionTable;
+import collectogame.Zobrist;
+
+public class TranspositionTableTest {
+	private TranspositionTable table;
+
+	@BeforeEach
+	public void setUp() {
+		table = new TranspositionTable(1);
+	}
+
+	/**
+	 * test constructor.
+	 * check if the table uses a power of 2 entries within its memory
+	 */
+	@Test
+	public void testCapacity() {
+		assertEquals(65536, table.getCapacity());
+		assertEquals(2, new TranspositionTable(0).getCapacity());
+	}
+
+	/**
+	 * test store and probe method.
+	 * check if all parts of an entry are stored, also negative values and no move
+	 */
+	@Test
+	public void testStoreProbe() {
+		assertEquals(0L, table.probe(12345L));
+		table.store(12345L, 7, TranspositionTable.LOWER, -10123, 811);
+		long entry = table.probe(12345L);
+		assertEquals(7, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+		assertEquals(-10123, TranspositionTable.getValue(entry));
+		assertEquals(811, TranspositionTable.getMove(entry));
+
+		// no move keeps the best move of the same position
+		table.store(12345L, 8, TranspositionTable.EXACT, 42, TranspositionTable.NO_MOVE);
+		entry = table.probe(12345L);
+		assertEquals(8, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.EXACT, TranspositionTable.getBound(entry));
+		assertEquals(42, TranspositionTable.getValue(entry));
+		assertEquals(811, TranspositionTable.getMove(entry));
+
+		table.store(99L, 1, TranspositionTable.UPPER, 0, TranspositionTable.NO_MOVE);
+		assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.getMove(table.probe(99L)));
+		assertEquals(4, table.getProbes());
+		assertEquals(3, table.getHits());
+		assertEquals(3, table.getStores());
+	}
+
+	/**
+	 * test replacement.
+	 * check if a full bucket replaces the least deep entry of the current search,
+	 * and an entry of an older search before that
+	 */
+	@Test
+	public void testReplacement() {
+		long bucket = table.getCapacity();
+		table.store(bucket, 5, TranspositionTable.EXACT, 1, 1);
+		table.store(2 * bucket, 3, TranspositionTable.EXACT, 2, 2);
+		table.store(3 * bucket, 4, TranspositionTable.EXACT, 3, 3);
+		assertNotEquals(0L, table.probe(bucket));
+		assertEquals(0L, table.probe(2 * bucket));
+		assertNotEquals(0L, table.probe(3 * bucket));
+		assertEquals(1, table.getCollisions());
+
+		table.newSearch();
+		table.store(4 * bucket, 1, TranspositionTable.EXACT, 4, 4);
+		table.store(5 * bucket, 1, TranspositionTable.EXACT, 5, 5);
+		assertEquals(0L, table.probe(bucket));
+		assertEquals(0L, table.probe(3 * bucket));
+		assertNotEquals(0L, table.probe(4 * bucket));
+		assertNotEquals(0L, table.probe(5 * bucket));
+
+		table.clear();
+		assertEquals(0L, table.probe(4 * bucket));
+		assertEquals(1, table.getProbes());
+	}
+
+	/**
+	 * test collection hash.
+	 * check if the hash of a collection depends on the number of balls of every color
+	 */
+	@Test
+	public void testCollectionHash() {
+		int[] collection = new int[7];
+		assertEquals(0L, Zobrist.hash(collection));
+		collection[3] = 2;
+		long hash = Zobrist.hash(collection);
+		assertNotEquals(0L, hash);
+		collection[3] = 1;
+		assertNotEquals(hash, Zobrist.hash(collection));
+		collection[3] = 0;
+		collection[2] = 2;
+		assertNotEquals(hash, Zobrist.hash(collection));
+	}
+
+	/**
+	 * test AlphaBeta Strategy with a table.
+	 * check if the search with a table returns a valid move and finds positions again
+	 */
+	@Test
+	public void testAlphaBetaWithTable() {
+		Board board = new BoardGenerator(11L).createBoard();
+		AlphaBetaStrategy alphaBeta = new AlphaBetaStrategy(200, 4, table);
+		int[] choice = alphaBeta.determineMove(board, new int[7]);
+		assertEquals(1, choice.length);
+		assertTrue(board.isValidSingleMove(choice[0]));
+		assertTrue(table.getStores() > 0);
+		assertTrue(table.getHits() > 0);
+		assertTrue(table.getHitRate() > 0);
+	}
+}
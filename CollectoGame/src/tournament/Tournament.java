@@ -0,0 +1,243 @@
+package tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import collectogame.AlphaBetaStrategy;
+import collectogame.Board;
+import collectogame.BoardGenerator;
+import collectogame.MonteCarloStrategy;
+import collectogame.NaiveStrategy;
+import collectogame.SmartStrategy;
+import collectogame.Strategy;
+
+/**
+ * Plays many games between two strategies without a client, a view or any output.
+ * The games are spread over a pool of threads; every thread takes the next game number
+ * until all games are played and keeps its own TournamentResult.
+ *
+ * <p>Game n starts from the board of BoardGenerator with seed + n, and the strategies take
+ * turns in who starts: the first strategy starts the even games. So two tournaments with the
+ * same seed play the same starting positions, whatever the number of threads. A strategy
+ * that returns an invalid move loses the game.
+ *
+ * <p>Run it from the command line with:
+ * <pre>java tournament.Tournament [games] [threads] [first] [second] [seed]</pre>
+ * where the strategies are SMART, NAIVE, ALPHABETA or MCTS.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class Tournament {
+	/**
+	 * The default seed of the starting boards.
+	 */
+	public static final long DEFAULT_SEED = 2021L;
+
+	/**
+	 * @invariant first and second - create the strategies, called once per game
+	 * @invariant threads - the number of threads that play games, at least 1
+	 * @invariant seed - the seed of the board of game 0
+	 */
+	private final Supplier<? extends Strategy> first;
+	private final Supplier<? extends Strategy> second;
+	private final int threads;
+	private final long seed;
+
+	/**
+	 * Creates a tournament with a thread for every processor and the default seed.
+	 * @requires first != null and second != null
+	 * @param first - creates the first strategy
+	 * @param second - creates the second strategy
+	 */
+	public Tournament(Supplier<? extends Strategy> first, Supplier<? extends Strategy> second) {
+		this(first, second, Runtime.getRuntime().availableProcessors(), DEFAULT_SEED);
+	}
+
+	/**
+	 * Creates a tournament.
+	 * A new strategy is created for every game, so strategies that keep state between
+	 * moves can be used as well.
+	 * @requires first != null and second != null
+	 * @param first - creates the first strategy
+	 * @param second - creates the second strategy
+	 * @param threads - the number of threads that play games
+	 * @param seed - the seed of the starting boards
+	 */
+	public Tournament(Supplier<? extends Strategy> first, Supplier<? extends Strategy> second,
+			int threads, long seed) {
+		this.first = first;
+		this.second = second;
+		this.threads = Math.max(1, threads);
+		this.seed = seed;
+	}
+
+	/**
+	 * Plays the given number of games.
+	 * @requires games >= 0
+	 * @ensures result.getGames() == games
+	 * @param games - the number of games
+	 * @return the statistics of the games
+	 * @throws InterruptedException - if the thread is interrupted while the games are played
+	 */
+	public TournamentResult play(int games) throws InterruptedException {
+		String firstName;
+		String secondName;
+		try (Strategy strategy = first.get()) {
+			firstName = strategy.getName();
+		}
+		try (Strategy strategy = second.get()) {
+			secondName = strategy.getName();
+		}
+		TournamentResult result = new TournamentResult(firstName, secondName);
+		AtomicInteger next = new AtomicInteger();
+		List<Future<TournamentResult>> parts = new ArrayList<Future<TournamentResult>>();
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i < threads; i++) {
+				parts.add(executor.submit(() -> {
+					TournamentResult part = new TournamentResult(firstName, secondName);
+					for (int game = next.getAndIncrement(); game < games;
+							game = next.getAndIncrement()) {
+						playGame(game, part);
+					}
+					return part;
+				}));
+			}
+			for (Future<TournamentResult> part : parts) {
+				result.add(part.get());
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		result.setElapsed(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Plays one game with new strategies, which are closed afterwards, and adds it to the
+	 * result.
+	 * @param game - the number of the game
+	 * @param result - the result of the thread
+	 */
+	private void playGame(int game, TournamentResult result) {
+		try (Strategy firstStrategy = first.get(); Strategy secondStrategy = second.get()) {
+			playGame(game, new Strategy[] {firstStrategy, secondStrategy}, result);
+		}
+	}
+
+	/**
+	 * Plays one game with the given strategies and adds it to the result.
+	 * @param game - the number of the game
+	 * @param strategies - the strategies of the first and second player
+	 * @param result - the result of the thread
+	 */
+	private void playGame(int game, Strategy[] strategies, TournamentResult result) {
+		Board board = new BoardGenerator(seed + game).createBoard();
+		int[][] collections = new int[2][7];
+		int[] moves = new int[2];
+		int turn = game % 2;
+		int loser = -1;
+		while (!board.isEndGame()) {
+			long start = System.nanoTime();
+			int[] choice = strategies[turn].determineMove(board, collections[turn].clone());
+			result.addThinkTime(turn, System.nanoTime() - start);
+			if (!isValidChoice(board, choice)) {
+				result.addIllegalMove(turn);
+				loser = turn;
+				break;
+			}
+			if (choice.length == 1) {
+				board.makeSingleMove(choice[0]);
+			} else {
+				board.makeDoubleMove(choice[0], choice[1]);
+			}
+			board.collectBall(collections[turn]);
+			moves[turn]++;
+			turn = 1 - turn;
+		}
+
+		int[] score = new int[2];
+		int[] balls = new int[2];
+		for (int side = 0; side < 2; side++) {
+			for (int colour = 1; colour < 7; colour++) {
+				score[side] += collections[side][colour] / 3;
+				balls[side] += collections[side][colour];
+			}
+		}
+		int winner;
+		if (loser != -1) {
+			winner = 1 - loser;
+		} else if ((score[0] != score[1]) || (balls[0] != balls[1])) {
+			// as in Game.winner: the score first, then the balls
+			winner = ((score[0] > score[1]) || ((score[0] == score[1]) && (balls[0] > balls[1])))
+					? 0 : 1;
+		} else {
+			winner = -1;
+		}
+		result.addGame(winner, score, balls, moves);
+	}
+
+	/**
+	 * Checks if the choice of a strategy is a move that may be played: a valid single move,
+	 * or a valid double move when there is no single move.
+	 * @param board - the board before the move
+	 * @param choice - the result of determineMove
+	 * @return true if the move is valid
+	 */
+	private static boolean isValidChoice(Board board, int[] choice) {
+		if ((choice == null) || (choice.length == 0) || (choice.length > 2)) {
+			return false;
+		}
+		if (choice.length == 1) {
+			return board.isValidSingleMove(choice[0]);
+		}
+		return !board.isStillPossibleSingleMove() && board.isValidDoubleMove(choice[0], choice[1]);
+	}
+
+	/**
+	 * Returns a creator of the strategy with the given name.
+	 * @param name - SMART, NAIVE, ALPHABETA or MCTS, in any case
+	 * @return the creator of the strategy
+	 * @throws IllegalArgumentException - if there is no strategy with this name
+	 */
+	public static Supplier<Strategy> strategy(String name) {
+		switch (name.toUpperCase()) {
+			case "SMART":
+				return () -> new SmartStrategy(1, false);
+			case "NAIVE":
+				return NaiveStrategy::new;
+			case "ALPHABETA":
+				return () -> new AlphaBetaStrategy(100);
+			case "MCTS":
+				return () -> new MonteCarloStrategy(100, 0, 1);
+			default:
+				throw new IllegalArgumentException("Unknown strategy " + name);
+		}
+	}
+
+	/**
+	 * Plays a tournament and prints its statistics.
+	 * @param args - the number of games, threads, the first and second strategy and the
+	 * seed, all optional
+	 * @throws InterruptedException - if the tournament is interrupted
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1])
+				: Runtime.getRuntime().availableProcessors();
+		Supplier<Strategy> first = strategy((args.length > 2) ? args[2] : "SMART");
+		Supplier<Strategy> second = strategy((args.length > 3) ? args[3] : "NAIVE");
+		long seed = (args.length > 4) ? Long.parseLong(args[4]) : DEFAULT_SEED;
+
+		System.out.print(new Tournament(first, second, threads, seed).play(games));
+	}
+}
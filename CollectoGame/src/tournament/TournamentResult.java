@@ -0,0 +1,216 @@
+package tournament;
+
+/**
+ * The statistics of a tournament between two strategies, seen from the first strategy.
+ * Every thread of a Tournament fills its own result, which are added up with add at the end,
+ * so a result is not shared between threads while the games are played.
+ *
+ * @author Vo Nhat Minh and Jesse Snoijer
+ */
+public class TournamentResult {
+	/**
+	 * @invariant names - the names of the first and second strategy
+	 * @invariant wins, draws and losses - the games the first strategy won, drew and lost
+	 * @invariant scores and balls - the total score and balls of both strategies
+	 * @invariant moves - the total number of moves of both strategies
+	 * @invariant illegalMoves - the games each strategy lost by an invalid move
+	 * @invariant thinkTime - the nanoseconds each strategy spent in determineMove
+	 * @invariant elapsed - the wall clock nanoseconds of the whole tournament
+	 */
+	private final String[] names;
+	private int wins;
+	private int draws;
+	private int losses;
+	private final long[] scores = new long[2];
+	private final long[] balls = new long[2];
+	private final long[] moves = new long[2];
+	private final int[] illegalMoves = new int[2];
+	private final long[] thinkTime = new long[2];
+	private long elapsed;
+
+	/**
+	 * Creates an empty result.
+	 * @param firstName - the name of the first strategy
+	 * @param secondName - the name of the second strategy
+	 */
+	public TournamentResult(String firstName, String secondName) {
+		this.names = new String[] {firstName, secondName};
+	}
+
+	/**
+	 * Adds a finished game.
+	 * @requires the scores, balls and moves are not negative
+	 * @param winner - 0 if the first strategy won, 1 if the second won, -1 for a draw
+	 * @param score - the score of both strategies in the game
+	 * @param ball - the collected balls of both strategies
+	 * @param gameMoves - the number of moves of both strategies in the game
+	 */
+	void addGame(int winner, int[] score, int[] ball, int[] gameMoves) {
+		if (winner == 0) {
+			wins++;
+		} else if (winner == 1) {
+			losses++;
+		} else {
+			draws++;
+		}
+		for (int side = 0; side < 2; side++) {
+			scores[side] += score[side];
+			balls[side] += ball[side];
+			moves[side] += gameMoves[side];
+		}
+	}
+
+	/**
+	 * Counts a game that was lost by an invalid move.
+	 * @param side - 0 for the first strategy, 1 for the second
+	 */
+	void addIllegalMove(int side) {
+		illegalMoves[side]++;
+	}
+
+	/**
+	 * Adds the time a strategy spent on a move.
+	 * @param side - 0 for the first strategy, 1 for the second
+	 * @param nanos - the time in nanoseconds
+	 */
+	void addThinkTime(int side, long nanos) {
+		thinkTime[side] += nanos;
+	}
+
+	/**
+	 * Sets the wall clock time of the tournament.
+	 * @param nanos - the time in nanoseconds
+	 */
+	void setElapsed(long nanos) {
+		elapsed = nanos;
+	}
+
+	/**
+	 * Adds the games of another result to this result.
+	 * @requires other is a result of the same strategies
+	 * @param other - the result to add
+	 */
+	void add(TournamentResult other) {
+		wins += other.wins;
+		draws += other.draws;
+		losses += other.losses;
+		for (int side = 0; side < 2; side++) {
+			scores[side] += other.scores[side];
+			balls[side] += other.balls[side];
+			illegalMoves[side] += other.illegalMoves[side];
+			thinkTime[side] += other.thinkTime[side];
+			moves[side] += other.moves[side];
+		}
+	}
+
+	/**
+	 * Returns the number of played games.
+	 * @return wins + draws + losses
+	 */
+	public int getGames() {
+		return wins + draws + losses;
+	}
+
+	/**
+	 * Returns the games the first strategy won.
+	 * @return the number of wins
+	 */
+	public int getWins() {
+		return wins;
+	}
+
+	/**
+	 * Returns the games that ended in a draw.
+	 * @return the number of draws
+	 */
+	public int getDraws() {
+		return draws;
+	}
+
+	/**
+	 * Returns the games the first strategy lost.
+	 * @return the number of losses
+	 */
+	public int getLosses() {
+		return losses;
+	}
+
+	/**
+	 * Returns the total score of a strategy over all games.
+	 * @param side - 0 for the first strategy, 1 for the second
+	 * @return the total score
+	 */
+	public long getScore(int side) {
+		return scores[side];
+	}
+
+	/**
+	 * Returns the total number of balls a strategy collected over all games.
+	 * @param side - 0 for the first strategy, 1 for the second
+	 * @return the total balls
+	 */
+	public long getBalls(int side) {
+		return balls[side];
+	}
+
+	/**
+	 * Returns the number of moves of a strategy over all games.
+	 * @param side - 0 for the first strategy, 1 for the second
+	 * @return the total moves
+	 */
+	public long getMoves(int side) {
+		return moves[side];
+	}
+
+	/**
+	 * Returns the games a strategy lost by an invalid move.
+	 * @param side - 0 for the first strategy, 1 for the second
+	 * @return the number of invalid moves
+	 */
+	public int getIllegalMoves(int side) {
+		return illegalMoves[side];
+	}
+
+	/**
+	 * Returns the time a strategy spent in determineMove over all games.
+	 * @param side - 0 for the first strategy, 1 for the second
+	 * @return the time in nanoseconds
+	 */
+	public long getThinkTime(int side) {
+		return thinkTime[side];
+	}
+
+	/**
+	 * Returns the wall clock time of the tournament.
+	 * @return the time in nanoseconds
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * Returns the number of games per second of wall clock time.
+	 * @return the throughput, 0 if no time was measured
+	 */
+	public double getGamesPerSecond() {
+		return (elapsed == 0) ? 0.0 : getGames() * 1e9 / elapsed;
+	}
+
+	@Override
+	public String toString() {
+		int games = Math.max(1, getGames());
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("%s vs %s: %d games in %.2f s (%.1f games/s)%n", names[0],
+				names[1], getGames(), elapsed / 1e9, getGamesPerSecond()));
+		s.append(String.format("W/D/L %d/%d/%d (%.1f%% points)%n", wins, draws, losses,
+				100.0 * (wins + 0.5 * draws) / games));
+		for (int side = 0; side < 2; side++) {
+			long sideMoves = Math.max(1, moves[side]);
+			s.append(String.format("%s: %.2f score, %.2f balls per game, %.3f ms per move, "
+					+ "%d invalid moves%n", names[side], (double) scores[side] / games,
+					(double) balls[side] / games, thinkTime[side] / 1e6 / sideMoves,
+					illegalMoves[side]));
+		}
+		return s.toString();
+	}
+}